@@ -0,0 +1,39 @@
+package ru.spring.mvc.accesslog;
+
+public record AccessLogRecord(
+        long timestampMillis,
+        String method,
+        String path,
+        int status,
+        long latencyNanos,
+        String entityId
+) {
+
+    void appendJson(StringBuilder out) {
+        out.append("{\"ts\":").append(timestampMillis)
+                .append(",\"method\":\"").append(method)
+                .append("\",\"path\":\"");
+        appendEscaped(out, path);
+        out.append("\",\"status\":").append(status)
+                .append(",\"latencyMicros\":").append(latencyNanos / 1_000);
+        if (entityId != null) {
+            out.append(",\"entityId\":\"");
+            appendEscaped(out, entityId);
+            out.append('"');
+        }
+        out.append("}\n");
+    }
+
+    private static void appendEscaped(StringBuilder out, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                out.append('\\').append(c);
+            } else if (c < 0x20) {
+                out.append(String.format("\\u%04x", (int) c));
+            } else {
+                out.append(c);
+            }
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package ru.spring.mvc.accesslog;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Bounded, lock-free hand-off of access log records from request threads to a single
+ * background thread that appends them in batches to a size-rolled file. With {@code accesslog.max-files=1}
+ * the file is truncated when it reaches the size limit. A file that cannot be written or rolled is reopened
+ * on the next batch.
+ */
+@Component
+@ConditionalOnProperty(name = "accesslog.enabled", havingValue = "true", matchIfMissing = true)
+public class AccessLogWriter {
+
+    private static final Logger log = LoggerFactory.getLogger(AccessLogWriter.class);
+
+    private final Queue<AccessLogRecord> queue;
+    private final AtomicInteger depth;
+    private final int capacity;
+    private final OverflowPolicy overflowPolicy;
+    private final int batchSize;
+    private final Path file;
+    private final long maxFileSizeBytes;
+    private final int maxFiles;
+    private final Counter dropped;
+
+    private volatile boolean running;
+    private Thread drainThread;
+    private OutputStream out;
+    private long fileSizeBytes;
+
+    public AccessLogWriter(@Value("${accesslog.queue-capacity:65536}") int capacity,
+                           @Value("${accesslog.overflow-policy:drop}") String overflowPolicy,
+                           @Value("${accesslog.batch-size:512}") int batchSize,
+                           @Value("${accesslog.file:logs/access.log}") String file,
+                           @Value("${accesslog.max-file-size-bytes:104857600}") long maxFileSizeBytes,
+                           @Value("${accesslog.max-files:5}") int maxFiles,
+                           MeterRegistry meterRegistry) {
+        this.queue = new ConcurrentLinkedQueue<>();
+        this.depth = new AtomicInteger();
+        this.capacity = capacity;
+        this.overflowPolicy = OverflowPolicy.valueOf(overflowPolicy.toUpperCase());
+        this.batchSize = batchSize;
+        this.file = Path.of(file);
+        this.maxFileSizeBytes = maxFileSizeBytes;
+        this.maxFiles = maxFiles;
+        this.dropped = meterRegistry.counter("accesslog.dropped");
+        Gauge.builder("accesslog.queue.depth", depth, AtomicInteger::get).register(meterRegistry);
+    }
+
+    /**
+     * Called on the request thread; never touches the disk.
+     *
+     * @return {@code false} if the record was dropped
+     */
+    public boolean offer(AccessLogRecord record) {
+        while (true) {
+            int current = depth.get();
+            if (current < capacity) {
+                if (depth.compareAndSet(current, current + 1)) {
+                    queue.offer(record);
+                    return true;
+                }
+            } else if (overflowPolicy == OverflowPolicy.DROP || !running) {
+                dropped.increment();
+                return false;
+            } else {
+                LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(50));
+            }
+        }
+    }
+
+    public int getQueueDepth() {
+        return depth.get();
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        openWriter(false);
+        running = true;
+        drainThread = new Thread(this::drainLoop, "access-log-writer");
+        drainThread.setDaemon(true);
+        drainThread.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        LockSupport.unpark(drainThread);
+        drainThread.join(TimeUnit.SECONDS.toMillis(5));
+    }
+
+    private void drainLoop() {
+        StringBuilder batch = new StringBuilder(batchSize * 128);
+        while (running || !queue.isEmpty()) {
+            int drained = 0;
+            AccessLogRecord record;
+            while (drained < batchSize && (record = queue.poll()) != null) {
+                record.appendJson(batch);
+                drained++;
+            }
+            if (drained == 0) {
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10));
+                continue;
+            }
+            depth.addAndGet(-drained);
+            write(batch);
+            batch.setLength(0);
+        }
+        closeWriter();
+    }
+
+    private void write(StringBuilder batch) {
+        byte[] bytes = batch.toString().getBytes(StandardCharsets.UTF_8);
+        try {
+            if (out == null) {
+                openWriter(false);
+            }
+            out.write(bytes);
+            out.flush();
+            fileSizeBytes += bytes.length;
+            if (fileSizeBytes >= maxFileSizeBytes) {
+                roll();
+            }
+        } catch (IOException e) {
+            log.warn("Cannot write access log: {}", e.getMessage());
+        }
+    }
+
+    private void roll() throws IOException {
+        closeWriter();
+        try {
+            for (int i = maxFiles - 1; i >= 1; i--) {
+                Path source = i == 1 ? file : rolledFile(i - 1);
+                if (Files.exists(source)) {
+                    Files.move(source, rolledFile(i), StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+        } finally {
+            openWriter(maxFiles <= 1);
+        }
+    }
+
+    private Path rolledFile(int index) {
+        return file.resolveSibling(file.getFileName() + "." + index);
+    }
+
+    private void openWriter(boolean truncate) throws IOException {
+        out = Files.newOutputStream(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                truncate ? StandardOpenOption.TRUNCATE_EXISTING : StandardOpenOption.APPEND);
+        fileSizeBytes = Files.size(file);
+    }
+
+    private void closeWriter() {
+        if (out == null) {
+            return;
+        }
+        try {
+            out.close();
+        } catch (IOException e) {
+            log.warn("Cannot close access log: {}", e.getMessage());
+        } finally {
+            out = null;
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package ru.spring.mvc.accesslog;
+
+public enum OverflowPolicy {
+    /**
+     * Drop the record and count it in {@code accesslog.dropped}.
+     */
+    DROP,
+    /**
+     * Park the request thread until the writer frees a slot.
+     */
+    BLOCK
+}
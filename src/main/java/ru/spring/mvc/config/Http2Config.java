@@ -0,0 +1,41 @@
+package ru.spring.mvc.config;
+
+import org.apache.coyote.UpgradeProtocol;
+import org.apache.coyote.http2.Http2Protocol;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Tunes the HTTP/2 upgrade protocol that Tomcat registers when {@code server.http2.enabled=true}.
+ * Without TLS it is served as h2c, both via {@code Upgrade: h2c} and with prior knowledge.
+ */
+@Configuration
+public class Http2Config implements WebServerFactoryCustomizer<TomcatServletWebServerFactory> {
+
+    private final long maxConcurrentStreams;
+    private final int maxConcurrentStreamExecution;
+    private final long keepAliveTimeoutMillis;
+
+    public Http2Config(@Value("${http2.max-concurrent-streams:200}") long maxConcurrentStreams,
+                       @Value("${http2.max-concurrent-stream-execution:50}") int maxConcurrentStreamExecution,
+                       @Value("${http2.keep-alive-timeout-ms:60000}") long keepAliveTimeoutMillis) {
+        this.maxConcurrentStreams = maxConcurrentStreams;
+        this.maxConcurrentStreamExecution = maxConcurrentStreamExecution;
+        this.keepAliveTimeoutMillis = keepAliveTimeoutMillis;
+    }
+
+    @Override
+    public void customize(TomcatServletWebServerFactory factory) {
+        factory.addConnectorCustomizers(connector -> {
+            for (UpgradeProtocol upgradeProtocol : connector.findUpgradeProtocols()) {
+                if (upgradeProtocol instanceof Http2Protocol http2Protocol) {
+                    http2Protocol.setMaxConcurrentStreams(maxConcurrentStreams);
+                    http2Protocol.setMaxConcurrentStreamExecution(maxConcurrentStreamExecution);
+                    http2Protocol.setKeepAliveTimeout(keepAliveTimeoutMillis);
+                }
+            }
+        });
+    }
+}
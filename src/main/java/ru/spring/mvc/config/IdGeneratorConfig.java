@@ -0,0 +1,57 @@
+package ru.spring.mvc.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import ru.spring.mvc.id.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Id generators of users and pets, chosen by {@code id.generator}:
+ * <ul>
+ *     <li>{@code sequence} - dense per-JVM counter, for a single instance;</li>
+ *     <li>{@code snowflake} - time, {@code id.node-id} and sequence, for instances with distinct node ids;</li>
+ *     <li>{@code file} - blocks leased from a high-water mark in {@code id.directory}, for instances sharing it.</li>
+ * </ul>
+ * The generators are closed with the context, which releases the high-water mark files.
+ */
+@Configuration
+public class IdGeneratorConfig {
+
+    private final String generator;
+    private final int nodeId;
+    private final int blockSize;
+    private final Path directory;
+
+    public IdGeneratorConfig(@Value("${id.generator:sequence}") String generator,
+                             @Value("${id.node-id:0}") int nodeId,
+                             @Value("${id.block-size:1000}") int blockSize,
+                             @Value("${id.directory:data/ids}") String directory) {
+        this.generator = generator;
+        this.nodeId = nodeId;
+        this.blockSize = blockSize;
+        this.directory = Path.of(directory);
+    }
+
+    @Bean(destroyMethod = "close")
+    public IdGenerator userIdGenerator() throws IOException {
+        return create("users");
+    }
+
+    @Bean(destroyMethod = "close")
+    public IdGenerator petIdGenerator() throws IOException {
+        return create("pets");
+    }
+
+    private IdGenerator create(String entities) throws IOException {
+        return switch (generator) {
+            case "sequence" -> new SequenceIdGenerator();
+            case "snowflake" -> new BlockLeasingIdGenerator(new SnowflakeIdBlockSource(nodeId), blockSize);
+            case "file" -> new BlockLeasingIdGenerator(
+                    new FileIdBlockSource(directory.resolve(entities + ".hwm")), blockSize);
+            default -> throw new IllegalArgumentException("Unknown id generator " + generator);
+        };
+    }
+}
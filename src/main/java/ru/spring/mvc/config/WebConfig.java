@@ -0,0 +1,47 @@
+package ru.spring.mvc.config;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import ru.spring.mvc.admin.AdminTokenInterceptor;
+import ru.spring.mvc.mvcc.AsOfInterceptor;
+import ru.spring.mvc.replication.ReplicaRequestInterceptor;
+import ru.spring.mvc.slo.SloInterceptor;
+import ru.spring.mvc.writebehind.WriteBehindInterceptor;
+
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+
+    private final ReplicaRequestInterceptor replicaRequestInterceptor;
+    private final SloInterceptor sloInterceptor;
+    private final AsOfInterceptor asOfInterceptor;
+    private final AdminTokenInterceptor adminTokenInterceptor;
+    private final ObjectProvider<WriteBehindInterceptor> writeBehindInterceptor;
+
+    public WebConfig(ReplicaRequestInterceptor replicaRequestInterceptor,
+                     SloInterceptor sloInterceptor,
+                     AsOfInterceptor asOfInterceptor,
+                     AdminTokenInterceptor adminTokenInterceptor,
+                     ObjectProvider<WriteBehindInterceptor> writeBehindInterceptor) {
+        this.replicaRequestInterceptor = replicaRequestInterceptor;
+        this.sloInterceptor = sloInterceptor;
+        this.asOfInterceptor = asOfInterceptor;
+        this.adminTokenInterceptor = adminTokenInterceptor;
+        this.writeBehindInterceptor = writeBehindInterceptor;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(replicaRequestInterceptor)
+                .addPathPatterns("/users/**", "/pets/**");
+        writeBehindInterceptor.ifAvailable(interceptor -> registry.addInterceptor(interceptor)
+                .addPathPatterns("/users/**", "/pets/**"));
+        registry.addInterceptor(sloInterceptor)
+                .addPathPatterns("/users/**", "/pets/**");
+        registry.addInterceptor(asOfInterceptor)
+                .addPathPatterns("/users/**", "/pets/**");
+        registry.addInterceptor(adminTokenInterceptor)
+                .addPathPatterns("/admin/**");
+    }
+}
@@ -0,0 +1,30 @@
+package ru.spring.mvc.consistency;
+
+/**
+ * Order-independent checksum of a collection of pet ids. Duplicates change the result,
+ * so a list holding the same pet twice does not match the set of owned pets.
+ */
+final class PetIdChecksum {
+
+    private PetIdChecksum() {
+    }
+
+    static long of(Iterable<Long> petIds) {
+        long sum = 0;
+        long count = 0;
+        for (Long petId : petIds) {
+            sum += mix(petId);
+            count++;
+        }
+        return sum * 31 + count;
+    }
+
+    /**
+     * SplitMix64 finaliser, spreads sequential ids over all bits.
+     */
+    private static long mix(long value) {
+        value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+        value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+        return value ^ (value >>> 31);
+    }
+}
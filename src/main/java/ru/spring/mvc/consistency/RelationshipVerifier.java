@@ -0,0 +1,189 @@
+package ru.spring.mvc.consistency;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.spring.mvc.model.Pet;
+import ru.spring.mvc.replication.MutationLog;
+import ru.spring.mvc.service.PetService;
+import ru.spring.mvc.service.UserService;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Background check that each {@code User.pets} list matches the pets whose {@code userId} points at that user.
+ * Users are walked in chunks with a pause between them; each user is compared by a checksum of pet ids
+ * and only diffed when the checksums differ. Only in-memory entries are read, without loading cold users or
+ * counting accesses. A user's pet list is copied under the mutation log lock, which every change to it holds,
+ * and that lock is never held across users. With {@code consistency.repair=true} a mismatched list is
+ * rebuilt from the pet side, which is the source of truth, re-checking and replacing it under the same lock.
+ */
+@Component
+@ConditionalOnProperty(name = "consistency.enabled", havingValue = "true", matchIfMissing = true)
+public class RelationshipVerifier {
+
+    private static final Logger log = LoggerFactory.getLogger(RelationshipVerifier.class);
+
+    private final UserService userService;
+    private final PetService petService;
+    private final MutationLog mutationLog;
+    private final int chunkSize;
+    private final long pauseMillis;
+    private final long intervalMillis;
+    private final boolean repair;
+
+    private final Counter mismatches;
+    private final Counter repairs;
+    private final Counter orphanPets;
+    private final Timer runTimer;
+    private final AtomicLong lastRunMismatches;
+
+    private volatile boolean running;
+    private Thread thread;
+
+    public RelationshipVerifier(UserService userService,
+                                PetService petService,
+                                MutationLog mutationLog,
+                                MeterRegistry meterRegistry,
+                                @Value("${consistency.chunk-size:500}") int chunkSize,
+                                @Value("${consistency.pause-ms:10}") long pauseMillis,
+                                @Value("${consistency.interval-ms:60000}") long intervalMillis,
+                                @Value("${consistency.repair:false}") boolean repair) {
+        this.userService = userService;
+        this.petService = petService;
+        this.mutationLog = mutationLog;
+        this.chunkSize = chunkSize;
+        this.pauseMillis = pauseMillis;
+        this.intervalMillis = intervalMillis;
+        this.repair = repair;
+        this.mismatches = meterRegistry.counter("consistency.mismatches");
+        this.repairs = meterRegistry.counter("consistency.repairs");
+        this.orphanPets = meterRegistry.counter("consistency.orphan.pets");
+        this.runTimer = meterRegistry.timer("consistency.run");
+        this.lastRunMismatches = meterRegistry.gauge("consistency.last-run.mismatched-users", new AtomicLong());
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        thread = new Thread(this::loop, "relationship-verifier");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        thread.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        thread.interrupt();
+    }
+
+    private void loop() {
+        while (running) {
+            try {
+                TimeUnit.MILLISECONDS.sleep(intervalMillis);
+                runTimer.record(() -> lastRunMismatches.set(verify()));
+            } catch (InterruptedException e) {
+                return;
+            } catch (RuntimeException e) {
+                log.warn("Relationship verification failed: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Walks all in-memory users once.
+     *
+     * @return number of users whose pet list did not match
+     */
+    public long verify() {
+        long mismatchedUsers = 0;
+        int inChunk = 0;
+        for (Long userId : userService.getInMemoryUserIds()) {
+            if (!verifyUser(userId)) {
+                mismatchedUsers++;
+            }
+            if (++inChunk == chunkSize) {
+                inChunk = 0;
+                pause();
+            }
+        }
+        for (Long ownerId : petService.getOwnerIds()) {
+            if (userService.findInMemoryUser(ownerId).isEmpty()) {
+                orphanPets.increment(petService.getPetIdsByUserId(ownerId).size());
+                log.warn("Pets of missing user {} are orphaned", ownerId);
+            }
+        }
+        return mismatchedUsers;
+    }
+
+    private boolean verifyUser(long userId) {
+        Set<Long> expected = expectedPetIds(userId);
+        List<Long> actual = actualPetIds(userId);
+        if (actual == null || PetIdChecksum.of(expected) == PetIdChecksum.of(actual)) {
+            return true;
+        }
+        mismatches.increment();
+        log.warn("Pets of user {} drifted: list has {}, pet side has {}", userId, actual, expected);
+
+        if (repair) {
+            // re-read both sides under the lock, so no write can land between the check and the replacement
+            mutationLog.atomically(() -> {
+                Set<Long> recheckedExpected = expectedPetIds(userId);
+                List<Long> recheckedActual = actualPetIds(userId);
+                if (recheckedActual != null && PetIdChecksum.of(recheckedExpected) != PetIdChecksum.of(recheckedActual)) {
+                    List<Pet> pets = new ArrayList<>(recheckedExpected.size());
+                    for (Long petId : recheckedExpected) {
+                        petService.findInMemoryPet(petId).ifPresent(pets::add);
+                    }
+                    userService.replacePets(userId, pets);
+                    repairs.increment();
+                }
+                return null;
+            });
+        }
+        return false;
+    }
+
+    private Set<Long> expectedPetIds(long userId) {
+        Set<Long> expected = new HashSet<>();
+        for (Long petId : petService.getPetIdsByUserId(userId)) {
+            petService.findInMemoryPet(petId)
+                    .filter(pet -> pet.getUserId() == userId)
+                    .ifPresent(pet -> expected.add(pet.getId()));
+        }
+        return expected;
+    }
+
+    /**
+     * @return pet ids in the user's list, or {@code null} if the user is no longer in memory
+     */
+    private List<Long> actualPetIds(long userId) {
+        Optional<List<Pet>> pets = userService.copyInMemoryPets(userId);
+        if (pets.isEmpty()) {
+            return null;
+        }
+        List<Long> petIds = new ArrayList<>(pets.get().size());
+        for (Pet pet : pets.get()) {
+            petIds.add(pet.getId());
+        }
+        return petIds;
+    }
+
+    private void pause() {
+        try {
+            TimeUnit.MILLISECONDS.sleep(pauseMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
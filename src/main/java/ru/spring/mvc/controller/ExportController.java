@@ -0,0 +1,110 @@
+package ru.spring.mvc.controller;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import ru.spring.mvc.export.ByteRange;
+import ru.spring.mvc.export.ExportFile;
+import ru.spring.mvc.export.ExportService;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serves the latest export with {@code Range} and {@code If-Modified-Since} support. On Tomcat the body is
+ * handed to the connector's sendfile, which copies the file to the socket with {@code FileChannel.transferTo}
+ * on the poller thread; elsewhere it is transferred from the file channel into the response.
+ */
+@RestController
+@Profile("!reactive")
+@ConditionalOnProperty(name = "export.enabled", havingValue = "true", matchIfMissing = true)
+@RequestMapping("/export")
+public class ExportController {
+
+    private static final String SENDFILE_SUPPORTED = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private final ExportService exportService;
+
+    public ExportController(ExportService exportService) {
+        this.exportService = exportService;
+    }
+
+    @GetMapping
+    public void download(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        ExportFile export = exportService.getLatest();
+        if (export == null) {
+            response.setHeader(HttpHeaders.RETRY_AFTER, "60");
+            response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "The first export is still being written");
+            return;
+        }
+
+        response.setDateHeader(HttpHeaders.LAST_MODIFIED, export.createdMillis());
+        response.setHeader(HttpHeaders.ETAG, "\"" + export.getVersion() + "\"");
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        if (notModifiedSince(request, export.createdMillis())) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        ByteRange range;
+        try {
+            range = ByteRange.parse(request.getHeader(HttpHeaders.RANGE), export.size());
+        } catch (IllegalStateException e) {
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + export.size());
+            response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+            return;
+        }
+        if (range == null) {
+            range = new ByteRange(0, export.size() - 1);
+            response.setStatus(HttpServletResponse.SC_OK);
+        } else {
+            response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+            response.setHeader(HttpHeaders.CONTENT_RANGE,
+                    "bytes " + range.start() + "-" + range.end() + "/" + export.size());
+        }
+        response.setContentType("application/gzip");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                "attachment; filename=\"" + export.path().getFileName() + "\"");
+        response.setContentLengthLong(range.length());
+
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED))) {
+            request.setAttribute(SENDFILE_FILENAME, export.path().toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, range.start());
+            request.setAttribute(SENDFILE_END, range.end() + 1);
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(export.path())) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = range.start();
+            long remaining = range.length();
+            while (remaining > 0) {
+                long transferred = channel.transferTo(position, remaining, out);
+                position += transferred;
+                remaining -= transferred;
+            }
+        }
+    }
+
+    private static boolean notModifiedSince(HttpServletRequest request, long lastModifiedMillis) {
+        long ifModifiedSince;
+        try {
+            ifModifiedSince = request.getDateHeader(HttpHeaders.IF_MODIFIED_SINCE);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        // HTTP dates have second precision
+        return ifModifiedSince >= 0
+                && TimeUnit.MILLISECONDS.toSeconds(lastModifiedMillis) <= TimeUnit.MILLISECONDS.toSeconds(ifModifiedSince);
+    }
+}
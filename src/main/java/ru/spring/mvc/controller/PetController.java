@@ -1,54 +1,103 @@
 package ru.spring.mvc.controller;
 
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
+import org.springframework.context.annotation.Profile;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import ru.spring.mvc.dto.IdsDto;
 import ru.spring.mvc.dto.PetDto;
+import ru.spring.mvc.idempotency.IdempotencyCache;
 import ru.spring.mvc.model.Pet;
+import ru.spring.mvc.mvcc.AsOfInterceptor;
+import ru.spring.mvc.replication.MutationLog;
 import ru.spring.mvc.service.PetService;
+import ru.spring.mvc.util.BulkExecutor;
+import ru.spring.mvc.util.MultiGetWriter;
 import ru.spring.mvc.util.PetDtoConverter;
 
+import java.io.IOException;
 import java.util.List;
+import java.util.Map;
 
 @RestController
+@Profile("!reactive")
 @RequestMapping("/pets")
 public class PetController {
 
     private final PetService petService;
     private final PetDtoConverter petDtoConverter;
+    private final MutationLog mutationLog;
+    private final IdempotencyCache idempotencyCache;
+    private final BulkExecutor bulkExecutor;
+    private final MultiGetWriter multiGetWriter;
 
-    public PetController(PetService petService, PetDtoConverter petDtoConverter) {
+    public PetController(PetService petService,
+                         PetDtoConverter petDtoConverter,
+                         MutationLog mutationLog,
+                         IdempotencyCache idempotencyCache,
+                         BulkExecutor bulkExecutor,
+                         MultiGetWriter multiGetWriter) {
         this.petService = petService;
         this.petDtoConverter = petDtoConverter;
+        this.mutationLog = mutationLog;
+        this.idempotencyCache = idempotencyCache;
+        this.bulkExecutor = bulkExecutor;
+        this.multiGetWriter = multiGetWriter;
     }
 
     @GetMapping
-    public List<PetDto> getAllPets() {
-        return petService
-                .getAllPets()
-                .stream()
-                .map(petDtoConverter::convertToDto)
-                .toList();
+    public List<PetDto> getAllPets(@RequestAttribute(name = AsOfInterceptor.AS_OF_ATTRIBUTE, required = false) Long asOf) {
+        List<Pet> pets = asOf == null ? petService.getAllPets() : petService.getAllPets(asOf);
+        return bulkExecutor.map(pets, petDtoConverter::convertToDto);
+    }
+
+    @GetMapping(params = "ids")
+    public void getPetsByIds(@RequestParam List<Long> ids,
+                             @RequestAttribute(name = AsOfInterceptor.AS_OF_ATTRIBUTE, required = false) Long asOf,
+                             HttpServletResponse response) throws IOException {
+        multiGetWriter.checkSize(ids);
+        Map<Long, Pet> found = asOf == null ? petService.findPetsByIds(ids) : petService.findPetsByIds(ids, asOf);
+        multiGetWriter.write(response, found, ids, petDtoConverter::convertToDto);
+    }
+
+    @PostMapping("/_mget")
+    public void multiGetPets(@RequestBody @Valid IdsDto idsDto,
+                             @RequestAttribute(name = AsOfInterceptor.AS_OF_ATTRIBUTE, required = false) Long asOf,
+                             HttpServletResponse response) throws IOException {
+        List<Long> ids = idsDto.getIds();
+        multiGetWriter.checkSize(ids);
+        Map<Long, Pet> found = asOf == null ? petService.findPetsByIds(ids) : petService.findPetsByIds(ids, asOf);
+        multiGetWriter.write(response, found, ids, petDtoConverter::convertToDto);
     }
 
     @GetMapping("/{id}")
-    public PetDto getPetById(@PathVariable long id) {
-        return petDtoConverter.convertToDto(petService.getPetById(id));
+    public PetDto getPetById(@PathVariable long id,
+                             @RequestAttribute(name = AsOfInterceptor.AS_OF_ATTRIBUTE, required = false) Long asOf) {
+        Pet pet = asOf == null ? petService.getPetById(id) : petService.getPetById(id, asOf);
+        return petDtoConverter.convertToDto(pet);
     }
 
     @PostMapping
-    public ResponseEntity<PetDto> createPet(@RequestBody @Valid PetDto petDto) {
-        Pet newPet = petService.createPet(petDtoConverter.convertToPet(petDto));
-        return ResponseEntity
-                .status(HttpStatus.CREATED)
-                .body(petDtoConverter.convertToDto(newPet));
+    public ResponseEntity<PetDto> createPet(
+            @RequestHeader(value = IdempotencyCache.IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
+            @RequestBody @Valid PetDto petDto) {
+        return idempotencyCache.execute("POST /pets", idempotencyKey, petDto, () -> {
+            Pet newPet = petService.createPet(petDtoConverter.convertToPet(petDto));
+            return ResponseEntity
+                    .status(HttpStatus.CREATED)
+                    .header(MutationLog.SEQUENCE_HEADER, String.valueOf(mutationLog.getAppliedSequence()))
+                    .body(petDtoConverter.convertToDto(newPet));
+        });
     }
 
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deletePet(@PathVariable long id) {
         petService.deletePet(id);
-        return ResponseEntity.status(HttpStatus.OK).build();
+        return ResponseEntity.status(HttpStatus.OK)
+                .header(MutationLog.SEQUENCE_HEADER, String.valueOf(mutationLog.getAppliedSequence()))
+                .build();
     }
 
     @PutMapping("/{id}")
@@ -56,6 +105,7 @@ public class PetController {
         Pet updatedPet = petService.updatePet(id, petDtoConverter.convertToPet(pet));
         return ResponseEntity
                 .status(HttpStatus.OK)
+                .header(MutationLog.SEQUENCE_HEADER, String.valueOf(mutationLog.getAppliedSequence()))
                 .body(petDtoConverter.convertToDto(updatedPet));
     }
 }
@@ -0,0 +1,62 @@
+package ru.spring.mvc.controller;
+
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import ru.spring.mvc.profiling.ProfilingService;
+import ru.spring.mvc.profiling.RecordingStatus;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Starts and stops an on-demand JFR recording; {@code POST /admin/profiling/stop} returns the {@code .jfr} file.
+ * Requires the admin token, see {@link ru.spring.mvc.admin.AdminTokenInterceptor}.
+ */
+@RestController
+@Profile("!reactive")
+@RequestMapping("/admin/profiling")
+public class ProfilingController {
+
+    private final ProfilingService profilingService;
+
+    public ProfilingController(ProfilingService profilingService) {
+        this.profilingService = profilingService;
+    }
+
+    @GetMapping
+    public RecordingStatus getStatus() {
+        return profilingService.getStatus();
+    }
+
+    @PostMapping("/start")
+    public ResponseEntity<RecordingStatus> start(@RequestParam(defaultValue = "60") long durationSeconds) {
+        if (!profilingService.start(Duration.ofSeconds(durationSeconds))) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(profilingService.getStatus());
+        }
+        return ResponseEntity.ok(profilingService.getStatus());
+    }
+
+    @PostMapping("/stop")
+    public void stop(HttpServletResponse response) throws IOException {
+        Path file = profilingService.stop();
+        if (file == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND, "No recording was started");
+            return;
+        }
+        try {
+            response.setContentType("application/octet-stream");
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                    "attachment; filename=\"" + file.getFileName() + "\"");
+            response.setContentLengthLong(Files.size(file));
+            Files.copy(file, response.getOutputStream());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
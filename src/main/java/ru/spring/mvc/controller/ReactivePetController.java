@@ -0,0 +1,132 @@
+package ru.spring.mvc.controller;
+
+import jakarta.validation.Valid;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import ru.spring.mvc.dto.IdsDto;
+import ru.spring.mvc.dto.PetDto;
+import ru.spring.mvc.idempotency.IdempotencyCache;
+import ru.spring.mvc.model.Pet;
+import ru.spring.mvc.mvcc.AsOfInterceptor;
+import ru.spring.mvc.replication.MutationLog;
+import ru.spring.mvc.service.PetService;
+import ru.spring.mvc.util.MultiGetWriter;
+import ru.spring.mvc.util.PetDtoConverter;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * WebFlux counterpart of {@link PetController}, active with the {@code reactive} profile.
+ * Service calls can block, on cold-tier file I/O or on the mutation log lock that serializes writes,
+ * so they run on the bounded elastic scheduler instead of the event loop, and their results are handed to the
+ * parallel scheduler for the reason given in {@link ReactiveUserController}.
+ * See {@link ReactiveUserController} for the features that are servlet-only.
+ */
+@RestController
+@Profile("reactive")
+@RequestMapping("/pets")
+public class ReactivePetController {
+
+    private final PetService petService;
+    private final PetDtoConverter petDtoConverter;
+    private final MutationLog mutationLog;
+    private final IdempotencyCache idempotencyCache;
+    private final MultiGetWriter multiGetWriter;
+
+    public ReactivePetController(PetService petService,
+                                 PetDtoConverter petDtoConverter,
+                                 MutationLog mutationLog,
+                                 IdempotencyCache idempotencyCache,
+                                 MultiGetWriter multiGetWriter) {
+        this.petService = petService;
+        this.petDtoConverter = petDtoConverter;
+        this.mutationLog = mutationLog;
+        this.idempotencyCache = idempotencyCache;
+        this.multiGetWriter = multiGetWriter;
+    }
+
+    @GetMapping(produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public Flux<PetDto> getAllPets(@RequestAttribute(name = AsOfInterceptor.AS_OF_ATTRIBUTE, required = false) Long asOf) {
+        return Flux.defer(() -> Flux.fromIterable(asOf == null
+                        ? petService.getAllPets()
+                        : petService.getAllPets(asOf)))
+                .subscribeOn(Schedulers.boundedElastic())
+                .publishOn(Schedulers.parallel())
+                .map(petDtoConverter::convertToDto);
+    }
+
+    @GetMapping(params = "ids")
+    public Mono<Map<String, List<?>>> getPetsByIds(
+            @RequestParam List<Long> ids,
+            @RequestAttribute(name = AsOfInterceptor.AS_OF_ATTRIBUTE, required = false) Long asOf) {
+        return findPetsByIds(ids, asOf);
+    }
+
+    @PostMapping("/_mget")
+    public Mono<Map<String, List<?>>> multiGetPets(
+            @RequestBody @Valid IdsDto idsDto,
+            @RequestAttribute(name = AsOfInterceptor.AS_OF_ATTRIBUTE, required = false) Long asOf) {
+        return findPetsByIds(idsDto.getIds(), asOf);
+    }
+
+    private Mono<Map<String, List<?>>> findPetsByIds(List<Long> ids, Long asOf) {
+        return Mono.fromSupplier(() -> {
+            multiGetWriter.checkSize(ids);
+            Map<Long, Pet> found = asOf == null ? petService.findPetsByIds(ids) : petService.findPetsByIds(ids, asOf);
+            return multiGetWriter.toDocument(found, ids, petDtoConverter::convertToDto);
+        }).subscribeOn(Schedulers.boundedElastic())
+                .publishOn(Schedulers.parallel());
+    }
+
+    @GetMapping("/{id}")
+    public Mono<PetDto> getPetById(@PathVariable long id,
+                                   @RequestAttribute(name = AsOfInterceptor.AS_OF_ATTRIBUTE, required = false) Long asOf) {
+        return Mono.fromSupplier(() -> petDtoConverter.convertToDto(
+                        asOf == null ? petService.getPetById(id) : petService.getPetById(id, asOf)))
+                .subscribeOn(Schedulers.boundedElastic())
+                .publishOn(Schedulers.parallel());
+    }
+
+    @PostMapping
+    public Mono<ResponseEntity<PetDto>> createPet(
+            @RequestHeader(value = IdempotencyCache.IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
+            @RequestBody @Valid PetDto petDto) {
+        return Mono.fromSupplier(() -> idempotencyCache.execute("POST /pets", idempotencyKey, petDto, () -> {
+                    Pet newPet = petService.createPet(petDtoConverter.convertToPet(petDto));
+                    return ResponseEntity
+                            .status(HttpStatus.CREATED)
+                            .header(MutationLog.SEQUENCE_HEADER, String.valueOf(mutationLog.getAppliedSequence()))
+                            .body(petDtoConverter.convertToDto(newPet));
+                }))
+                .subscribeOn(Schedulers.boundedElastic())
+                .publishOn(Schedulers.parallel());
+    }
+
+    @DeleteMapping("/{id}")
+    public Mono<ResponseEntity<Void>> deletePet(@PathVariable long id) {
+        return Mono.fromRunnable(() -> petService.deletePet(id))
+                .subscribeOn(Schedulers.boundedElastic())
+                .publishOn(Schedulers.parallel())
+                .then(Mono.fromSupplier(() -> ResponseEntity.status(HttpStatus.OK)
+                        .header(MutationLog.SEQUENCE_HEADER, String.valueOf(mutationLog.getAppliedSequence()))
+                        .<Void>build()));
+    }
+
+    @PutMapping("/{id}")
+    public Mono<ResponseEntity<PetDto>> updatePet(@PathVariable long id, @RequestBody @Valid PetDto petDto) {
+        return Mono.fromSupplier(() -> petService.updatePet(id, petDtoConverter.convertToPet(petDto)))
+                .subscribeOn(Schedulers.boundedElastic())
+                .publishOn(Schedulers.parallel())
+                .map(updatedPet -> ResponseEntity
+                        .status(HttpStatus.OK)
+                        .header(MutationLog.SEQUENCE_HEADER, String.valueOf(mutationLog.getAppliedSequence()))
+                        .body(petDtoConverter.convertToDto(updatedPet)));
+    }
+}
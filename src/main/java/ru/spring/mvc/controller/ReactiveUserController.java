@@ -0,0 +1,150 @@
+package ru.spring.mvc.controller;
+
+import com.fasterxml.jackson.annotation.JsonView;
+import jakarta.validation.Valid;
+import jakarta.validation.groups.Default;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.WebDataBinder;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import ru.spring.mvc.dto.IdsDto;
+import ru.spring.mvc.dto.UserDto;
+import ru.spring.mvc.dto.Views;
+import ru.spring.mvc.idempotency.IdempotencyCache;
+import ru.spring.mvc.model.User;
+import ru.spring.mvc.mvcc.AsOfInterceptor;
+import ru.spring.mvc.replication.MutationLog;
+import ru.spring.mvc.service.UserService;
+import ru.spring.mvc.util.FailFastValidation;
+import ru.spring.mvc.util.MultiGetWriter;
+import ru.spring.mvc.util.UserDtoConverter;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * WebFlux counterpart of {@link UserController}, active with the {@code reactive} profile.
+ * Service calls can block, on cold-tier file I/O or on the mutation log lock that serializes writes,
+ * so they run on the bounded elastic scheduler instead of the event loop. Their results are handed to the
+ * parallel scheduler before the response is written: cancelling a task that is still running on the bounded
+ * elastic scheduler interrupts its thread, and the servlet container fails writes from an interrupted thread.
+ * <p>
+ * Follower read-only mode, read-your-writes and {@code ?asOf=} pins come from {@code ReplicaWebFilter} and
+ * {@code AsOfWebFilter}. SLO tracking with write shedding and write-behind backpressure are servlet-only.
+ */
+@RestController
+@Profile("reactive")
+@RequestMapping("/users")
+public class ReactiveUserController {
+
+    private final UserService userService;
+    private final UserDtoConverter userDtoConverter;
+    private final MutationLog mutationLog;
+    private final IdempotencyCache idempotencyCache;
+    private final MultiGetWriter multiGetWriter;
+    private final FailFastValidation failFastValidation;
+
+    public ReactiveUserController(UserService userService,
+                                  UserDtoConverter userDtoConverter,
+                                  MutationLog mutationLog,
+                                  IdempotencyCache idempotencyCache,
+                                  MultiGetWriter multiGetWriter,
+                                  FailFastValidation failFastValidation) {
+        this.userService = userService;
+        this.userDtoConverter = userDtoConverter;
+        this.mutationLog = mutationLog;
+        this.idempotencyCache = idempotencyCache;
+        this.multiGetWriter = multiGetWriter;
+        this.failFastValidation = failFastValidation;
+    }
+
+    @InitBinder("userDto")
+    public void validateUserDtoFailFast(WebDataBinder binder) {
+        binder.setValidator(failFastValidation.getValidator());
+    }
+
+    @GetMapping(produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public Flux<UserDto> getUsers(@RequestAttribute(name = AsOfInterceptor.AS_OF_ATTRIBUTE, required = false) Long asOf) {
+        return Flux.defer(() -> Flux.fromIterable(asOf == null
+                        ? userService.getAllUsers()
+                        : userService.getAllUsers(asOf)))
+                .subscribeOn(Schedulers.boundedElastic())
+                .publishOn(Schedulers.parallel())
+                .map(userDtoConverter::convertToDto);
+    }
+
+    @GetMapping(params = "ids")
+    public Mono<Map<String, List<?>>> getUsersByIds(
+            @RequestParam List<Long> ids,
+            @RequestAttribute(name = AsOfInterceptor.AS_OF_ATTRIBUTE, required = false) Long asOf) {
+        return findUsersByIds(ids, asOf);
+    }
+
+    @PostMapping("/_mget")
+    public Mono<Map<String, List<?>>> multiGetUsers(
+            @RequestBody @Valid IdsDto idsDto,
+            @RequestAttribute(name = AsOfInterceptor.AS_OF_ATTRIBUTE, required = false) Long asOf) {
+        return findUsersByIds(idsDto.getIds(), asOf);
+    }
+
+    private Mono<Map<String, List<?>>> findUsersByIds(List<Long> ids, Long asOf) {
+        return Mono.fromSupplier(() -> {
+            multiGetWriter.checkSize(ids);
+            Map<Long, User> found = asOf == null ? userService.findUsersByIds(ids) : userService.findUsersByIds(ids, asOf);
+            return multiGetWriter.toDocument(found, ids, userDtoConverter::convertToDto);
+        }).subscribeOn(Schedulers.boundedElastic())
+                .publishOn(Schedulers.parallel());
+    }
+
+    @GetMapping("/{id}")
+    public Mono<UserDto> getUser(@PathVariable long id,
+                                 @RequestAttribute(name = AsOfInterceptor.AS_OF_ATTRIBUTE, required = false) Long asOf) {
+        return Mono.fromSupplier(() -> userDtoConverter.convertToDto(
+                        asOf == null ? userService.getUserById(id) : userService.getUserById(id, asOf)))
+                .subscribeOn(Schedulers.boundedElastic())
+                .publishOn(Schedulers.parallel());
+    }
+
+    @PostMapping
+    public Mono<ResponseEntity<UserDto>> createUser(
+            @RequestHeader(value = IdempotencyCache.IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
+            @RequestBody @JsonView(Views.Create.class) @Valid UserDto userDto) {
+        return Mono.fromSupplier(() -> idempotencyCache.execute("POST /users", idempotencyKey, userDto, () -> {
+                    User newUser = userService.createUser(userDtoConverter.convertToUser(userDto));
+                    return ResponseEntity
+                            .status(HttpStatus.CREATED)
+                            .header(MutationLog.SEQUENCE_HEADER, String.valueOf(mutationLog.getAppliedSequence()))
+                            .body(userDtoConverter.convertToDto(newUser));
+                }))
+                .subscribeOn(Schedulers.boundedElastic())
+                .publishOn(Schedulers.parallel());
+    }
+
+    @DeleteMapping("/{id}")
+    public Mono<ResponseEntity<Void>> deleteUser(@PathVariable long id) {
+        return Mono.fromRunnable(() -> userService.deleteUser(id))
+                .subscribeOn(Schedulers.boundedElastic())
+                .publishOn(Schedulers.parallel())
+                .then(Mono.fromSupplier(() -> ResponseEntity.status(HttpStatus.OK)
+                        .header(MutationLog.SEQUENCE_HEADER, String.valueOf(mutationLog.getAppliedSequence()))
+                        .<Void>build()));
+    }
+
+    @PutMapping("/{id}")
+    public Mono<ResponseEntity<UserDto>> updateUser(@PathVariable long id,
+                                                    @RequestBody @Validated({Default.class, Views.Update.class}) UserDto userDto) {
+        return Mono.fromSupplier(() -> userService.updateUser(id, userDtoConverter.convertToUser(userDto)))
+                .subscribeOn(Schedulers.boundedElastic())
+                .publishOn(Schedulers.parallel())
+                .map(updatedUser -> ResponseEntity
+                        .status(HttpStatus.OK)
+                        .header(MutationLog.SEQUENCE_HEADER, String.valueOf(mutationLog.getAppliedSequence()))
+                        .body(userDtoConverter.convertToDto(updatedUser)));
+    }
+}
@@ -0,0 +1,25 @@
+package ru.spring.mvc.controller;
+
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import ru.spring.mvc.replication.MutationLog;
+import ru.spring.mvc.replication.ReplicationBatch;
+
+@RestController
+@RequestMapping("/replication")
+public class ReplicationController {
+
+    private final MutationLog mutationLog;
+
+    public ReplicationController(MutationLog mutationLog) {
+        this.mutationLog = mutationLog;
+    }
+
+    @GetMapping("/log")
+    public ReplicationBatch getLog(@RequestParam(defaultValue = "0") long after,
+                                   @RequestParam(defaultValue = "1000") int limit) {
+        return mutationLog.readAfter(after, limit);
+    }
+}
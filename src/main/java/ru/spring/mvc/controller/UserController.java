@@ -1,62 +1,126 @@
 package ru.spring.mvc.controller;
 
+import com.fasterxml.jackson.annotation.JsonView;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
+import jakarta.validation.groups.Default;
+import org.springframework.context.annotation.Profile;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.WebDataBinder;
 import org.springframework.web.bind.annotation.*;
+import ru.spring.mvc.dto.IdsDto;
 import ru.spring.mvc.dto.UserDto;
+import ru.spring.mvc.dto.Views;
+import ru.spring.mvc.idempotency.IdempotencyCache;
 import ru.spring.mvc.model.User;
+import ru.spring.mvc.mvcc.AsOfInterceptor;
+import ru.spring.mvc.replication.MutationLog;
 import ru.spring.mvc.service.UserService;
+import ru.spring.mvc.util.BulkExecutor;
+import ru.spring.mvc.util.FailFastValidation;
+import ru.spring.mvc.util.MultiGetWriter;
 import ru.spring.mvc.util.UserDtoConverter;
 
+import java.io.IOException;
 import java.util.List;
+import java.util.Map;
 
 @RestController
+@Profile("!reactive")
 @RequestMapping("/users")
 public class UserController {
 
     private final UserService userService;
     private final UserDtoConverter userDtoConverter;
+    private final MutationLog mutationLog;
+    private final IdempotencyCache idempotencyCache;
+    private final BulkExecutor bulkExecutor;
+    private final MultiGetWriter multiGetWriter;
+    private final FailFastValidation failFastValidation;
 
-    public UserController(UserService userService, UserDtoConverter userDtoConverter) {
+    public UserController(UserService userService,
+                          UserDtoConverter userDtoConverter,
+                          MutationLog mutationLog,
+                          IdempotencyCache idempotencyCache,
+                          BulkExecutor bulkExecutor,
+                          MultiGetWriter multiGetWriter,
+                          FailFastValidation failFastValidation) {
         this.userService = userService;
         this.userDtoConverter = userDtoConverter;
+        this.mutationLog = mutationLog;
+        this.idempotencyCache = idempotencyCache;
+        this.bulkExecutor = bulkExecutor;
+        this.multiGetWriter = multiGetWriter;
+        this.failFastValidation = failFastValidation;
+    }
+
+    @InitBinder("userDto")
+    public void validateUserDtoFailFast(WebDataBinder binder) {
+        binder.setValidator(failFastValidation.getValidator());
     }
 
     @GetMapping
-    public List<UserDto> getUsers() {
-        return userService
-                .getAllUsers()
-                .stream()
-                .map(userDtoConverter::convertToDto)
-                .toList();
+    public List<UserDto> getUsers(@RequestAttribute(name = AsOfInterceptor.AS_OF_ATTRIBUTE, required = false) Long asOf) {
+        List<User> users = asOf == null ? userService.getAllUsers() : userService.getAllUsers(asOf);
+        return bulkExecutor.map(users, userDtoConverter::convertToDto);
+    }
+
+    @GetMapping(params = "ids")
+    public void getUsersByIds(@RequestParam List<Long> ids,
+                              @RequestAttribute(name = AsOfInterceptor.AS_OF_ATTRIBUTE, required = false) Long asOf,
+                              HttpServletResponse response) throws IOException {
+        multiGetWriter.checkSize(ids);
+        Map<Long, User> found = asOf == null ? userService.findUsersByIds(ids) : userService.findUsersByIds(ids, asOf);
+        multiGetWriter.write(response, found, ids, userDtoConverter::convertToDto);
+    }
+
+    @PostMapping("/_mget")
+    public void multiGetUsers(@RequestBody @Valid IdsDto idsDto,
+                              @RequestAttribute(name = AsOfInterceptor.AS_OF_ATTRIBUTE, required = false) Long asOf,
+                              HttpServletResponse response) throws IOException {
+        List<Long> ids = idsDto.getIds();
+        multiGetWriter.checkSize(ids);
+        Map<Long, User> found = asOf == null ? userService.findUsersByIds(ids) : userService.findUsersByIds(ids, asOf);
+        multiGetWriter.write(response, found, ids, userDtoConverter::convertToDto);
     }
 
     @GetMapping("/{id}")
-    public UserDto getUser(@PathVariable long id) {
-        return userDtoConverter
-                .convertToDto(userService.getUserById(id));
+    public UserDto getUser(@PathVariable long id,
+                           @RequestAttribute(name = AsOfInterceptor.AS_OF_ATTRIBUTE, required = false) Long asOf) {
+        User user = asOf == null ? userService.getUserById(id) : userService.getUserById(id, asOf);
+        return userDtoConverter.convertToDto(user);
     }
 
     @PostMapping()
-    public ResponseEntity<UserDto> createUser(@RequestBody @Valid UserDto userDto) {
-        User newUser = userService.createUser(userDtoConverter.convertToUser(userDto));
-        return ResponseEntity
-                .status(HttpStatus.CREATED)
-                .body(userDtoConverter.convertToDto(newUser));
+    public ResponseEntity<UserDto> createUser(
+            @RequestHeader(value = IdempotencyCache.IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
+            @RequestBody @JsonView(Views.Create.class) @Valid UserDto userDto) {
+        return idempotencyCache.execute("POST /users", idempotencyKey, userDto, () -> {
+            User newUser = userService.createUser(userDtoConverter.convertToUser(userDto));
+            return ResponseEntity
+                    .status(HttpStatus.CREATED)
+                    .header(MutationLog.SEQUENCE_HEADER, String.valueOf(mutationLog.getAppliedSequence()))
+                    .body(userDtoConverter.convertToDto(newUser));
+        });
     }
 
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteUser(@PathVariable long id) {
         userService.deleteUser(id);
-        return ResponseEntity.status(HttpStatus.OK).build();
+        return ResponseEntity.status(HttpStatus.OK)
+                .header(MutationLog.SEQUENCE_HEADER, String.valueOf(mutationLog.getAppliedSequence()))
+                .build();
     }
 
     @PutMapping("/{id}")
-    public ResponseEntity<UserDto> updateUser(@PathVariable long id, @RequestBody @Valid UserDto userDto) {
+    public ResponseEntity<UserDto> updateUser(@PathVariable long id,
+                                              @RequestBody @Validated({Default.class, Views.Update.class}) UserDto userDto) {
         User updatedUser = userService.updateUser(id, userDtoConverter.convertToUser(userDto));
         return ResponseEntity
                 .status(HttpStatus.OK)
+                .header(MutationLog.SEQUENCE_HEADER, String.valueOf(mutationLog.getAppliedSequence()))
                 .body(userDtoConverter.convertToDto(updatedUser));
     }
 }
@@ -0,0 +1,26 @@
+package ru.spring.mvc.dto;
+
+import jakarta.validation.constraints.NotNull;
+
+import java.util.List;
+
+public class IdsDto {
+
+    @NotNull
+    private List<@NotNull Long> ids;
+
+    public IdsDto() {
+    }
+
+    public IdsDto(List<Long> ids) {
+        this.ids = ids;
+    }
+
+    public List<Long> getIds() {
+        return ids;
+    }
+
+    public void setIds(List<Long> ids) {
+        this.ids = ids;
+    }
+}
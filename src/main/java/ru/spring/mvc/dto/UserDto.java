@@ -1,5 +1,6 @@
 package ru.spring.mvc.dto;
 
+import com.fasterxml.jackson.annotation.JsonView;
 import jakarta.validation.constraints.*;
 import org.hibernate.validator.constraints.Range;
 
@@ -8,20 +9,27 @@ import java.util.List;
 
 public class UserDto {
 
+    @JsonView(Views.Create.class)
     private Long id;
 
+    @JsonView(Views.Create.class)
     @NotBlank
     @Size(max = 50)
     private String name;
 
+    @JsonView(Views.Create.class)
     @Email
     private String email;
 
+    @JsonView(Views.Create.class)
     @NotNull
     @Range(min = 1, max = 100)
     private Integer age;
 
-    @NotNull
+    /**
+     * Only read on update: {@code UserService.createUser} starts every user without pets.
+     */
+    @NotNull(groups = Views.Update.class)
     private List<PetDto> petsDto;
 
     public UserDto() {
@@ -67,6 +75,7 @@ public class UserDto {
         this.age = age;
     }
 
+    @JsonView(Views.Update.class)
     public List<PetDto> getPets() {
         return petsDto;
     }
@@ -0,0 +1,23 @@
+package ru.spring.mvc.dto;
+
+/**
+ * Jackson views for request bodies. Properties outside the active view are skipped
+ * by the parser without being materialised.
+ */
+public final class Views {
+
+    /**
+     * Fields read when an entity is created.
+     */
+    public interface Create {
+    }
+
+    /**
+     * Fields read when an entity is replaced; includes everything in {@link Create}.
+     */
+    public interface Update extends Create {
+    }
+
+    private Views() {
+    }
+}
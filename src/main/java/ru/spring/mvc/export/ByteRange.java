@@ -0,0 +1,50 @@
+package ru.spring.mvc.export;
+
+/**
+ * Single byte range of a {@code Range: bytes=...} header, both ends inclusive.
+ */
+public record ByteRange(long start, long end) {
+
+    public long length() {
+        return end - start + 1;
+    }
+
+    /**
+     * @return the requested range, or {@code null} to send the whole file, which is also the answer
+     *         to malformed or multi-range headers
+     * @throws IllegalStateException if the range lies outside the file
+     */
+    public static ByteRange parse(String header, long size) {
+        if (header == null || !header.startsWith("bytes=") || header.indexOf(',') >= 0) {
+            return null;
+        }
+        String spec = header.substring("bytes=".length()).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0) {
+            return null;
+        }
+        try {
+            String first = spec.substring(0, dash).trim();
+            String last = spec.substring(dash + 1).trim();
+            long start;
+            long end;
+            if (first.isEmpty()) {
+                long suffixLength = Long.parseLong(last);
+                start = Math.max(0, size - suffixLength);
+                end = size - 1;
+                if (suffixLength == 0) {
+                    throw new IllegalStateException("Empty suffix range");
+                }
+            } else {
+                start = Long.parseLong(first);
+                end = last.isEmpty() ? size - 1 : Math.min(Long.parseLong(last), size - 1);
+            }
+            if (start >= size || start > end) {
+                throw new IllegalStateException("Range " + spec + " is outside of " + size + " bytes");
+            }
+            return new ByteRange(start, end);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
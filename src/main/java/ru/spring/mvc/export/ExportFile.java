@@ -0,0 +1,13 @@
+package ru.spring.mvc.export;
+
+import java.nio.file.Path;
+
+/**
+ * A finished export: an exact snapshot of the store at mutation {@code sequence}.
+ */
+public record ExportFile(Path path, long sequence, long size, long createdMillis) {
+
+    public String getVersion() {
+        return String.valueOf(sequence);
+    }
+}
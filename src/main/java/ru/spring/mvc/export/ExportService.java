@@ -0,0 +1,132 @@
+package ru.spring.mvc.export;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.spring.mvc.model.User;
+import ru.spring.mvc.mvcc.VersionManager;
+import ru.spring.mvc.service.UserService;
+import ru.spring.mvc.util.UserDtoConverter;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes every {@code export.interval-ms} a gzipped NDJSON dump of all users with their pets, one user per line,
+ * to {@code export.directory}. Downloads are served from the latest finished file, so their cost does not
+ * depend on how many partners fetch it. Files are written under a temporary name and moved into place;
+ * the previous {@code export.keep - 1} files are kept for downloads still reading them.
+ * <p>
+ * The users are read as of the latest applied sequence, pinned with the {@link VersionManager} while they are
+ * copied, so a file is an exact snapshot at that sequence however many writes land during the export.
+ */
+@Component
+@ConditionalOnProperty(name = "export.enabled", havingValue = "true", matchIfMissing = true)
+public class ExportService {
+
+    private static final Logger log = LoggerFactory.getLogger(ExportService.class);
+
+    private static final String PREFIX = "export-";
+    private static final String SUFFIX = ".ndjson.gz";
+
+    private final UserService userService;
+    private final UserDtoConverter userDtoConverter;
+    private final VersionManager versionManager;
+    private final ObjectMapper objectMapper;
+    private final Path directory;
+    private final int keep;
+    private final Timer writeTimer;
+
+    private volatile ExportFile latest;
+
+    public ExportService(UserService userService,
+                         UserDtoConverter userDtoConverter,
+                         VersionManager versionManager,
+                         ObjectMapper objectMapper,
+                         MeterRegistry meterRegistry,
+                         @Value("${export.directory:data/export}") String directory,
+                         @Value("${export.keep:2}") int keep) {
+        this.userService = userService;
+        this.userDtoConverter = userDtoConverter;
+        this.versionManager = versionManager;
+        this.objectMapper = objectMapper;
+        this.directory = Path.of(directory);
+        this.keep = keep;
+        this.writeTimer = meterRegistry.timer("export.write");
+        Gauge.builder("export.file.bytes", this, service -> service.latest == null ? 0 : service.latest.size())
+                .register(meterRegistry);
+    }
+
+    /**
+     * @return the latest finished export, or {@code null} before the first one
+     */
+    public ExportFile getLatest() {
+        return latest;
+    }
+
+    @Scheduled(fixedDelayString = "${export.interval-ms:3600000}")
+    public synchronized void export() throws IOException {
+        long start = System.nanoTime();
+        Files.createDirectories(directory);
+        long asOf = versionManager.pin(null);
+        List<User> users;
+        try {
+            // the users and their pet lists are copies, so writes during the export do not change them
+            users = userService.getAllUsers(asOf);
+        } finally {
+            versionManager.unpin(asOf);
+        }
+        Path tempFile = Files.createTempFile(directory, PREFIX, ".tmp");
+        try {
+            OutputStream out = new GZIPOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile), 1 << 16));
+            try (SequenceWriter writer = objectMapper.writer().withRootValueSeparator("\n").writeValues(out)) {
+                for (User user : users) {
+                    writer.write(userDtoConverter.convertToDto(user));
+                }
+            }
+            Path file = directory.resolve(PREFIX + asOf + "-" + System.currentTimeMillis() + SUFFIX);
+            Files.move(tempFile, file, StandardCopyOption.ATOMIC_MOVE);
+            latest = new ExportFile(file, asOf, Files.size(file), Files.getLastModifiedTime(file).toMillis());
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+        deleteOldFiles();
+        writeTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        log.info("Exported version {} to {} ({} bytes)", latest.getVersion(), latest.path(), latest.size());
+    }
+
+    private void deleteOldFiles() throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, PREFIX + "*" + SUFFIX)) {
+            List<Path> exports = new ArrayList<>();
+            files.forEach(exports::add);
+            exports.sort((first, second) -> Long.compare(lastModified(second), lastModified(first)));
+            for (Path file : exports.subList(Math.min(keep, exports.size()), exports.size())) {
+                if (!file.equals(latest.path())) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+
+    private static long lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package ru.spring.mvc.grpc;
+
+import io.grpc.Status;
+import io.grpc.stub.ServerCallStreamObserver;
+import io.grpc.stub.StreamObserver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ru.spring.mvc.replication.ReplicaException;
+import ru.spring.mvc.slo.WriteShedException;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+/**
+ * Completes gRPC calls, mapping exceptions to status codes the way {@code ErrorHandler} maps them to HTTP ones.
+ */
+final class GrpcCalls {
+
+    private static final Logger log = LoggerFactory.getLogger(GrpcCalls.class);
+
+    private GrpcCalls() {
+    }
+
+    static <T> void unary(StreamObserver<T> responseObserver, Callable<T> call) {
+        T response;
+        try {
+            response = call.call();
+        } catch (Exception e) {
+            responseObserver.onError(toStatus(e).asRuntimeException());
+            return;
+        }
+        responseObserver.onNext(response);
+        responseObserver.onCompleted();
+    }
+
+    /**
+     * Streams the elements as fast as the client reads them, so a slow client does not make the server
+     * buffer the whole listing in messages.
+     *
+     * @param onDone runs once the stream completed, failed or was cancelled
+     */
+    static <E, T> void stream(StreamObserver<T> responseObserver, Iterator<E> elements,
+                              Function<E, T> mapper, Runnable onDone) {
+        ServerCallStreamObserver<T> call = (ServerCallStreamObserver<T>) responseObserver;
+        // the cancel and ready handlers may run on different threads; whichever ends the stream first runs onDone
+        AtomicBoolean done = new AtomicBoolean();
+        call.setOnCancelHandler(() -> {
+            if (done.compareAndSet(false, true)) {
+                onDone.run();
+            }
+        });
+        call.setOnReadyHandler(() -> {
+            if (done.get()) {
+                return;
+            }
+            try {
+                while (call.isReady() && elements.hasNext()) {
+                    call.onNext(mapper.apply(elements.next()));
+                }
+                if (!elements.hasNext() && done.compareAndSet(false, true)) {
+                    call.onCompleted();
+                    onDone.run();
+                }
+            } catch (RuntimeException e) {
+                if (done.compareAndSet(false, true)) {
+                    call.onError(toStatus(e).asRuntimeException());
+                    onDone.run();
+                }
+            }
+        });
+    }
+
+    static Status toStatus(Exception e) {
+        if (e instanceof NoSuchElementException) {
+            return Status.NOT_FOUND.withDescription(e.getMessage());
+        }
+        if (e instanceof IllegalArgumentException) {
+            return Status.INVALID_ARGUMENT.withDescription(e.getMessage());
+        }
+        if (e instanceof WriteShedException) {
+            return Status.UNAVAILABLE.withDescription(e.getMessage());
+        }
+        if (e instanceof ReplicaException) {
+            return Status.FAILED_PRECONDITION.withDescription(e.getMessage());
+        }
+        if (e instanceof InterruptedException) {
+            Thread.currentThread().interrupt();
+            return Status.CANCELLED.withDescription("Server is shutting down");
+        }
+        log.error(e.getMessage());
+        return Status.INTERNAL.withDescription(e.getMessage());
+    }
+}
@@ -0,0 +1,90 @@
+package ru.spring.mvc.grpc;
+
+import io.grpc.BindableService;
+import io.grpc.Grpc;
+import io.grpc.InsecureServerCredentials;
+import io.grpc.Server;
+import io.grpc.ServerBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serves the {@code UserApi} and {@code PetApi} gRPC services from {@code petstore.proto} on {@code grpc.port},
+ * next to the REST endpoints and over the same services. Started with the web server and stopped
+ * with it, letting calls in flight finish for up to {@code grpc.shutdown-timeout-ms}.
+ */
+@Component
+@ConditionalOnProperty(name = "grpc.enabled", havingValue = "true")
+public class GrpcServer implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(GrpcServer.class);
+
+    private final List<BindableService> services;
+    private final int port;
+    private final int maxInboundMessageBytes;
+    private final long shutdownTimeoutMillis;
+
+    private volatile Server server;
+
+    public GrpcServer(List<BindableService> services,
+                      @Value("${grpc.port:9090}") int port,
+                      @Value("${grpc.max-inbound-message-bytes:4194304}") int maxInboundMessageBytes,
+                      @Value("${grpc.shutdown-timeout-ms:10000}") long shutdownTimeoutMillis) {
+        this.services = services;
+        this.port = port;
+        this.maxInboundMessageBytes = maxInboundMessageBytes;
+        this.shutdownTimeoutMillis = shutdownTimeoutMillis;
+    }
+
+    @Override
+    public void start() {
+        ServerBuilder<?> builder = Grpc.newServerBuilderForPort(port, InsecureServerCredentials.create())
+                .maxInboundMessageSize(maxInboundMessageBytes);
+        services.forEach(builder::addService);
+        try {
+            server = builder.build().start();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to start gRPC server on port " + port, e);
+        }
+        log.info("gRPC server started on port {} with {} services", server.getPort(), services.size());
+    }
+
+    @Override
+    public void stop() {
+        Server running = server;
+        if (running == null) {
+            return;
+        }
+        running.shutdown();
+        try {
+            if (!running.awaitTermination(shutdownTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                running.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            running.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        server = null;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return server != null;
+    }
+
+    /**
+     * @return the bound port, which differs from {@code grpc.port} when that is 0
+     */
+    public int getPort() {
+        return server.getPort();
+    }
+}
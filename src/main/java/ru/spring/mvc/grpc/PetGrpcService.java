@@ -0,0 +1,92 @@
+package ru.spring.mvc.grpc;
+
+import com.google.protobuf.Empty;
+import io.grpc.stub.StreamObserver;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.spring.mvc.grpc.proto.IdRequest;
+import ru.spring.mvc.grpc.proto.ListRequest;
+import ru.spring.mvc.grpc.proto.PetApiGrpc;
+import ru.spring.mvc.grpc.proto.PetMessage;
+import ru.spring.mvc.model.Pet;
+import ru.spring.mvc.mvcc.VersionManager;
+import ru.spring.mvc.service.PetService;
+
+import java.util.List;
+
+@Component
+@ConditionalOnProperty(name = "grpc.enabled", havingValue = "true")
+public class PetGrpcService extends PetApiGrpc.PetApiImplBase {
+
+    private final PetService petService;
+    private final ProtoConverter protoConverter;
+    private final VersionManager versionManager;
+    private final WriteAdmission writeAdmission;
+
+    public PetGrpcService(PetService petService,
+                          ProtoConverter protoConverter,
+                          VersionManager versionManager,
+                          WriteAdmission writeAdmission) {
+        this.petService = petService;
+        this.protoConverter = protoConverter;
+        this.versionManager = versionManager;
+        this.writeAdmission = writeAdmission;
+    }
+
+    @Override
+    public void getPet(IdRequest request, StreamObserver<PetMessage> responseObserver) {
+        GrpcCalls.unary(responseObserver, () -> protoConverter.toMessage(petService.getPetById(request.getId())));
+    }
+
+    /**
+     * Streams the pets, as {@code GET /pets} does; with {@code asOf} set, as they were at that sequence,
+     * which stays pinned until the stream ends.
+     */
+    @Override
+    public void listPets(ListRequest request, StreamObserver<PetMessage> responseObserver) {
+        Long asOf = null;
+        List<Pet> pets;
+        try {
+            if (request.hasAsOf()) {
+                asOf = versionManager.pin(request.getAsOf());
+            }
+            pets = asOf == null ? petService.getAllPets() : petService.getAllPets(asOf);
+        } catch (RuntimeException e) {
+            if (asOf != null) {
+                versionManager.unpin(asOf);
+            }
+            responseObserver.onError(GrpcCalls.toStatus(e).asRuntimeException());
+            return;
+        }
+        Long pinned = asOf;
+        GrpcCalls.stream(responseObserver, pets.iterator(), protoConverter::toMessage, () -> {
+            if (pinned != null) {
+                versionManager.unpin(pinned);
+            }
+        });
+    }
+
+    @Override
+    public void createPet(PetMessage request, StreamObserver<PetMessage> responseObserver) {
+        GrpcCalls.unary(responseObserver, () -> {
+            Pet pet = protoConverter.toPet(request);
+            return protoConverter.toMessage(writeAdmission.execute(() -> petService.createPet(pet)));
+        });
+    }
+
+    @Override
+    public void updatePet(PetMessage request, StreamObserver<PetMessage> responseObserver) {
+        GrpcCalls.unary(responseObserver, () -> {
+            Pet pet = protoConverter.toPet(request);
+            return protoConverter.toMessage(writeAdmission.execute(() -> petService.updatePet(request.getId(), pet)));
+        });
+    }
+
+    @Override
+    public void deletePet(IdRequest request, StreamObserver<Empty> responseObserver) {
+        GrpcCalls.unary(responseObserver, () -> writeAdmission.execute(() -> {
+            petService.deletePet(request.getId());
+            return Empty.getDefaultInstance();
+        }));
+    }
+}
@@ -0,0 +1,91 @@
+package ru.spring.mvc.grpc;
+
+import org.springframework.stereotype.Component;
+import ru.spring.mvc.grpc.proto.PetMessage;
+import ru.spring.mvc.grpc.proto.UserMessage;
+import ru.spring.mvc.model.Pet;
+import ru.spring.mvc.model.User;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Converts between the models and the protobuf messages, checking the same constraints as the annotations
+ * on {@code UserDto} and {@code PetDto} with plain code instead of Bean Validation.
+ */
+@Component
+public class ProtoConverter {
+
+    private static final int MAX_NAME_LENGTH = 50;
+    private static final Pattern EMAIL = Pattern.compile("[^@\\s]+@[^@\\s]+");
+
+    public UserMessage toMessage(User user) {
+        UserMessage.Builder message = UserMessage.newBuilder().setId(user.getId());
+        if (user.getName() != null) {
+            message.setName(user.getName());
+        }
+        if (user.getEmail() != null) {
+            message.setEmail(user.getEmail());
+        }
+        if (user.getAge() != null) {
+            message.setAge(user.getAge());
+        }
+        for (Pet pet : user.getPets()) {
+            message.addPets(toMessage(pet));
+        }
+        return message.build();
+    }
+
+    public PetMessage toMessage(Pet pet) {
+        PetMessage.Builder message = PetMessage.newBuilder()
+                .setId(pet.getId())
+                .setUserId(pet.getUserId());
+        if (pet.getName() != null) {
+            message.setName(pet.getName());
+        }
+        return message.build();
+    }
+
+    /**
+     * @param withPets whether the pet list is read, as for an update
+     * @throws IllegalArgumentException if the message breaks a {@code UserDto} constraint
+     */
+    public User toUser(UserMessage message, boolean withPets) {
+        checkName(message.hasName(), message.getName());
+        if (message.hasEmail() && !message.getEmail().isEmpty() && !EMAIL.matcher(message.getEmail()).matches()) {
+            throw new IllegalArgumentException("email must be a well-formed email address");
+        }
+        if (!message.hasAge() || message.getAge() < 1 || message.getAge() > 100) {
+            throw new IllegalArgumentException("age must be between 1 and 100");
+        }
+        List<Pet> pets = new ArrayList<>();
+        if (withPets) {
+            for (PetMessage pet : message.getPetsList()) {
+                pets.add(toPet(pet));
+            }
+        }
+        return new User(message.getId() != 0 ? message.getId() : null,
+                message.getName(),
+                message.hasEmail() ? message.getEmail() : null,
+                message.getAge(),
+                pets);
+    }
+
+    /**
+     * @throws IllegalArgumentException if the message breaks a {@code PetDto} constraint
+     */
+    public Pet toPet(PetMessage message) {
+        checkName(message.hasName(), message.getName());
+        return new Pet(message.getId() != 0 ? message.getId() : null, message.getName(), message.getUserId());
+    }
+
+    private static void checkName(boolean present, String name) {
+        if (!present || name.isBlank()) {
+            throw new IllegalArgumentException("name must not be blank");
+        }
+        if (name.length() > MAX_NAME_LENGTH) {
+            throw new IllegalArgumentException("name size must be between 0 and " + MAX_NAME_LENGTH);
+        }
+    }
+}
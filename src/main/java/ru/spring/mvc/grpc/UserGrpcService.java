@@ -0,0 +1,92 @@
+package ru.spring.mvc.grpc;
+
+import com.google.protobuf.Empty;
+import io.grpc.stub.StreamObserver;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.spring.mvc.grpc.proto.IdRequest;
+import ru.spring.mvc.grpc.proto.ListRequest;
+import ru.spring.mvc.grpc.proto.UserApiGrpc;
+import ru.spring.mvc.grpc.proto.UserMessage;
+import ru.spring.mvc.model.User;
+import ru.spring.mvc.mvcc.VersionManager;
+import ru.spring.mvc.service.UserService;
+
+import java.util.List;
+
+@Component
+@ConditionalOnProperty(name = "grpc.enabled", havingValue = "true")
+public class UserGrpcService extends UserApiGrpc.UserApiImplBase {
+
+    private final UserService userService;
+    private final ProtoConverter protoConverter;
+    private final VersionManager versionManager;
+    private final WriteAdmission writeAdmission;
+
+    public UserGrpcService(UserService userService,
+                           ProtoConverter protoConverter,
+                           VersionManager versionManager,
+                           WriteAdmission writeAdmission) {
+        this.userService = userService;
+        this.protoConverter = protoConverter;
+        this.versionManager = versionManager;
+        this.writeAdmission = writeAdmission;
+    }
+
+    @Override
+    public void getUser(IdRequest request, StreamObserver<UserMessage> responseObserver) {
+        GrpcCalls.unary(responseObserver, () -> protoConverter.toMessage(userService.getUserById(request.getId())));
+    }
+
+    /**
+     * Streams the users, as {@code GET /users} does; with {@code asOf} set, as they were at that sequence,
+     * which stays pinned until the stream ends.
+     */
+    @Override
+    public void listUsers(ListRequest request, StreamObserver<UserMessage> responseObserver) {
+        Long asOf = null;
+        List<User> users;
+        try {
+            if (request.hasAsOf()) {
+                asOf = versionManager.pin(request.getAsOf());
+            }
+            users = asOf == null ? userService.getAllUsers() : userService.getAllUsers(asOf);
+        } catch (RuntimeException e) {
+            if (asOf != null) {
+                versionManager.unpin(asOf);
+            }
+            responseObserver.onError(GrpcCalls.toStatus(e).asRuntimeException());
+            return;
+        }
+        Long pinned = asOf;
+        GrpcCalls.stream(responseObserver, users.iterator(), protoConverter::toMessage, () -> {
+            if (pinned != null) {
+                versionManager.unpin(pinned);
+            }
+        });
+    }
+
+    @Override
+    public void createUser(UserMessage request, StreamObserver<UserMessage> responseObserver) {
+        GrpcCalls.unary(responseObserver, () -> {
+            User user = protoConverter.toUser(request, false);
+            return protoConverter.toMessage(writeAdmission.execute(() -> userService.createUser(user)));
+        });
+    }
+
+    @Override
+    public void updateUser(UserMessage request, StreamObserver<UserMessage> responseObserver) {
+        GrpcCalls.unary(responseObserver, () -> {
+            User user = protoConverter.toUser(request, true);
+            return protoConverter.toMessage(writeAdmission.execute(() -> userService.updateUser(request.getId(), user)));
+        });
+    }
+
+    @Override
+    public void deleteUser(IdRequest request, StreamObserver<Empty> responseObserver) {
+        GrpcCalls.unary(responseObserver, () -> writeAdmission.execute(() -> {
+            userService.deleteUser(request.getId());
+            return Empty.getDefaultInstance();
+        }));
+    }
+}
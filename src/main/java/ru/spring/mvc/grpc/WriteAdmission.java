@@ -0,0 +1,48 @@
+package ru.spring.mvc.grpc;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import ru.spring.mvc.replication.ReplicaException;
+import ru.spring.mvc.slo.AdaptiveWriteLimiter;
+import ru.spring.mvc.writebehind.WriteBehindStore;
+
+import java.util.function.Supplier;
+
+/**
+ * The admission checks the HTTP interceptors apply to writes, for writes arriving over gRPC:
+ * followers are read-only, the write-behind queue must have room and the adaptive write limit applies.
+ */
+@Component
+public class WriteAdmission {
+
+    private final AdaptiveWriteLimiter adaptiveWriteLimiter;
+    private final ObjectProvider<WriteBehindStore> writeBehindStore;
+    private final boolean follower;
+
+    public WriteAdmission(AdaptiveWriteLimiter adaptiveWriteLimiter,
+                          ObjectProvider<WriteBehindStore> writeBehindStore,
+                          @Value("${replication.role:primary}") String role) {
+        this.adaptiveWriteLimiter = adaptiveWriteLimiter;
+        this.writeBehindStore = writeBehindStore;
+        this.follower = "follower".equalsIgnoreCase(role);
+    }
+
+    public <T> T execute(Supplier<T> write) throws InterruptedException {
+        if (follower) {
+            throw new ReplicaException(HttpStatus.METHOD_NOT_ALLOWED,
+                    "Follower instance is read-only, send writes to the primary");
+        }
+        WriteBehindStore store = writeBehindStore.getIfAvailable();
+        if (store != null) {
+            store.awaitCapacity();
+        }
+        adaptiveWriteLimiter.acquire();
+        try {
+            return write.get();
+        } finally {
+            adaptiveWriteLimiter.release();
+        }
+    }
+}
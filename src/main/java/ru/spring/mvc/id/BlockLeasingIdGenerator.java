@@ -0,0 +1,49 @@
+package ru.spring.mvc.id;
+
+import java.io.IOException;
+
+/**
+ * Hands out ids from a block leased by the calling thread, so threads only meet at the shared
+ * {@link IdBlockSource} once every {@code blockSize} ids. Ids are unique but not ordered across threads,
+ * and the unused rest of a thread's block is skipped when the process stops.
+ */
+public class BlockLeasingIdGenerator implements IdGenerator {
+
+    private final IdBlockSource source;
+    private final int blockSize;
+    private final ThreadLocal<Block> blocks;
+
+    public BlockLeasingIdGenerator(IdBlockSource source, int blockSize) {
+        this.source = source;
+        this.blockSize = blockSize;
+        this.blocks = ThreadLocal.withInitial(Block::new);
+    }
+
+    @Override
+    public long nextId() {
+        Block block = blocks.get();
+        if (block.next == block.end) {
+            block.next = source.lease(blockSize);
+            block.end = block.next + blockSize;
+        }
+        return block.next++;
+    }
+
+    /**
+     * Only affects blocks leased afterwards.
+     */
+    @Override
+    public void advancePast(long id) {
+        source.advancePast(id);
+    }
+
+    @Override
+    public void close() throws IOException {
+        source.close();
+    }
+
+    private static final class Block {
+        private long next;
+        private long end;
+    }
+}
@@ -0,0 +1,72 @@
+package ru.spring.mvc.id;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Leases ranges from a high-water mark kept in a file. The mark is read, advanced and forced to disk
+ * under an exclusive file lock, so instances sharing the file never receive the same range
+ * and a restarted instance continues above every id leased before.
+ */
+public class FileIdBlockSource implements IdBlockSource {
+
+    private final FileChannel channel;
+
+    public FileIdBlockSource(Path file) throws IOException {
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    @Override
+    public synchronized long lease(int size) {
+        try (FileLock ignored = channel.lock()) {
+            long highWaterMark = readHighWaterMark();
+            writeHighWaterMark(highWaterMark + size);
+            return highWaterMark + 1;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public synchronized void advancePast(long id) {
+        try (FileLock ignored = channel.lock()) {
+            if (readHighWaterMark() < id) {
+                writeHighWaterMark(id);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        channel.close();
+    }
+
+    private long readHighWaterMark() throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, buffer.position()) < 0) {
+                return 0;
+            }
+        }
+        return buffer.getLong(0);
+    }
+
+    private void writeHighWaterMark(long highWaterMark) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES).putLong(0, highWaterMark);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, buffer.position());
+        }
+        channel.force(false);
+    }
+}
@@ -0,0 +1,21 @@
+package ru.spring.mvc.id;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Shared allocator that hands out contiguous ranges of ids to {@link BlockLeasingIdGenerator}.
+ */
+public interface IdBlockSource extends Closeable {
+
+    /**
+     * @return the first id of a range of {@code size} ids that no other caller will receive
+     */
+    long lease(int size);
+
+    void advancePast(long id);
+
+    @Override
+    default void close() throws IOException {
+    }
+}
@@ -0,0 +1,25 @@
+package ru.spring.mvc.id;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Source of entity ids. Implementations are thread-safe.
+ */
+public interface IdGenerator extends Closeable {
+
+    long nextId();
+
+    /**
+     * Makes sure ids handed out from now on are greater than an id that was assigned elsewhere,
+     * such as one loaded from a snapshot or shipped by the primary.
+     */
+    void advancePast(long id);
+
+    /**
+     * Releases what the generator holds open, such as the file of a {@link FileIdBlockSource}.
+     */
+    @Override
+    default void close() throws IOException {
+    }
+}
@@ -0,0 +1,21 @@
+package ru.spring.mvc.id;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Dense ids from a per-JVM counter. Only safe for a single instance; the counter starts over on restart.
+ */
+public class SequenceIdGenerator implements IdGenerator {
+
+    private final AtomicLong counter = new AtomicLong();
+
+    @Override
+    public long nextId() {
+        return counter.incrementAndGet();
+    }
+
+    @Override
+    public void advancePast(long id) {
+        counter.accumulateAndGet(id, Math::max);
+    }
+}
@@ -0,0 +1,92 @@
+package ru.spring.mvc.id;
+
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongSupplier;
+
+/**
+ * Snowflake-style ids: 41 bits of milliseconds since {@link #EPOCH}, 10 bits of node id and 12 bits of sequence.
+ * Instances with distinct {@code id.node-id} never collide. A block is a run of sequence numbers within
+ * one millisecond. When a millisecond is used up, or the clock steps back, the next block waits for a
+ * millisecond of the clock that no block was taken from yet. Ids therefore never carry a time ahead of the
+ * clock, and an instance restarted with the same node id cannot hand out an id issued before the restart.
+ */
+public class SnowflakeIdBlockSource implements IdBlockSource {
+
+    public static final long EPOCH = Instant.parse("2025-01-01T00:00:00Z").toEpochMilli();
+
+    static final int NODE_BITS = 10;
+    static final int SEQUENCE_BITS = 12;
+    static final int MAX_NODE_ID = (1 << NODE_BITS) - 1;
+    static final int SEQUENCE_LIMIT = 1 << SEQUENCE_BITS;
+
+    /**
+     * One bit more than {@link #SEQUENCE_BITS}, so the state can say that a millisecond is used up.
+     */
+    private static final int STATE_SEQUENCE_BITS = SEQUENCE_BITS + 1;
+
+    private final long nodeId;
+    private final LongSupplier clock;
+    /**
+     * Millisecond of the last block shifted left by {@link #STATE_SEQUENCE_BITS}, plus the next free sequence.
+     */
+    private final AtomicLong state;
+
+    public SnowflakeIdBlockSource(int nodeId) {
+        this(nodeId, System::currentTimeMillis);
+    }
+
+    SnowflakeIdBlockSource(int nodeId, LongSupplier clock) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("Node id must be between 0 and " + MAX_NODE_ID);
+        }
+        this.nodeId = nodeId;
+        this.clock = clock;
+        this.state = new AtomicLong();
+    }
+
+    @Override
+    public long lease(int size) {
+        if (size > SEQUENCE_LIMIT) {
+            throw new IllegalArgumentException("Block size must not exceed " + SEQUENCE_LIMIT);
+        }
+        while (true) {
+            long current = state.get();
+            long lastMillis = current >>> STATE_SEQUENCE_BITS;
+            long nextSequence = current & ((1L << STATE_SEQUENCE_BITS) - 1);
+            long millis = clock.getAsLong() - EPOCH;
+            long sequence;
+            if (millis > lastMillis) {
+                sequence = 0;
+            } else if (millis == lastMillis && nextSequence + size <= SEQUENCE_LIMIT) {
+                sequence = nextSequence;
+            } else {
+                awaitMillisAfter(lastMillis);
+                continue;
+            }
+            if (state.compareAndSet(current, (millis << STATE_SEQUENCE_BITS) | (sequence + size))) {
+                return (millis << (NODE_BITS + SEQUENCE_BITS)) | (nodeId << SEQUENCE_BITS) | sequence;
+            }
+        }
+    }
+
+    private void awaitMillisAfter(long lastMillis) {
+        long behind = lastMillis - (clock.getAsLong() - EPOCH);
+        if (behind > 0) {
+            // the clock stepped back
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(behind));
+        } else {
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * Ids loaded from elsewhere are either older Snowflake ids or small sequence ids, both below
+     * the ids of the current clock, so there is nothing to do.
+     */
+    @Override
+    public void advancePast(long id) {
+    }
+}
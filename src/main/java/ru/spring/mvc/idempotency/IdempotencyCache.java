@@ -0,0 +1,182 @@
+package ru.spring.mvc.idempotency;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+
+/**
+ * Remembers responses of non-idempotent requests by their {@code Idempotency-Key}.
+ * The first request with a key runs the operation, concurrent duplicates wait for its result
+ * and later retries get the cached response until the TTL expires. A key is bound to a hash of the
+ * request it was first used with; reusing it for a different request is rejected.
+ */
+@Component
+public class IdempotencyCache {
+
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+
+    private final ObjectMapper objectMapper;
+    private final Map<String, Entry> entries;
+    private final Queue<String> insertionOrder;
+    private final long ttlMillis;
+    private final int maxEntries;
+    private final long waitTimeoutMillis;
+    private final Counter replays;
+
+    public IdempotencyCache(ObjectMapper objectMapper,
+                            @Value("${idempotency.ttl-ms:86400000}") long ttlMillis,
+                            @Value("${idempotency.max-entries:100000}") int maxEntries,
+                            @Value("${idempotency.wait-timeout-ms:30000}") long waitTimeoutMillis,
+                            MeterRegistry meterRegistry) {
+        this.objectMapper = objectMapper;
+        this.entries = new ConcurrentHashMap<>();
+        this.insertionOrder = new ConcurrentLinkedQueue<>();
+        this.ttlMillis = ttlMillis;
+        this.maxEntries = maxEntries;
+        this.waitTimeoutMillis = waitTimeoutMillis;
+        this.replays = meterRegistry.counter("idempotency.replays");
+        Gauge.builder("idempotency.entries", entries, Map::size).register(meterRegistry);
+    }
+
+    /**
+     * @param scope   method and route pattern of the request, as in {@code POST /users}
+     * @param request the request body the key is bound to
+     * @throws IdempotencyKeyReusedException if the key was used with a different request body
+     */
+    public <T> ResponseEntity<T> execute(String scope, String key, Object request, Supplier<ResponseEntity<T>> operation) {
+        if (key == null) {
+            return operation.get();
+        }
+        String cacheKey = scope + ':' + key;
+        long now = System.currentTimeMillis();
+        Entry ownEntry = new Entry(now + ttlMillis, fingerprint(request));
+
+        Entry existing = entries.putIfAbsent(cacheKey, ownEntry);
+        while (existing != null && existing.isExpired(now)) {
+            existing = entries.replace(cacheKey, existing, ownEntry) ? null : entries.putIfAbsent(cacheKey, ownEntry);
+        }
+        if (existing != null) {
+            if (!MessageDigest.isEqual(existing.fingerprint, ownEntry.fingerprint)) {
+                throw new IdempotencyKeyReusedException(key);
+            }
+            replays.increment();
+            return awaitResponse(existing);
+        }
+
+        insertionOrder.add(cacheKey);
+        evictOverflow();
+        try {
+            ResponseEntity<T> response = operation.get();
+            ownEntry.response.complete(response);
+            return response;
+        } catch (RuntimeException e) {
+            entries.remove(cacheKey, ownEntry);
+            ownEntry.response.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Whether the request carries a key whose response is already cached, so serving it changes nothing
+     * and it does not need to be admitted as a write.
+     */
+    public boolean isReplay(HttpServletRequest request) {
+        String key = request.getHeader(IDEMPOTENCY_KEY_HEADER);
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        if (key == null || pattern == null) {
+            return false;
+        }
+        Entry entry = entries.get(request.getMethod() + ' ' + pattern + ':' + key);
+        return entry != null
+                && entry.response.isDone()
+                && !entry.response.isCompletedExceptionally()
+                && !entry.isExpired(System.currentTimeMillis());
+    }
+
+    private byte[] fingerprint(Object request) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(objectMapper.writeValueAsBytes(request));
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> ResponseEntity<T> awaitResponse(Entry entry) {
+        try {
+            return (ResponseEntity<T>) entry.response.get(waitTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("Request with the same idempotency key is still in progress");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Drops the oldest completed entries. Entries still in progress are put back at the end of the queue,
+     * so they are evicted by a later call once done instead of being forgotten until they expire.
+     */
+    private void evictOverflow() {
+        int remaining = insertionOrder.size();
+        while (entries.size() > maxEntries && remaining-- > 0) {
+            String oldest = insertionOrder.poll();
+            if (oldest == null) {
+                return;
+            }
+            Entry entry = entries.get(oldest);
+            if (entry == null) {
+                continue;
+            }
+            if (entry.response.isDone()) {
+                entries.remove(oldest, entry);
+            } else {
+                insertionOrder.add(oldest);
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${idempotency.cleanup-interval-ms:60000}")
+    public void removeExpired() {
+        long now = System.currentTimeMillis();
+        entries.entrySet().removeIf(entry -> entry.getValue().isExpired(now));
+        insertionOrder.removeIf(key -> !entries.containsKey(key));
+    }
+
+    private static final class Entry {
+
+        private final long expiresAtMillis;
+        private final byte[] fingerprint;
+        private final CompletableFuture<ResponseEntity<?>> response;
+
+        private Entry(long expiresAtMillis, byte[] fingerprint) {
+            this.expiresAtMillis = expiresAtMillis;
+            this.fingerprint = fingerprint;
+            this.response = new CompletableFuture<>();
+        }
+
+        private boolean isExpired(long now) {
+            return response.isDone() && now > expiresAtMillis;
+        }
+    }
+}
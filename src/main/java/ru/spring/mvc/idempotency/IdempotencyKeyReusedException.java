@@ -0,0 +1,11 @@
+package ru.spring.mvc.idempotency;
+
+/**
+ * An {@code Idempotency-Key} was sent again with a request body different from the one it was first used with.
+ */
+public class IdempotencyKeyReusedException extends RuntimeException {
+
+    public IdempotencyKeyReusedException(String key) {
+        super("Idempotency key " + key + " was already used with a different request");
+    }
+}
@@ -0,0 +1,65 @@
+package ru.spring.mvc.mvcc;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+import ru.spring.mvc.util.Requests;
+
+import java.util.Set;
+
+/**
+ * Pins the sequence a read is served at: the one given in {@code ?asOf=}, or with {@code mvcc.implicit-pin=true}
+ * the latest applied one for collection reads. The pinned sequence is passed to the controller in
+ * {@link #AS_OF_ATTRIBUTE} and returned in {@link #AS_OF_HEADER}, so a client can continue reading at it.
+ * Reads without a pin are served from the current state only, without visiting any version chain.
+ * Multi-get POSTs are reads too and take {@code ?asOf=} like GETs.
+ */
+@Component
+public class AsOfInterceptor implements HandlerInterceptor {
+
+    public static final String AS_OF_PARAMETER = "asOf";
+    public static final String AS_OF_ATTRIBUTE = "ru.spring.mvc.mvcc.AsOfInterceptor.asOf";
+    public static final String AS_OF_HEADER = "X-As-Of-Sequence";
+
+    private static final Set<String> COLLECTION_PATTERNS = Set.of("/users", "/pets");
+
+    private final VersionManager versionManager;
+    private final boolean implicitPin;
+
+    public AsOfInterceptor(VersionManager versionManager,
+                           @Value("${mvcc.implicit-pin:false}") boolean implicitPin) {
+        this.versionManager = versionManager;
+        this.implicitPin = implicitPin;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!Requests.isRead(request)) {
+            return true;
+        }
+        String asOf = request.getParameter(AS_OF_PARAMETER);
+        Long sequence = null;
+        if (asOf != null) {
+            sequence = versionManager.pin(Long.parseLong(asOf));
+        } else if (implicitPin
+                && COLLECTION_PATTERNS.contains(request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE))) {
+            sequence = versionManager.pin(null);
+        }
+        if (sequence != null) {
+            request.setAttribute(AS_OF_ATTRIBUTE, sequence);
+            response.setHeader(AS_OF_HEADER, String.valueOf(sequence));
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        Object sequence = request.getAttribute(AS_OF_ATTRIBUTE);
+        if (sequence != null) {
+            versionManager.unpin((Long) sequence);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package ru.spring.mvc.mvcc;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+import ru.spring.mvc.util.Requests;
+import ru.spring.mvc.util.error.ReactiveErrorWriter;
+
+import java.util.Set;
+
+/**
+ * WebFlux counterpart of {@link AsOfInterceptor}, active with the {@code reactive} profile. The pinned sequence
+ * is passed to the controller in the {@link AsOfInterceptor#AS_OF_ATTRIBUTE} exchange attribute and released
+ * once the response, including a streamed body, has been written. Runs after {@code ReplicaWebFilter}, so a read
+ * that waits for its minimum sequence pins only once that sequence is applied.
+ */
+@Component
+@Profile("reactive")
+@Order(1)
+public class AsOfWebFilter implements WebFilter {
+
+    private static final Set<String> COLLECTION_PATHS = Set.of("/users", "/pets");
+
+    private final VersionManager versionManager;
+    private final ReactiveErrorWriter errorWriter;
+    private final boolean implicitPin;
+
+    public AsOfWebFilter(VersionManager versionManager,
+                         ReactiveErrorWriter errorWriter,
+                         @Value("${mvcc.implicit-pin:false}") boolean implicitPin) {
+        this.versionManager = versionManager;
+        this.errorWriter = errorWriter;
+        this.implicitPin = implicitPin;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        String path = exchange.getRequest().getPath().value();
+        if (!(path.startsWith("/users") || path.startsWith("/pets")) || !Requests.isRead(exchange.getRequest())) {
+            return chain.filter(exchange);
+        }
+        String asOf = exchange.getRequest().getQueryParams().getFirst(AsOfInterceptor.AS_OF_PARAMETER);
+        long sequence;
+        try {
+            if (asOf != null) {
+                sequence = versionManager.pin(Long.parseLong(asOf));
+            } else if (implicitPin && COLLECTION_PATHS.contains(path)) {
+                sequence = versionManager.pin(null);
+            } else {
+                return chain.filter(exchange);
+            }
+        } catch (IllegalArgumentException e) {
+            return errorWriter.write(exchange.getResponse(), HttpStatus.BAD_REQUEST,
+                    "Wrong request parameters", e.getMessage());
+        }
+        exchange.getAttributes().put(AsOfInterceptor.AS_OF_ATTRIBUTE, sequence);
+        exchange.getResponse().getHeaders().set(AsOfInterceptor.AS_OF_HEADER, String.valueOf(sequence));
+        return chain.filter(exchange)
+                .doFinally(signal -> versionManager.unpin(sequence));
+    }
+}
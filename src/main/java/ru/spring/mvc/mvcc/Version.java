@@ -0,0 +1,36 @@
+package ru.spring.mvc.mvcc;
+
+/**
+ * One value of an entity in a {@link VersionedStore} chain, newest first. A {@code null} value marks a deletion.
+ * The version is invisible to readers until {@link #commit(long)} stamps it with its mutation sequence.
+ */
+public final class Version<V> {
+
+    /**
+     * Sequence of the value an entity had before its first tracked change.
+     */
+    static final long BASE = 0L;
+    static final long PENDING = Long.MAX_VALUE;
+
+    final V value;
+    volatile long sequence;
+    volatile Version<V> previous;
+
+    Version(V value, long sequence, Version<V> previous) {
+        this.value = value;
+        this.sequence = sequence;
+        this.previous = previous;
+    }
+
+    public void commit(long sequence) {
+        this.sequence = sequence;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    boolean isVisibleAt(long asOf) {
+        return sequence <= asOf;
+    }
+}
@@ -0,0 +1,117 @@
+package ru.spring.mvc.mvcc;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.spring.mvc.replication.MutationLog;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Tracks the sequences pinned by readers and collects the versions none of them can see any more.
+ * Versions are stamped with the {@link MutationLog} sequence of their mutation. The horizon is the oldest
+ * sequence that can still be pinned: the oldest pinned one, or the applied sequence when nothing is pinned.
+ */
+@Component
+public class VersionManager {
+
+    private final MutationLog mutationLog;
+    private final MeterRegistry meterRegistry;
+    private final List<VersionedStore<?>> stores;
+    private final ConcurrentSkipListMap<Long, Integer> pins;
+    private final Timer collectTimer;
+    private final Counter collectedVersions;
+
+    private volatile long horizon;
+
+    public VersionManager(MutationLog mutationLog, MeterRegistry meterRegistry) {
+        this.mutationLog = mutationLog;
+        this.meterRegistry = meterRegistry;
+        this.stores = new CopyOnWriteArrayList<>();
+        this.pins = new ConcurrentSkipListMap<>();
+        this.collectTimer = meterRegistry.timer("mvcc.collect");
+        this.collectedVersions = meterRegistry.counter("mvcc.collected.versions");
+        Gauge.builder("mvcc.pins", pins, Map::size).register(meterRegistry);
+        Gauge.builder("mvcc.horizon.lag", this, manager -> manager.mutationLog.getAppliedSequence() - manager.horizon)
+                .register(meterRegistry);
+    }
+
+    public <V> VersionedStore<V> createStore(String name) {
+        return createStore(name, null);
+    }
+
+    /**
+     * @param groupOf key to index the chains by, see {@link VersionedStore#forEachVersionedInGroup}
+     */
+    public <V> VersionedStore<V> createStore(String name, Function<V, Long> groupOf) {
+        VersionedStore<V> store = new VersionedStore<>(name, groupOf);
+        stores.add(store);
+        Gauge.builder("mvcc.versions", store, VersionedStore::getVersionCount)
+                .tag("store", name)
+                .register(meterRegistry);
+        return store;
+    }
+
+    /**
+     * Pins a sequence so that versions visible at it are kept until {@link #unpin(long)}.
+     *
+     * @param asOf sequence to read at, or {@code null} for the latest applied one
+     * @return the pinned sequence
+     * @throws IllegalArgumentException if the sequence is not applied yet or its versions were already collected
+     */
+    public long pin(Long asOf) {
+        long applied = mutationLog.getAppliedSequence();
+        long sequence = asOf != null ? asOf : applied;
+        if (sequence > applied) {
+            throw new IllegalArgumentException("Sequence " + sequence + " is not applied yet, latest is " + applied);
+        }
+        pins.merge(sequence, 1, Integer::sum);
+        // the collector publishes the horizon before reading the pins, so either it sees this pin or we see its horizon
+        long currentHorizon = horizon;
+        if (sequence < currentHorizon) {
+            unpin(sequence);
+            throw new IllegalArgumentException(
+                    "Versions before sequence " + currentHorizon + " are no longer retained");
+        }
+        return sequence;
+    }
+
+    public void unpin(long sequence) {
+        pins.computeIfPresent(sequence, (key, count) -> count == 1 ? null : count - 1);
+    }
+
+    public long getHorizon() {
+        return horizon;
+    }
+
+    /**
+     * @return number of versions dropped
+     */
+    @Scheduled(fixedDelayString = "${mvcc.collect-interval-ms:1000}")
+    public long collect() {
+        long start = System.nanoTime();
+        long candidate = Math.min(mutationLog.getAppliedSequence(), oldestPin());
+        horizon = candidate;
+        long bound = Math.min(candidate, oldestPin());
+        long dropped = 0;
+        for (VersionedStore<?> store : stores) {
+            dropped += store.collect(bound);
+        }
+        collectedVersions.increment(dropped);
+        collectTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return dropped;
+    }
+
+    private long oldestPin() {
+        Map.Entry<Long, Integer> oldest = pins.firstEntry();
+        return oldest == null ? Long.MAX_VALUE : oldest.getKey();
+    }
+}
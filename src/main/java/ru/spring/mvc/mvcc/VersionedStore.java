@@ -0,0 +1,207 @@
+package ru.spring.mvc.mvcc;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Version chains of the entities that changed since the {@link VersionManager} horizon. The current value of
+ * every entity stays in its service; a chain is only started when an entity changes, so an entity without
+ * a chain had its current value at every sequence a reader may pin.
+ * <p>
+ * A writer {@link #stage stages} the new value before changing the service's map and commits the version with
+ * the mutation sequence, both inside {@code MutationLog#atomically}; readers walk the chain without locking.
+ * The collector serializes with writers of the same entity on its map bin only.
+ * <p>
+ * A store may group its entities by a key of their values, such as the owner of a pet. The ids of the chains
+ * holding a value of a group are then indexed by that key, so the chains of one group can be walked without
+ * visiting the others. The index may briefly list a chain that no longer holds a value of the group; readers
+ * check the resolved value.
+ */
+public class VersionedStore<V> {
+
+    private final String name;
+    private final Map<Long, Version<V>> heads;
+    private final Function<V, Long> groupOf;
+    private final Map<Long, Set<Long>> idsByGroup;
+    private final AtomicLong versionCount;
+
+    VersionedStore(String name, Function<V, Long> groupOf) {
+        this.name = name;
+        this.heads = new ConcurrentHashMap<>();
+        this.groupOf = groupOf;
+        this.idsByGroup = new ConcurrentHashMap<>();
+        this.versionCount = new AtomicLong();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Adds a pending version to be committed once the mutation has its sequence.
+     *
+     * @param previous the current value before the change, or {@code null} if the entity does not exist yet
+     * @param value    the new value, or {@code null} for a deletion
+     */
+    public Version<V> stage(long id, V previous, V value) {
+        return heads.compute(id, (key, head) -> {
+            Version<V> tail = head;
+            if (tail == null && previous != null) {
+                tail = new Version<>(previous, Version.BASE, null);
+                versionCount.incrementAndGet();
+                group(key, previous);
+            }
+            versionCount.incrementAndGet();
+            group(key, value);
+            return new Version<>(value, Version.PENDING, tail);
+        });
+    }
+
+    /**
+     * Adds a version whose sequence is already known, as for mutations replicated from the primary.
+     */
+    public void put(long id, V previous, V value, long sequence) {
+        stage(id, previous, value).commit(sequence);
+    }
+
+    /**
+     * Drops a staged version whose mutation did not happen. Readers never saw it, as it was not committed.
+     */
+    public void abort(long id, Version<V> version) {
+        heads.computeIfPresent(id, (key, head) -> {
+            if (head == version) {
+                versionCount.decrementAndGet();
+                return version.previous;
+            }
+            for (Version<V> newer = head; newer != null; newer = newer.previous) {
+                if (newer.previous == version) {
+                    newer.previous = version.previous;
+                    versionCount.decrementAndGet();
+                    break;
+                }
+            }
+            return head;
+        });
+    }
+
+    /**
+     * @param current the current value, read <em>before</em> this call so that a change racing with the read
+     *                has already staged its version
+     * @return the value at {@code asOf}, or {@code null} if the entity did not exist then
+     */
+    public V resolve(long id, long asOf, V current) {
+        Version<V> version = heads.get(id);
+        if (version == null) {
+            return current;
+        }
+        return valueAt(version, asOf);
+    }
+
+    public boolean isVersioned(long id) {
+        return heads.containsKey(id);
+    }
+
+    /**
+     * Calls the action with the value at {@code asOf} of every entity that has a chain, {@code null} if
+     * the entity did not exist then.
+     */
+    public void forEachVersioned(long asOf, BiConsumer<Long, V> action) {
+        heads.forEach((id, head) -> action.accept(id, valueAt(head, asOf)));
+    }
+
+    /**
+     * Like {@link #forEachVersioned(long, BiConsumer)}, but only for the chains that hold a value of the group.
+     * The value passed to the action may belong to another group at {@code asOf}.
+     */
+    public void forEachVersionedInGroup(long group, long asOf, BiConsumer<Long, V> action) {
+        for (Long id : idsByGroup.getOrDefault(group, Set.of())) {
+            Version<V> head = heads.get(id);
+            if (head != null) {
+                action.accept(id, valueAt(head, asOf));
+            }
+        }
+    }
+
+    public long getVersionCount() {
+        return versionCount.get();
+    }
+
+    /**
+     * Drops the versions no reader at or after {@code bound} can see: everything older than the newest
+     * version visible at {@code bound}, and the whole chain once that version is the current one.
+     *
+     * @return number of versions dropped
+     */
+    long collect(long bound) {
+        long[] dropped = new long[1];
+        for (Long id : heads.keySet()) {
+            heads.computeIfPresent(id, (key, head) -> {
+                Version<V> visible = head;
+                while (visible != null && !visible.isVisibleAt(bound)) {
+                    visible = visible.previous;
+                }
+                if (visible == null) {
+                    return head;
+                }
+                Version<V> older = visible.previous;
+                visible.previous = null;
+                Version<V> kept = visible == head ? null : head;
+                for (Version<V> version = older; version != null; version = version.previous) {
+                    dropped[0]++;
+                    ungroup(key, version.value, kept);
+                }
+                if (kept == null) {
+                    dropped[0]++;
+                    ungroup(key, head.value, null);
+                    return null;
+                }
+                return head;
+            });
+        }
+        versionCount.addAndGet(-dropped[0]);
+        return dropped[0];
+    }
+
+    private void group(long id, V value) {
+        if (groupOf == null || value == null) {
+            return;
+        }
+        idsByGroup.compute(groupOf.apply(value), (group, ids) -> {
+            Set<Long> groupIds = ids != null ? ids : ConcurrentHashMap.newKeySet();
+            groupIds.add(id);
+            return groupIds;
+        });
+    }
+
+    /**
+     * Drops the chain from the group of a dropped value unless a version still kept in the chain is in it too.
+     */
+    private void ungroup(long id, V value, Version<V> kept) {
+        if (groupOf == null || value == null) {
+            return;
+        }
+        Long group = groupOf.apply(value);
+        for (Version<V> version = kept; version != null; version = version.previous) {
+            if (version.value != null && group.equals(groupOf.apply(version.value))) {
+                return;
+            }
+        }
+        idsByGroup.computeIfPresent(group, (key, ids) -> {
+            ids.remove(id);
+            return ids.isEmpty() ? null : ids;
+        });
+    }
+
+    private static <V> V valueAt(Version<V> head, long asOf) {
+        for (Version<V> version = head; version != null; version = version.previous) {
+            if (version.isVisibleAt(asOf)) {
+                return version.value;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,32 @@
+package ru.spring.mvc.profiling;
+
+import jdk.jfr.*;
+
+/**
+ * Duration of a conversion between a model and its DTO in {@code UserDtoConverter} or {@code PetDtoConverter}.
+ */
+@Name("ru.spring.mvc.Conversion")
+@Label("DTO Conversion")
+@Category({"Pet Store", "Conversion"})
+@Enabled(false)
+@StackTrace(false)
+public class ConversionEvent extends Event {
+
+    @Label("Conversion")
+    String conversion;
+
+    @Label("Entity Id")
+    long entityId;
+
+    @Label("Pet Count")
+    int petCount;
+
+    public void complete(String conversion, Long entityId, int petCount) {
+        if (shouldCommit()) {
+            this.conversion = conversion;
+            this.entityId = entityId != null ? entityId : 0;
+            this.petCount = petCount;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package ru.spring.mvc.profiling;
+
+import jdk.jfr.*;
+
+/**
+ * Duration of writing a response body with Jackson, including the write to the socket buffer.
+ */
+@Name("ru.spring.mvc.JsonSerialization")
+@Label("JSON Serialization")
+@Category({"Pet Store", "Serialization"})
+@Enabled(false)
+@StackTrace(false)
+public class JsonSerializationEvent extends Event {
+
+    @Label("Value Type")
+    String valueType;
+
+    @Label("Elements")
+    @Description("Size of a serialized collection, 1 for a single value")
+    int elements;
+
+    public void complete(Object value) {
+        if (shouldCommit()) {
+            this.valueType = value != null ? value.getClass().getSimpleName() : "null";
+            this.elements = value instanceof java.util.Collection<?> collection ? collection.size() : 1;
+            commit();
+        }
+    }
+}
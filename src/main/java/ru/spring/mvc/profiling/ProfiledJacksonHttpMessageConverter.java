@@ -0,0 +1,30 @@
+package ru.spring.mvc.profiling;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+
+/**
+ * The JSON converter Spring MVC would register anyway, with writes wrapped in a {@link JsonSerializationEvent}.
+ */
+@Component
+public class ProfiledJacksonHttpMessageConverter extends MappingJackson2HttpMessageConverter {
+
+    public ProfiledJacksonHttpMessageConverter(ObjectMapper objectMapper) {
+        super(objectMapper);
+    }
+
+    @Override
+    protected void writeInternal(Object object, Type type, HttpOutputMessage outputMessage)
+            throws IOException, HttpMessageNotWritableException {
+        JsonSerializationEvent event = new JsonSerializationEvent();
+        event.begin();
+        super.writeInternal(object, type, outputMessage);
+        event.complete(object);
+    }
+}
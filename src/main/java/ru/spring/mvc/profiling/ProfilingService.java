@@ -0,0 +1,117 @@
+package ru.spring.mvc.profiling;
+
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+
+/**
+ * Runs at most one on-demand JFR recording with the JDK's {@code profile} settings plus the application events.
+ * A recording is bounded by {@code profiling.max-duration-seconds} and {@code profiling.max-size-bytes}:
+ * it stops by itself once the duration elapses and keeps only the newest data once the size is reached,
+ * so a forgotten recording cannot fill the disk.
+ */
+@Component
+public class ProfilingService {
+
+    private static final Logger log = LoggerFactory.getLogger(ProfilingService.class);
+
+    private final Duration maxDuration;
+    private final long maxSizeBytes;
+    private final Duration eventThreshold;
+
+    private Recording recording;
+
+    public ProfilingService(@Value("${profiling.max-duration-seconds:300}") long maxDurationSeconds,
+                            @Value("${profiling.max-size-bytes:104857600}") long maxSizeBytes,
+                            @Value("${profiling.event-threshold-ms:0}") long eventThresholdMillis) {
+        this.maxDuration = Duration.ofSeconds(maxDurationSeconds);
+        this.maxSizeBytes = maxSizeBytes;
+        this.eventThreshold = Duration.ofMillis(eventThresholdMillis);
+    }
+
+    @PreDestroy
+    public synchronized void shutdown() {
+        if (recording != null) {
+            recording.close();
+            recording = null;
+        }
+    }
+
+    /**
+     * Starts a recording for the given duration, capped at the configured maximum.
+     *
+     * @return {@code false} if a recording is already running
+     */
+    public synchronized boolean start(Duration duration) {
+        if (recording != null && recording.getState() == RecordingState.RUNNING) {
+            return false;
+        }
+        shutdown();
+        Recording newRecording;
+        try {
+            newRecording = new Recording(Configuration.getConfiguration("profile"));
+        } catch (IOException | ParseException e) {
+            throw new IllegalStateException("JFR profile settings are not available", e);
+        }
+        newRecording.setName("on-demand");
+        newRecording.setToDisk(true);
+        newRecording.setMaxSize(maxSizeBytes);
+        newRecording.setDuration(duration.isNegative() || duration.isZero() || duration.compareTo(maxDuration) > 0
+                ? maxDuration
+                : duration);
+        newRecording.enable(ServiceOperationEvent.class).withThreshold(eventThreshold);
+        newRecording.enable(ConversionEvent.class).withThreshold(eventThreshold);
+        newRecording.enable(JsonSerializationEvent.class).withThreshold(eventThreshold);
+        newRecording.start();
+        recording = newRecording;
+        log.info("Started JFR recording for {} s", newRecording.getDuration().toSeconds());
+        return true;
+    }
+
+    /**
+     * Stops the recording if it is still running and writes it to a temporary file, which the caller deletes.
+     *
+     * @return the recording file, or {@code null} if no recording was started
+     */
+    public synchronized Path stop() {
+        if (recording == null) {
+            return null;
+        }
+        try {
+            if (recording.getState() == RecordingState.RUNNING) {
+                recording.stop();
+            }
+            Path file = Files.createTempFile("profile-", ".jfr");
+            recording.dump(file);
+            log.info("Stopped JFR recording, {} bytes", Files.size(file));
+            return file;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            shutdown();
+        }
+    }
+
+    public synchronized RecordingStatus getStatus() {
+        if (recording == null) {
+            return RecordingStatus.NONE;
+        }
+        return new RecordingStatus(
+                recording.getState().name(),
+                recording.getStartTime(),
+                recording.getDuration().toSeconds(),
+                recording.getSize());
+    }
+}
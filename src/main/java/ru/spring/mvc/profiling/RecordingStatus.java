@@ -0,0 +1,14 @@
+package ru.spring.mvc.profiling;
+
+import java.time.Instant;
+
+/**
+ * @param state            JFR recording state, {@code NONE} when no recording was started
+ * @param startTime        when the recording started, or {@code null}
+ * @param durationSeconds  length after which the recording stops by itself
+ * @param sizeBytes        bytes recorded so far
+ */
+public record RecordingStatus(String state, Instant startTime, long durationSeconds, long sizeBytes) {
+
+    static final RecordingStatus NONE = new RecordingStatus("NONE", null, 0, 0);
+}
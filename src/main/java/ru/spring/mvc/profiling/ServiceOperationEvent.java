@@ -0,0 +1,40 @@
+package ru.spring.mvc.profiling;
+
+import jdk.jfr.*;
+
+/**
+ * Duration of a {@code UserService} or {@code PetService} operation. Disabled unless a recording enables it,
+ * so the instrumented code only pays for {@link #begin()} and {@link #shouldCommit()}, which the JIT
+ * reduces to a flag check once the allocation is scalar-replaced.
+ */
+@Name("ru.spring.mvc.ServiceOperation")
+@Label("Service Operation")
+@Category({"Pet Store", "Service"})
+@Enabled(false)
+@StackTrace(false)
+public class ServiceOperationEvent extends Event {
+
+    public static final int UNKNOWN_PET_COUNT = -1;
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Entity Id")
+    long entityId;
+
+    @Label("Pet Count")
+    @Description("Size of the affected user's pet list after the operation, -1 if it was not looked up")
+    int petCount;
+
+    /**
+     * Ends the event and commits it if a recording wants it.
+     */
+    public void complete(String operation, long entityId, int petCount) {
+        if (shouldCommit()) {
+            this.operation = operation;
+            this.entityId = entityId;
+            this.petCount = petCount;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package ru.spring.mvc.replication;
+
+import ru.spring.mvc.model.Pet;
+import ru.spring.mvc.model.User;
+
+public record MutationEntry(
+        long sequence,
+        long timestampMillis,
+        MutationType type,
+        long id,
+        String name,
+        String email,
+        Integer age,
+        Long userId
+) {
+
+    static MutationEntry userUpsert(long sequence, User user) {
+        return new MutationEntry(sequence, System.currentTimeMillis(), MutationType.USER_UPSERT,
+                user.getId(), user.getName(), user.getEmail(), user.getAge(), null);
+    }
+
+    static MutationEntry petUpsert(long sequence, Pet pet) {
+        return new MutationEntry(sequence, System.currentTimeMillis(), MutationType.PET_UPSERT,
+                pet.getId(), pet.getName(), null, null, pet.getUserId());
+    }
+
+    static MutationEntry delete(long sequence, MutationType type, long id) {
+        return new MutationEntry(sequence, System.currentTimeMillis(), type,
+                id, null, null, null, null);
+    }
+}
@@ -0,0 +1,140 @@
+package ru.spring.mvc.replication;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.spring.mvc.model.Pet;
+import ru.spring.mvc.model.User;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Ordered log of mutations made by {@code UserService} and {@code PetService}.
+ * The primary appends to it, followers only advance the applied sequence.
+ * Entries are kept in a ring buffer, so only the last {@code capacity} of them can be read.
+ * Listeners see every appended entry in sequence order, on the appending thread and under the log's lock,
+ * so they must only hand the entry off.
+ * <p>
+ * Writers change their maps and append inside {@link #atomically}, so two writers of the same entity are
+ * applied in the order they are logged and followers replaying the log end up with the same state.
+ */
+@Component
+public class MutationLog {
+
+    public static final String SEQUENCE_HEADER = "X-Replication-Sequence";
+    public static final String MIN_SEQUENCE_HEADER = "X-Min-Sequence";
+
+    private final MutationEntry[] ring;
+    private final List<Consumer<MutationEntry>> listeners;
+    private long headSequence;
+    /**
+     * Written under the log's lock, read without it, so a read never waits for a write in progress.
+     */
+    private volatile long appliedSequence;
+
+    public MutationLog(@Value("${replication.log.capacity:100000}") int capacity,
+                       MeterRegistry meterRegistry) {
+        this.ring = new MutationEntry[capacity];
+        this.listeners = new CopyOnWriteArrayList<>();
+        this.headSequence = 0L;
+        this.appliedSequence = 0L;
+        Gauge.builder("replication.sequence.applied", this, MutationLog::getAppliedSequence)
+                .register(meterRegistry);
+    }
+
+    public void addListener(Consumer<MutationEntry> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Runs the action holding the log's lock. The lock is reentrant, so the action may append.
+     */
+    public synchronized <T> T atomically(Supplier<T> action) {
+        return action.get();
+    }
+
+    /**
+     * @param onSequenced receives the sequence of the entry before it counts as applied, so whatever it
+     *                    publishes is in place for a reader that waits for or pins that sequence
+     */
+    public synchronized long appendUserUpsert(User user, LongConsumer onSequenced) {
+        return append(MutationEntry.userUpsert(headSequence + 1, user), onSequenced);
+    }
+
+    public synchronized long appendPetUpsert(Pet pet, LongConsumer onSequenced) {
+        return append(MutationEntry.petUpsert(headSequence + 1, pet), onSequenced);
+    }
+
+    public synchronized long appendDelete(MutationType type, long id, LongConsumer onSequenced) {
+        return append(MutationEntry.delete(headSequence + 1, type, id), onSequenced);
+    }
+
+    private long append(MutationEntry entry, LongConsumer onSequenced) {
+        headSequence = entry.sequence();
+        ring[(int) (headSequence % ring.length)] = entry;
+        onSequenced.accept(headSequence);
+        for (Consumer<MutationEntry> listener : listeners) {
+            listener.accept(entry);
+        }
+        markApplied(headSequence);
+        return headSequence;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the entries after {@code after} were overwritten, or if {@code after}
+     *                                  is past the head, as for a follower of a primary that restarted with an empty log
+     */
+    public synchronized ReplicationBatch readAfter(long after, int limit) {
+        if (after < headSequence - ring.length) {
+            throw new IllegalArgumentException("Mutations after sequence " + after + " are no longer retained");
+        }
+        if (after > headSequence) {
+            throw new IllegalArgumentException("Sequence " + after + " is ahead of the log, which ends at " + headSequence);
+        }
+        long to = Math.min(headSequence, after + limit);
+        List<MutationEntry> entries = new ArrayList<>((int) Math.max(0, to - after));
+        for (long sequence = after + 1; sequence <= to; sequence++) {
+            entries.add(ring[(int) (sequence % ring.length)]);
+        }
+        return new ReplicationBatch(headSequence, entries);
+    }
+
+    public synchronized void markApplied(long sequence) {
+        if (sequence > appliedSequence) {
+            appliedSequence = sequence;
+            notifyAll();
+        }
+    }
+
+    /**
+     * Waits until the mutation with the given sequence is visible locally. Takes the log's lock only if it has to wait.
+     *
+     * @return {@code false} if the timeout elapsed first
+     */
+    public boolean awaitApplied(long sequence, long timeoutMillis) throws InterruptedException {
+        if (appliedSequence >= sequence) {
+            return true;
+        }
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        synchronized (this) {
+            while (appliedSequence < sequence) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    return false;
+                }
+                wait(remaining);
+            }
+        }
+        return true;
+    }
+
+    public long getAppliedSequence() {
+        return appliedSequence;
+    }
+}
@@ -0,0 +1,8 @@
+package ru.spring.mvc.replication;
+
+public enum MutationType {
+    USER_UPSERT,
+    USER_DELETE,
+    PET_UPSERT,
+    PET_DELETE
+}
@@ -0,0 +1,17 @@
+package ru.spring.mvc.replication;
+
+import org.springframework.http.HttpStatus;
+
+public class ReplicaException extends RuntimeException {
+
+    private final HttpStatus status;
+
+    public ReplicaException(HttpStatus status, String message) {
+        super(message);
+        this.status = status;
+    }
+
+    public HttpStatus getStatus() {
+        return status;
+    }
+}
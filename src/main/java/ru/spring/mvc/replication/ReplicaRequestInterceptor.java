@@ -0,0 +1,50 @@
+package ru.spring.mvc.replication;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+import ru.spring.mvc.util.Requests;
+
+/**
+ * Rejects writes on followers and implements read-your-writes: a read carrying
+ * {@link MutationLog#MIN_SEQUENCE_HEADER} waits until that sequence has been applied locally.
+ */
+@Component
+public class ReplicaRequestInterceptor implements HandlerInterceptor {
+
+    private final MutationLog mutationLog;
+    private final boolean follower;
+    private final long readYourWritesTimeoutMillis;
+
+    public ReplicaRequestInterceptor(MutationLog mutationLog,
+                                     @Value("${replication.role:primary}") String role,
+                                     @Value("${replication.read-your-writes-timeout-ms:500}") long readYourWritesTimeoutMillis) {
+        this.mutationLog = mutationLog;
+        this.follower = "follower".equalsIgnoreCase(role);
+        this.readYourWritesTimeoutMillis = readYourWritesTimeoutMillis;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler)
+            throws InterruptedException {
+        if (!Requests.isRead(request)) {
+            if (follower) {
+                throw new ReplicaException(HttpStatus.METHOD_NOT_ALLOWED,
+                        "Follower instance is read-only, send writes to the primary");
+            }
+            return true;
+        }
+
+        String minSequence = request.getHeader(MutationLog.MIN_SEQUENCE_HEADER);
+        if (minSequence != null
+                && !mutationLog.awaitApplied(Long.parseLong(minSequence), readYourWritesTimeoutMillis)) {
+            throw new ReplicaException(HttpStatus.SERVICE_UNAVAILABLE,
+                    "Replica has not yet applied sequence " + minSequence);
+        }
+        response.setHeader(MutationLog.SEQUENCE_HEADER, String.valueOf(mutationLog.getAppliedSequence()));
+        return true;
+    }
+}
@@ -0,0 +1,78 @@
+package ru.spring.mvc.replication;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import ru.spring.mvc.util.Requests;
+import ru.spring.mvc.util.error.ReactiveErrorWriter;
+
+/**
+ * WebFlux counterpart of {@link ReplicaRequestInterceptor}, active with the {@code reactive} profile:
+ * rejects writes on followers and lets a read carrying {@link MutationLog#MIN_SEQUENCE_HEADER} wait,
+ * off the event loop, until that sequence has been applied locally.
+ */
+@Component
+@Profile("reactive")
+@Order(0)
+public class ReplicaWebFilter implements WebFilter {
+
+    private final MutationLog mutationLog;
+    private final ReactiveErrorWriter errorWriter;
+    private final boolean follower;
+    private final long readYourWritesTimeoutMillis;
+
+    public ReplicaWebFilter(MutationLog mutationLog,
+                            ReactiveErrorWriter errorWriter,
+                            @Value("${replication.role:primary}") String role,
+                            @Value("${replication.read-your-writes-timeout-ms:500}") long readYourWritesTimeoutMillis) {
+        this.mutationLog = mutationLog;
+        this.errorWriter = errorWriter;
+        this.follower = "follower".equalsIgnoreCase(role);
+        this.readYourWritesTimeoutMillis = readYourWritesTimeoutMillis;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        String path = exchange.getRequest().getPath().value();
+        if (!path.startsWith("/users") && !path.startsWith("/pets")) {
+            return chain.filter(exchange);
+        }
+        if (!Requests.isRead(exchange.getRequest())) {
+            if (follower) {
+                return reject(exchange, HttpStatus.METHOD_NOT_ALLOWED,
+                        "Follower instance is read-only, send writes to the primary");
+            }
+            return chain.filter(exchange);
+        }
+
+        String minSequence = exchange.getRequest().getHeaders().getFirst(MutationLog.MIN_SEQUENCE_HEADER);
+        if (minSequence == null) {
+            return serveRead(exchange, chain);
+        }
+        long sequence = Long.parseLong(minSequence);
+        return Mono.fromCallable(() -> mutationLog.awaitApplied(sequence, readYourWritesTimeoutMillis))
+                .subscribeOn(Schedulers.boundedElastic())
+                .publishOn(Schedulers.parallel())
+                .flatMap(applied -> applied
+                        ? serveRead(exchange, chain)
+                        : reject(exchange, HttpStatus.SERVICE_UNAVAILABLE,
+                        "Replica has not yet applied sequence " + minSequence));
+    }
+
+    private Mono<Void> serveRead(ServerWebExchange exchange, WebFilterChain chain) {
+        exchange.getResponse().getHeaders()
+                .set(MutationLog.SEQUENCE_HEADER, String.valueOf(mutationLog.getAppliedSequence()));
+        return chain.filter(exchange);
+    }
+
+    private Mono<Void> reject(ServerWebExchange exchange, HttpStatus status, String message) {
+        return errorWriter.write(exchange.getResponse(), status, "Replica cannot serve the request", message);
+    }
+}
@@ -0,0 +1,9 @@
+package ru.spring.mvc.replication;
+
+import java.util.List;
+
+public record ReplicationBatch(
+        long headSequence,
+        List<MutationEntry> entries
+) {
+}
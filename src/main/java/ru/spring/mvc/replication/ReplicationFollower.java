@@ -0,0 +1,102 @@
+package ru.spring.mvc.replication;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClient;
+import ru.spring.mvc.model.Pet;
+import ru.spring.mvc.model.User;
+import ru.spring.mvc.service.PetService;
+import ru.spring.mvc.service.UserService;
+
+/**
+ * Pulls the mutation log from the primary and applies it to the local store.
+ * Active only when {@code replication.role=follower}.
+ */
+@Component
+@ConditionalOnProperty(name = "replication.role", havingValue = "follower")
+public class ReplicationFollower {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicationFollower.class);
+
+    private final UserService userService;
+    private final PetService petService;
+    private final MutationLog mutationLog;
+    private final RestClient restClient;
+    private final int batchSize;
+
+    private volatile long primaryHeadSequence;
+    private volatile long lastAppliedTimestampMillis;
+
+    public ReplicationFollower(UserService userService,
+                               PetService petService,
+                               MutationLog mutationLog,
+                               MeterRegistry meterRegistry,
+                               @Value("${replication.primary-url}") String primaryUrl,
+                               @Value("${replication.batch-size:1000}") int batchSize) {
+        this.userService = userService;
+        this.petService = petService;
+        this.mutationLog = mutationLog;
+        this.restClient = RestClient.builder().baseUrl(primaryUrl).build();
+        this.batchSize = batchSize;
+
+        Gauge.builder("replication.lag.entries", this, ReplicationFollower::getLagEntries)
+                .register(meterRegistry);
+        Gauge.builder("replication.lag.millis", this, ReplicationFollower::getLagMillis)
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${replication.poll-interval-ms:200}")
+    public void poll() {
+        ReplicationBatch batch;
+        do {
+            try {
+                batch = restClient.get()
+                        .uri("/replication/log?after={after}&limit={limit}",
+                                mutationLog.getAppliedSequence(), batchSize)
+                        .retrieve()
+                        .body(ReplicationBatch.class);
+            } catch (Exception e) {
+                log.warn("Cannot fetch mutation log from primary: {}", e.getMessage());
+                return;
+            }
+            primaryHeadSequence = batch.headSequence();
+            for (MutationEntry entry : batch.entries()) {
+                // under the same lock as writes on the primary, so readers copying a pet list see no partial change
+                mutationLog.atomically(() -> {
+                    apply(entry);
+                    lastAppliedTimestampMillis = entry.timestampMillis();
+                    mutationLog.markApplied(entry.sequence());
+                    return null;
+                });
+            }
+        } while (!batch.entries().isEmpty() && mutationLog.getAppliedSequence() < primaryHeadSequence);
+    }
+
+    private void apply(MutationEntry entry) {
+        switch (entry.type()) {
+            case USER_UPSERT -> userService.applyReplicatedUpsert(
+                    new User(entry.id(), entry.name(), entry.email(), entry.age(), null), entry.sequence());
+            case USER_DELETE -> userService.applyReplicatedDelete(entry.id(), entry.sequence());
+            case PET_UPSERT -> petService.applyReplicatedUpsert(
+                    new Pet(entry.id(), entry.name(), entry.userId()), entry.sequence());
+            case PET_DELETE -> petService.applyReplicatedDelete(entry.id(), entry.sequence());
+        }
+    }
+
+    public long getLagEntries() {
+        return Math.max(0, primaryHeadSequence - mutationLog.getAppliedSequence());
+    }
+
+    public long getLagMillis() {
+        if (getLagEntries() == 0) {
+            return 0;
+        }
+        return System.currentTimeMillis() - lastAppliedTimestampMillis;
+    }
+}
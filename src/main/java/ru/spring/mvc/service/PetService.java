@@ -1,100 +1,446 @@
 package ru.spring.mvc.service;
 
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Service;
+import ru.spring.mvc.id.IdGenerator;
 import ru.spring.mvc.model.Pet;
 import ru.spring.mvc.model.User;
+import ru.spring.mvc.mvcc.Version;
+import ru.spring.mvc.mvcc.VersionManager;
+import ru.spring.mvc.mvcc.VersionedStore;
+import ru.spring.mvc.profiling.ServiceOperationEvent;
+import ru.spring.mvc.replication.MutationLog;
+import ru.spring.mvc.replication.MutationType;
+import ru.spring.mvc.snapshot.SnapshotStore;
+import ru.spring.mvc.tier.AccessTracker;
+import ru.spring.mvc.tier.ColdStore;
+import ru.spring.mvc.util.error.EntityNotFoundException;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Service
 public class PetService {
 
     private final Map<Long, Pet> pets;
-    private long PET_ID_COUNTER;
+    private final Map<Long, Set<Long>> petIdsByUserId;
+    private final Set<Long> deletedSnapshotPetIds;
     private final UserService userService;
+    private final MutationLog mutationLog;
+    private final SnapshotStore snapshotStore;
+    private final ColdStore coldStore;
+    private final AccessTracker accessTracker;
+    private final IdGenerator idGenerator;
+    private final VersionedStore<Pet> petVersions;
 
-    public PetService(@Lazy UserService userService) {
+    public PetService(@Lazy UserService userService,
+                      MutationLog mutationLog,
+                      SnapshotStore snapshotStore,
+                      ColdStore coldStore,
+                      AccessTracker accessTracker,
+                      @Qualifier("petIdGenerator") IdGenerator idGenerator,
+                      VersionManager versionManager) {
         this.userService = userService;
-        this.pets = new HashMap<>();
-        this.PET_ID_COUNTER = 0L;
+        this.mutationLog = mutationLog;
+        this.snapshotStore = snapshotStore;
+        this.coldStore = coldStore;
+        this.accessTracker = accessTracker;
+        this.idGenerator = idGenerator;
+        this.petVersions = versionManager.createStore("pets", Pet::getUserId);
+        this.pets = new ConcurrentHashMap<>();
+        this.petIdsByUserId = new ConcurrentHashMap<>();
+        this.deletedSnapshotPetIds = ConcurrentHashMap.newKeySet();
+        idGenerator.advancePast(snapshotStore.getMaxPetId());
     }
 
     public List<Pet> getAllPets() {
-        return new ArrayList<>(pets.values());
+        List<Pet> allPets = new ArrayList<>(pets.values());
+        coldStore.forEachUser(user -> {
+            if (userService.isBeingDemoted(user.getId())) {
+                return;
+            }
+            for (Pet pet : user.getPets()) {
+                if (!pets.containsKey(pet.getId())) {
+                    allPets.add(pet);
+                }
+            }
+        });
+        if (!snapshotStore.isEmpty()) {
+            snapshotStore.forEachPet(pet -> {
+                if (!pets.containsKey(pet.getId())
+                        && !coldStore.containsPet(pet.getId())
+                        && !deletedSnapshotPetIds.contains(pet.getId())) {
+                    allPets.add(pet);
+                }
+            });
+        }
+        return allPets;
+    }
+
+    /**
+     * Lists the pets as they were at the given mutation sequence, which the caller has pinned
+     * with {@link VersionManager#pin(Long)}.
+     */
+    public List<Pet> getAllPets(long asOf) {
+        List<Pet> currentPets = getAllPets();
+        List<Pet> allPets = new ArrayList<>(currentPets.size());
+        Set<Long> seenIds = new HashSet<>();
+        for (Pet currentPet : currentPets) {
+            seenIds.add(currentPet.getId());
+            Pet pet = petVersions.resolve(currentPet.getId(), asOf, currentPet);
+            if (pet != null) {
+                allPets.add(pet);
+            }
+        }
+        // pets deleted since the listing above was read are only left in their version chains
+        petVersions.forEachVersioned(asOf, (id, pet) -> {
+            if (pet != null && !seenIds.contains(id)) {
+                allPets.add(pet);
+            }
+        });
+        return allPets;
+    }
+
+    /**
+     * Pets owned by the user at {@code asOf}.
+     *
+     * @param currentPets the user's current pet list, read before this call
+     */
+    List<Pet> getPetsOwnedAt(long userId, List<Pet> currentPets, long asOf) {
+        List<Pet> ownedPets = new ArrayList<>(currentPets.size());
+        Set<Long> seenIds = new HashSet<>();
+        for (Pet currentPet : currentPets) {
+            seenIds.add(currentPet.getId());
+            Pet pet = petVersions.resolve(currentPet.getId(), asOf, currentPet);
+            if (pet != null && pet.getUserId() == userId) {
+                ownedPets.add(pet);
+            }
+        }
+        petVersions.forEachVersionedInGroup(userId, asOf, (id, pet) -> {
+            if (pet != null && pet.getUserId() == userId && !seenIds.contains(id)) {
+                ownedPets.add(pet);
+            }
+        });
+        return ownedPets;
+    }
+
+    public Optional<Pet> findPetById(long id) {
+        Pet pet = loadInMemoryPet(id);
+        if (pet != null) {
+            accessTracker.record(pet.getUserId());
+            return Optional.of(pet);
+        }
+        if (snapshotStore.isEmpty() || deletedSnapshotPetIds.contains(id)) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(snapshotStore.findPet(id));
+    }
+
+    /**
+     * Reads a pet held in memory without loading its owner from another tier or counting the access.
+     */
+    public Optional<Pet> findInMemoryPet(long id) {
+        return Optional.ofNullable(pets.get(id));
+    }
+
+    /**
+     * Returns the in-memory pet, first loading its owner from the cold tier if needed.
+     */
+    private Pet loadInMemoryPet(long id) {
+        Pet pet = pets.get(id);
+        if (pet == null) {
+            Long coldOwnerId = coldStore.findPetOwnerId(id);
+            if (coldOwnerId != null) {
+                userService.findUserForUpdate(coldOwnerId);
+                pet = pets.get(id);
+            }
+        }
+        return pet;
+    }
+
+    /**
+     * Reads the pet as it was at the given mutation sequence, which the caller has pinned
+     * with {@link VersionManager#pin(Long)}.
+     */
+    public Optional<Pet> findPetById(long id, long asOf) {
+        // the current state must be read before the version chain, see VersionedStore#resolve
+        Pet currentPet = findPetById(id).orElse(null);
+        return Optional.ofNullable(petVersions.resolve(id, asOf, currentPet));
+    }
+
+    public Pet getPetById(long id, long asOf) {
+        return findPetById(id, asOf).orElseThrow(() -> new EntityNotFoundException("Pet", id));
     }
 
     public Pet getPetById(long id) {
-        if (!pets.containsKey(id)) {
-            throw new NoSuchElementException("Pet with id " + id + " not found");
+        ServiceOperationEvent event = new ServiceOperationEvent();
+        event.begin();
+        Pet pet = findPetById(id).orElseThrow(() -> new EntityNotFoundException("Pet", id));
+        event.complete("getPetById", id, ServiceOperationEvent.UNKNOWN_PET_COUNT);
+        return pet;
+    }
+
+    /**
+     * Resolves all ids in one call; ids that do not exist are left out.
+     *
+     * @return found pets by id in the order of {@code ids}
+     */
+    public Map<Long, Pet> findPetsByIds(Collection<Long> ids) {
+        Map<Long, Pet> found = new LinkedHashMap<>();
+        for (Long id : ids) {
+            if (!found.containsKey(id)) {
+                findPetById(id).ifPresent(pet -> found.put(id, pet));
+            }
         }
-        return pets.get(id);
+        return found;
     }
 
-    public Pet createPet(Pet pet) {
-        if (userService.getUserById(pet.getUserId()) == null) {
-            throw new NoSuchElementException("Pet with id " + pet.getUserId() + " cannot be created, because user with id "
-                    + pet.getUserId() + " does not exist");
+    public Map<Long, Pet> findPetsByIds(Collection<Long> ids, long asOf) {
+        Map<Long, Pet> found = new LinkedHashMap<>();
+        for (Long id : ids) {
+            if (!found.containsKey(id)) {
+                findPetById(id, asOf).ifPresent(pet -> found.put(id, pet));
+            }
         }
+        return found;
+    }
 
-        if (pets.containsKey(pet.getId())) {
+    public Pet createPet(Pet pet) {
+        ServiceOperationEvent event = new ServiceOperationEvent();
+        event.begin();
+        User userById = userService.getUserForUpdate(pet.getUserId());
+
+        if (pet.getId() != null && findPetById(pet.getId()).isPresent()) {
             throw new IllegalArgumentException("Pet with id " + pet.getId() + " already exists");
         }
-        PET_ID_COUNTER++;
+        long id = idGenerator.nextId();
 
         Pet newPet = new Pet(
-                PET_ID_COUNTER,
+                id,
                 pet.getName(),
                 pet.getUserId()
         );
 
-        pets.put(PET_ID_COUNTER, newPet);
-        User userById = userService.getUserById(pet.getUserId());
-        userById.addPet(newPet);
+        mutationLog.atomically(() -> {
+            User owner = userService.refreshForUpdate(pet.getUserId(), userById);
+            Version<Pet> version = petVersions.stage(id, null, newPet);
+            pets.put(id, newPet);
+            index(newPet);
+            owner.addPet(newPet);
+            return mutationLog.appendPetUpsert(newPet, version::commit);
+        });
 
+        event.complete("createPet", id, userById.getPets().size());
         return newPet;
     }
 
     public Pet updatePet(long id, Pet pet) {
-        if (!pets.containsKey(id)) {
-            throw new NoSuchElementException("Pet with id " + id + " does not exist");
-        }
+        ServiceOperationEvent event = new ServiceOperationEvent();
+        event.begin();
+        Pet oldPet = getPetById(id);
+        Optional<User> oldUser = userService.findUserForUpdate(oldPet.getUserId());
+        User newUser = userService.getUserForUpdate(pet.getUserId());
         Pet updatedPet = new Pet(
                 id,
                 pet.getName(),
                 pet.getUserId()
         );
-        Pet oldPet = pets.get(id);
-        pets.put(id, updatedPet);
+        mutationLog.atomically(() -> {
+            Optional<User> currentOldUser = oldUser.map(user -> userService.refreshForUpdate(user.getId(), user));
+            User currentNewUser = userService.refreshForUpdate(newUser.getId(), newUser);
+            Pet currentPet = pets.getOrDefault(id, oldPet);
+            Version<Pet> version = petVersions.stage(id, currentPet, updatedPet);
+            pets.put(id, updatedPet);
+            unindex(currentPet);
+            index(updatedPet);
 
-        User oldUser = userService.getUserById(oldPet.getUserId());
-        User newUser = userService.getUserById(updatedPet.getUserId());
-        oldUser.getPets().remove(oldPet);
-        newUser.getPets().add(updatedPet);
+            currentOldUser.ifPresent(user -> user.getPets().remove(currentPet));
+            currentNewUser.getPets().add(updatedPet);
+            return mutationLog.appendPetUpsert(updatedPet, version::commit);
+        });
 
+        event.complete("updatePet", id, newUser.getPets().size());
         return updatedPet;
     }
 
     public void deletePet(long id) {
-        if (!pets.containsKey(id)) {
-            throw new NoSuchElementException("Pet with id " + id + " not found");
+        ServiceOperationEvent event = new ServiceOperationEvent();
+        event.begin();
+        Pet previousPet = getPetById(id);
+        Optional<User> owner = userService.findUserForUpdate(previousPet.getUserId());
+        mutationLog.atomically(() -> {
+            Optional<User> currentOwner = owner.map(user -> userService.refreshForUpdate(user.getId(), user));
+            Version<Pet> version = petVersions.stage(id, pets.getOrDefault(id, previousPet), null);
+            Pet petToRemove = pets.remove(id);
+            boolean removedFromSnapshot = tombstoneSnapshotPet(id);
+            if (petToRemove == null && !removedFromSnapshot) {
+                petVersions.abort(id, version);
+                throw new EntityNotFoundException("Pet", id);
+            }
+            if (petToRemove != null) {
+                unindex(petToRemove);
+                currentOwner.ifPresent(userById -> userById.getPets().remove(petToRemove));
+            }
+            return mutationLog.appendDelete(MutationType.PET_DELETE, id, version::commit);
+        });
+        event.complete("deletePet", id, owner.map(user -> user.getPets().size())
+                .orElse(ServiceOperationEvent.UNKNOWN_PET_COUNT));
+    }
+
+    /**
+     * Removes every pet of a user that is being deleted. The user's pet ids are detached from
+     * the owner index in one step, so the cost is proportional to that user's pets. The owner's
+     * own pet list is left alone because the owner is going away. The pets still left, at most
+     * {@code cascade.chunk-size} after {@link #deleteLastPets}, are removed and logged under one
+     * hold of the mutation log lock, so none of them is readable once the owner's delete returns
+     * and their deletes precede the owner's in the log.
+     */
+    public void deletePetsByUserId(long userId) {
+        mutationLog.atomically(() -> {
+            Set<Long> petIds = petIdsByUserId.remove(userId);
+            if (petIds != null) {
+                petIds.forEach(this::removePet);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Deletes up to {@code limit} pets from the end of the owner's pet list, where taking them off is cheap.
+     * {@code UserService#deleteUser} uses it to shrink a user with many pets in chunks, so no single hold of
+     * the mutation log lock grows with the number of pets. The caller holds {@link MutationLog#atomically}.
+     *
+     * @return number of pets taken off the list
+     */
+    int deleteLastPets(User owner, int limit) {
+        List<Pet> ownerPets = owner.getPets();
+        List<Pet> chunk = ownerPets.subList(Math.max(0, ownerPets.size() - limit), ownerPets.size());
+        for (Pet listedPet : chunk) {
+            Pet pet = pets.get(listedPet.getId());
+            // a drifted list may still name a pet that belongs to another user by now
+            if (pet != null && owner.getId().equals(pet.getUserId())) {
+                unindex(pet);
+                removePet(pet.getId());
+            }
         }
+        int deleted = chunk.size();
+        chunk.clear();
+        return deleted;
+    }
 
-        Pet petToRemove = pets.get(id);
-        pets.remove(id);
-        User userById = userService.getUserById(petToRemove.getUserId());
-        userById.getPets().remove(petToRemove);
+    private void removePet(long petId) {
+        mutationLog.atomically(() -> {
+            Pet previousPet = pets.get(petId);
+            if (previousPet == null && !deletedSnapshotPetIds.contains(petId)) {
+                previousPet = snapshotStore.findPet(petId);
+            }
+            Version<Pet> version = petVersions.stage(petId, previousPet, null);
+            if (pets.remove(petId) != null | tombstoneSnapshotPet(petId)) {
+                return mutationLog.appendDelete(MutationType.PET_DELETE, petId, version::commit);
+            }
+            petVersions.abort(petId, version);
+            return null;
+        });
     }
 
-    public void deletePetsByUserId(long userId) {
-        List<Long> petsRemoveContainer = new ArrayList<>();
-        for (Pet pet : pets.values()) {
-            if (pet.getUserId() == userId) {
-                petsRemoveContainer.add(pet.getId());
+    /**
+     * Ids of the in-memory pets owned by the user according to the owner index.
+     */
+    public Set<Long> getPetIdsByUserId(long userId) {
+        Set<Long> petIds = petIdsByUserId.get(userId);
+        return petIds == null ? Set.of() : Set.copyOf(petIds);
+    }
+
+    public Set<Long> getOwnerIds() {
+        return Collections.unmodifiableSet(petIdsByUserId.keySet());
+    }
+
+    public int getInMemoryPetCount() {
+        return pets.size();
+    }
+
+    /**
+     * Moves the pets of a user being loaded from the snapshot or the cold tier to the in-memory
+     * store, dropping the ones that were deleted or are already held in memory.
+     */
+    void adoptPets(List<Pet> loadedPets) {
+        loadedPets.removeIf(pet -> deletedSnapshotPetIds.contains(pet.getId())
+                || pets.putIfAbsent(pet.getId(), pet) != null);
+        loadedPets.forEach(this::index);
+    }
+
+    /**
+     * Pets of a user being demoted: its own list plus any pet the owner index knows of that
+     * the list is missing, so a drifted list does not lose pets on the way to disk.
+     */
+    List<Pet> getOwnedPets(long userId, List<Pet> listedPets) {
+        List<Pet> ownedPets = new ArrayList<>(listedPets);
+        Set<Long> listedIds = new HashSet<>();
+        for (Pet pet : listedPets) {
+            listedIds.add(pet.getId());
+        }
+        for (Long petId : petIdsByUserId.getOrDefault(userId, Set.of())) {
+            Pet pet = pets.get(petId);
+            if (pet != null && !listedIds.contains(petId)) {
+                ownedPets.add(pet);
             }
         }
-        for (Long petId : petsRemoveContainer) {
-            deletePet(petId);
+        return ownedPets;
+    }
+
+    /**
+     * Drops the pets of a user that was moved to the cold tier from memory.
+     */
+    void evictPets(long userId) {
+        Set<Long> petIds = petIdsByUserId.remove(userId);
+        if (petIds != null) {
+            petIds.forEach(pets::remove);
+        }
+    }
+
+    private boolean tombstoneSnapshotPet(long id) {
+        return snapshotStore.containsPet(id) && deletedSnapshotPetIds.add(id);
+    }
+
+    private void index(Pet pet) {
+        petIdsByUserId.compute(pet.getUserId(), (userId, petIds) -> {
+            Set<Long> ids = petIds != null ? petIds : ConcurrentHashMap.newKeySet();
+            ids.add(pet.getId());
+            return ids;
+        });
+    }
+
+    private void unindex(Pet pet) {
+        petIdsByUserId.computeIfPresent(pet.getUserId(), (userId, petIds) -> {
+            petIds.remove(pet.getId());
+            return petIds.isEmpty() ? null : petIds;
+        });
+    }
+
+    /**
+     * Applies a pet shipped from the primary and moves it to its owner's pet list.
+     */
+    public void applyReplicatedUpsert(Pet pet, long sequence) {
+        petVersions.put(pet.getId(), loadInMemoryPet(pet.getId()), pet, sequence);
+        Pet oldPet = pets.put(pet.getId(), pet);
+        if (oldPet != null) {
+            unindex(oldPet);
+            userService.findUserForUpdate(oldPet.getUserId())
+                    .ifPresent(oldUser -> oldUser.getPets().remove(oldPet));
+        }
+        index(pet);
+        userService.getUserForUpdate(pet.getUserId()).addPet(pet);
+        idGenerator.advancePast(pet.getId());
+    }
+
+    public void applyReplicatedDelete(long id, long sequence) {
+        petVersions.put(id, loadInMemoryPet(id), null, sequence);
+        Pet petToRemove = pets.remove(id);
+        if (petToRemove != null) {
+            unindex(petToRemove);
+            userService.findUserForUpdate(petToRemove.getUserId())
+                    .ifPresent(userById -> userById.getPets().remove(petToRemove));
         }
     }
 }
@@ -1,75 +1,496 @@
 package ru.spring.mvc.service;
 
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import ru.spring.mvc.id.IdGenerator;
+import ru.spring.mvc.model.Pet;
 import ru.spring.mvc.model.User;
+import ru.spring.mvc.mvcc.Version;
+import ru.spring.mvc.mvcc.VersionManager;
+import ru.spring.mvc.mvcc.VersionedStore;
+import ru.spring.mvc.profiling.ServiceOperationEvent;
+import ru.spring.mvc.replication.MutationLog;
+import ru.spring.mvc.replication.MutationType;
+import ru.spring.mvc.snapshot.SnapshotStore;
+import ru.spring.mvc.tier.AccessTracker;
+import ru.spring.mvc.tier.ColdStore;
+import ru.spring.mvc.util.error.EntityNotFoundException;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Service
 public class UserService {
 
     private final Map<Long, User> users;
+    private final Set<Long> deletedSnapshotUserIds;
+    private final Set<Long> demotingUserIds;
+    private final Map<Long, CompletableFuture<User>> loadingUsers;
     private final PetService petService;
-    private long USER_ID_COUNTER;
+    private final MutationLog mutationLog;
+    private final SnapshotStore snapshotStore;
+    private final ColdStore coldStore;
+    private final AccessTracker accessTracker;
+    private final IdGenerator idGenerator;
+    private final VersionedStore<User> userVersions;
+    private final int cascadeChunkSize;
 
-    public UserService(PetService petService) {
+    public UserService(PetService petService,
+                       MutationLog mutationLog,
+                       SnapshotStore snapshotStore,
+                       ColdStore coldStore,
+                       AccessTracker accessTracker,
+                       @Qualifier("userIdGenerator") IdGenerator idGenerator,
+                       VersionManager versionManager,
+                       @Value("${cascade.chunk-size:1000}") int cascadeChunkSize) {
         this.petService = petService;
-        this.users = new HashMap<>();
-        this.USER_ID_COUNTER = 0L;
+        this.mutationLog = mutationLog;
+        this.snapshotStore = snapshotStore;
+        this.coldStore = coldStore;
+        this.accessTracker = accessTracker;
+        this.users = new ConcurrentHashMap<>();
+        this.deletedSnapshotUserIds = ConcurrentHashMap.newKeySet();
+        this.demotingUserIds = ConcurrentHashMap.newKeySet();
+        this.loadingUsers = new ConcurrentHashMap<>();
+        this.idGenerator = idGenerator;
+        this.userVersions = versionManager.createStore("users");
+        this.cascadeChunkSize = cascadeChunkSize;
+        idGenerator.advancePast(snapshotStore.getMaxUserId());
     }
 
     public List<User> getAllUsers() {
-        return new ArrayList<>(users.values());
+        List<User> allUsers = new ArrayList<>(users.values());
+        coldStore.forEachUser(user -> {
+            // a user loaded back or still being demoted is listed from memory, if it was not deleted meanwhile
+            if (!users.containsKey(user.getId()) && !isBeingDemoted(user.getId())) {
+                allUsers.add(user);
+            }
+        });
+        if (!snapshotStore.isEmpty()) {
+            snapshotStore.forEachUser(user -> {
+                if (!users.containsKey(user.getId())
+                        && !coldStore.containsUser(user.getId())
+                        && !deletedSnapshotUserIds.contains(user.getId())) {
+                    allUsers.add(user);
+                }
+            });
+        }
+        return allUsers;
+    }
+
+    /**
+     * Lists the users with their pets as they were at the given mutation sequence, which the caller has
+     * pinned with {@link VersionManager#pin(Long)}.
+     */
+    public List<User> getAllUsers(long asOf) {
+        List<User> currentUsers = getAllUsers();
+        Map<Long, List<Pet>> petsByUserId = new HashMap<>();
+        for (Pet pet : petService.getAllPets(asOf)) {
+            petsByUserId.computeIfAbsent(pet.getUserId(), userId -> new ArrayList<>()).add(pet);
+        }
+        List<User> allUsers = new ArrayList<>(currentUsers.size());
+        Set<Long> seenIds = new HashSet<>();
+        for (User currentUser : currentUsers) {
+            seenIds.add(currentUser.getId());
+            User user = userVersions.resolve(currentUser.getId(), asOf, currentUser);
+            if (user != null) {
+                allUsers.add(withPets(user, petsByUserId.getOrDefault(user.getId(), new ArrayList<>())));
+            }
+        }
+        // users deleted since the listing above was read are only left in their version chains
+        userVersions.forEachVersioned(asOf, (id, user) -> {
+            if (user != null && !seenIds.contains(id)) {
+                allUsers.add(withPets(user, petsByUserId.getOrDefault(id, new ArrayList<>())));
+            }
+        });
+        return allUsers;
+    }
+
+    /**
+     * Looks the user up in memory, then in the cold tier and then in the snapshot. A cold user is
+     * loaded back into memory. A user read from the snapshot is a detached copy; use
+     * {@link #findUserForUpdate(long)} before changing it.
+     */
+    public Optional<User> findUserById(long id) {
+        User user = users.get(id);
+        if (user != null) {
+            accessTracker.record(id);
+            return Optional.of(user);
+        }
+        if (coldStore.containsUser(id)) {
+            return loadColdUser(id);
+        }
+        if (snapshotStore.isEmpty() || deletedSnapshotUserIds.contains(id)) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(snapshotStore.findUser(id));
+    }
+
+    /**
+     * Reads the user with its pets as they were at the given mutation sequence, which the caller has
+     * pinned with {@link VersionManager#pin(Long)}.
+     */
+    public Optional<User> findUserById(long id, long asOf) {
+        // the current state must be read before the version chains, see VersionedStore#resolve
+        User currentUser = findUserById(id).orElse(null);
+        List<Pet> currentPets = currentUser == null
+                ? List.of()
+                // a user held in memory has its pet list changed under the log lock; other copies are detached
+                : copyInMemoryPets(id).orElseGet(() -> Objects.requireNonNullElse(currentUser.getPets(), List.of()));
+        User user = userVersions.resolve(id, asOf, currentUser);
+        if (user == null) {
+            return Optional.empty();
+        }
+        return Optional.of(withPets(user, petService.getPetsOwnedAt(id, currentPets, asOf)));
+    }
+
+    public User getUserById(long id, long asOf) {
+        return findUserById(id, asOf).orElseThrow(() -> new EntityNotFoundException("User", id));
     }
 
     public User getUserById(long id) {
-        if (!users.containsKey(id)) {
-            throw new NoSuchElementException("User with id " + id + " not found");
+        ServiceOperationEvent event = new ServiceOperationEvent();
+        event.begin();
+        User user = findUserById(id).orElseThrow(() -> new EntityNotFoundException("User", id));
+        event.complete("getUserById", id, petCount(user));
+        return user;
+    }
+
+    /**
+     * Resolves all ids in one call; ids that do not exist are left out.
+     *
+     * @return found users by id in the order of {@code ids}
+     */
+    public Map<Long, User> findUsersByIds(Collection<Long> ids) {
+        Map<Long, User> found = new LinkedHashMap<>();
+        for (Long id : ids) {
+            if (!found.containsKey(id)) {
+                findUserById(id).ifPresent(user -> found.put(id, user));
+            }
         }
-        return users.get(id);
+        return found;
+    }
+
+    public Map<Long, User> findUsersByIds(Collection<Long> ids, long asOf) {
+        Map<Long, User> found = new LinkedHashMap<>();
+        for (Long id : ids) {
+            if (!found.containsKey(id)) {
+                findUserById(id, asOf).ifPresent(user -> found.put(id, user));
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Returns the in-memory user, first loading it and its pets from the cold tier
+     * or copying them out of the snapshot if needed.
+     */
+    Optional<User> findUserForUpdate(long id) {
+        User user = users.get(id);
+        if (user != null) {
+            accessTracker.record(id);
+            return Optional.of(user);
+        }
+        if (coldStore.containsUser(id)) {
+            return loadColdUser(id);
+        }
+        if (snapshotStore.isEmpty() || deletedSnapshotUserIds.contains(id)) {
+            return Optional.empty();
+        }
+        User snapshotUser = snapshotStore.findUser(id);
+        if (snapshotUser == null) {
+            return Optional.empty();
+        }
+        return Optional.of(users.computeIfAbsent(id, key -> {
+            petService.adoptPets(snapshotUser.getPets());
+            return snapshotUser;
+        }));
+    }
+
+    /**
+     * Loads a cold user back into memory. Only one thread loads a given user; the others wait for its result.
+     * The record is read before anything is locked, published under the mutation log lock, and dropped from
+     * the cold file afterwards. Until then the user cannot be demoted again, so the drop cannot hit a newer record.
+     */
+    private Optional<User> loadColdUser(long id) {
+        CompletableFuture<User> load = new CompletableFuture<>();
+        CompletableFuture<User> runningLoad = loadingUsers.putIfAbsent(id, load);
+        if (runningLoad != null) {
+            try {
+                return Optional.ofNullable(runningLoad.join());
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+        try {
+            User loadedUser = publishColdUser(id);
+            load.complete(loadedUser);
+            return Optional.ofNullable(loadedUser);
+        } catch (RuntimeException e) {
+            load.completeExceptionally(e);
+            throw e;
+        } finally {
+            loadingUsers.remove(id, load);
+        }
+    }
+
+    private User publishColdUser(long id) {
+        User coldUser = coldStore.findUser(id);
+        if (coldUser == null) {
+            return users.get(id);
+        }
+        boolean published = mutationLog.atomically(() -> {
+            // a user being demoted is only missing from memory if it was deleted meanwhile
+            if (users.containsKey(id) || isBeingDemoted(id) || !coldStore.containsUser(id)) {
+                return false;
+            }
+            petService.adoptPets(coldUser.getPets());
+            users.put(id, coldUser);
+            return true;
+        });
+        if (!published) {
+            return users.get(id);
+        }
+        coldStore.discardUser(id);
+        accessTracker.record(id);
+        return coldUser;
+    }
+
+    /**
+     * Moves an in-memory user with its pets to the cold tier. The user and its pets are copied under the
+     * mutation log lock and written to the cold file outside of it. The user is evicted only if no write
+     * changed it or its pets in between; otherwise it stays in memory and the cold record is dropped.
+     * Until then the cold record is neither loaded nor listed, so a user deleted meanwhile cannot come back.
+     *
+     * @return whether the user was moved
+     */
+    public boolean demoteUser(long id) {
+        User user = users.get(id);
+        if (user == null || !demotingUserIds.add(id)) {
+            return false;
+        }
+        try {
+            User coldUser = mutationLog.atomically(() -> users.get(id) == user && !loadingUsers.containsKey(id)
+                    ? coldCopyOf(user)
+                    : null);
+            if (coldUser == null) {
+                return false;
+            }
+            coldStore.putUser(coldUser);
+            boolean evicted = mutationLog.atomically(() -> {
+                if (users.get(id) != user
+                        || !coldUser.getPets().equals(petService.getOwnedPets(id, user.getPets()))) {
+                    return false;
+                }
+                // the record becomes loadable before the user leaves memory, so a reader always finds one of them
+                demotingUserIds.remove(id);
+                users.remove(id, user);
+                petService.evictPets(id);
+                accessTracker.forget(id);
+                return true;
+            });
+            if (!evicted) {
+                coldStore.discardUser(id);
+            }
+            return evicted;
+        } finally {
+            demotingUserIds.remove(id);
+        }
+    }
+
+    /**
+     * Whether the user's cold record is being written and must not be read yet.
+     */
+    boolean isBeingDemoted(long id) {
+        return demotingUserIds.contains(id);
+    }
+
+    private User coldCopyOf(User user) {
+        return new User(
+                user.getId(),
+                user.getName(),
+                user.getEmail(),
+                user.getAge(),
+                petService.getOwnedPets(user.getId(), user.getPets())
+        );
+    }
+
+    User getUserForUpdate(long id) {
+        return findUserForUpdate(id).orElseThrow(() -> new EntityNotFoundException("User", id));
+    }
+
+    /**
+     * Re-reads a user inside {@link MutationLog#atomically} that was looked up before taking the lock.
+     * If it was demoted in between, it is loaded back, so a write never lands on an evicted copy.
+     */
+    User refreshForUpdate(long id, User user) {
+        return users.get(id) == user ? user : getUserForUpdate(id);
+    }
+
+    public Set<Long> getInMemoryUserIds() {
+        return Collections.unmodifiableSet(users.keySet());
+    }
+
+    /**
+     * Reads a user held in memory without loading it from another tier or counting the access.
+     */
+    public Optional<User> findInMemoryUser(long id) {
+        return Optional.ofNullable(users.get(id));
+    }
+
+    /**
+     * Copies the pet list of a user held in memory without loading it from another tier or counting the access.
+     * The copy is taken under the mutation log lock, which every change to a pet list holds.
+     */
+    public Optional<List<Pet>> copyInMemoryPets(long id) {
+        return mutationLog.atomically(() -> {
+            User user = users.get(id);
+            return user == null || user.getPets() == null
+                    ? Optional.empty()
+                    : Optional.of(new ArrayList<>(user.getPets()));
+        });
+    }
+
+    /**
+     * Replaces the pet list of an in-memory user; used to repair it from the pet side. Callers that computed
+     * the list from the current state should hold {@link MutationLog#atomically} across both steps.
+     */
+    public void replacePets(long id, List<Pet> pets) {
+        mutationLog.atomically(() -> {
+            User user = users.get(id);
+            if (user != null) {
+                user.setPets(new ArrayList<>(pets));
+            }
+            return null;
+        });
     }
 
     public User createUser(User user) {
-        if (users.containsKey(user.getId())) {
+        ServiceOperationEvent event = new ServiceOperationEvent();
+        event.begin();
+        if (user.getId() != null && findUserById(user.getId()).isPresent()) {
             throw new IllegalArgumentException("User with id " + user.getId() + " already exists");
         }
-        USER_ID_COUNTER++;
+        long id = idGenerator.nextId();
 
         User newUser = new User(
-                USER_ID_COUNTER,
+                id,
                 user.getName(),
                 user.getEmail(),
                 user.getAge(),
                 new ArrayList<>()
         );
-        users.put(USER_ID_COUNTER, newUser);
+        mutationLog.atomically(() -> {
+            Version<User> version = userVersions.stage(id, null, versionOf(newUser));
+            users.put(id, newUser);
+            return mutationLog.appendUserUpsert(newUser, version::commit);
+        });
+        accessTracker.record(id);
 
+        event.complete("createUser", id, 0);
         return newUser;
     }
 
     public User updateUser(long id, User user) {
-        if (!users.containsKey(id)) {
-            throw new NoSuchElementException("User with id " + id + " does not exist");
-        }
+        ServiceOperationEvent event = new ServiceOperationEvent();
+        event.begin();
+        User previousUser = getUserForUpdate(id);
 
         User updatedUser = new User(
                 id,
                 user.getName(),
                 user.getEmail(),
                 user.getAge(),
-                user.getPets()
+                user.getPets() != null ? new ArrayList<>(user.getPets()) : new ArrayList<>()
         );
-        users.put(id, updatedUser);
+        mutationLog.atomically(() -> {
+            User currentUser = refreshForUpdate(id, previousUser);
+            Version<User> version = userVersions.stage(id, versionOf(currentUser), versionOf(updatedUser));
+            users.put(id, updatedUser);
+            return mutationLog.appendUserUpsert(updatedUser, version::commit);
+        });
 
+        event.complete("updateUser", id, petCount(updatedUser));
         return updatedUser;
     }
 
+    /**
+     * Deletes the user with its pets. A user with more than {@code cascade.chunk-size} pets first loses them
+     * in chunks of that size, each under its own hold of the mutation log lock, so other writers are not
+     * stalled behind one long cascade. Until the final step readers may see the user with part of its pets
+     * gone, as if they had been deleted one by one. The remaining pets go in the same step as the user.
+     */
     public void deleteUser(long id) {
-        if (!users.containsKey(id)) {
-            throw new NoSuchElementException("User with id " + id + " does not exist");
+        ServiceOperationEvent event = new ServiceOperationEvent();
+        event.begin();
+        User previousUser = getUserForUpdate(id);
+        int petCount = petCount(previousUser);
+        boolean morePets = petCount > cascadeChunkSize;
+        while (morePets) {
+            morePets = mutationLog.atomically(() -> {
+                User currentUser = refreshForUpdate(id, previousUser);
+                return petCount(currentUser) > cascadeChunkSize
+                        && petService.deleteLastPets(currentUser, cascadeChunkSize) > 0;
+            });
         }
-        petService.deletePetsByUserId(id);
+        mutationLog.atomically(() -> {
+            User currentUser = refreshForUpdate(id, previousUser);
+            Version<User> version = userVersions.stage(id, versionOf(currentUser), null);
+            users.remove(id);
+            if (snapshotStore.containsUser(id)) {
+                deletedSnapshotUserIds.add(id);
+            }
+            petService.deletePetsByUserId(id);
+            return mutationLog.appendDelete(MutationType.USER_DELETE, id, version::commit);
+        });
+        accessTracker.forget(id);
+        event.complete("deleteUser", id, petCount);
+    }
+
+    private static int petCount(User user) {
+        return user.getPets() != null ? user.getPets().size() : 0;
+    }
+
+    /**
+     * Copy of the user's own fields to keep as a version; pets are versioned on their own.
+     */
+    private static User versionOf(User user) {
+        return new User(user.getId(), user.getName(), user.getEmail(), user.getAge(), List.of());
+    }
+
+    private static User withPets(User user, List<Pet> pets) {
+        return new User(user.getId(), user.getName(), user.getEmail(), user.getAge(), pets);
+    }
+
+    /**
+     * Applies a user shipped from the primary. Pets are replicated by their own entries,
+     * so an existing user keeps its current pet list.
+     */
+    public void applyReplicatedUpsert(User user, long sequence) {
+        Optional<User> existingUser = findUserForUpdate(user.getId());
+        List<Pet> pets = existingUser
+                .map(User::getPets)
+                .orElseGet(ArrayList::new);
+        User replicatedUser = new User(
+                user.getId(),
+                user.getName(),
+                user.getEmail(),
+                user.getAge(),
+                pets
+        );
+        userVersions.put(user.getId(), existingUser.map(UserService::versionOf).orElse(null),
+                versionOf(replicatedUser), sequence);
+        users.put(user.getId(), replicatedUser);
+        idGenerator.advancePast(user.getId());
+    }
 
+    public void applyReplicatedDelete(long id, long sequence) {
+        userVersions.put(id, findUserForUpdate(id).map(UserService::versionOf).orElse(null), null, sequence);
         users.remove(id);
+        coldStore.discardUser(id);
+        accessTracker.forget(id);
     }
 }
@@ -0,0 +1,130 @@
+package ru.spring.mvc.slo;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * AIMD limit on concurrent writes. Every {@code slo.evaluate-interval-ms} the limit is multiplied by
+ * {@code slo.write.decrease-factor} if a critical read route is over its p99 target, and otherwise
+ * raised by {@code slo.write.increase-step}, within {@code slo.write.min-concurrency} and
+ * {@code slo.write.max-concurrency}. Writes over the limit wait up to {@code slo.write.queue-timeout-ms}
+ * in a queue of at most {@code slo.write.max-queue}; the rest are shed. Reads are never limited.
+ * <p>
+ * Writes already run one at a time on the {@code MutationLog} monitor, so lowering the limit does not
+ * take work off the readers. It bounds how many request threads wait on that monitor, and it sheds
+ * writes early instead of letting them queue until their clients time out.
+ */
+@Component
+public class AdaptiveWriteLimiter {
+
+    private static final Logger log = LoggerFactory.getLogger(AdaptiveWriteLimiter.class);
+
+    private final RouteLatencyTracker routeLatencyTracker;
+    private final int minConcurrency;
+    private final int maxConcurrency;
+    private final double decreaseFactor;
+    private final double increaseStep;
+    private final long queueTimeoutMillis;
+    private final int maxQueue;
+    private final Counter shed;
+
+    private double limit;
+    private int inFlight;
+    private int queued;
+
+    public AdaptiveWriteLimiter(RouteLatencyTracker routeLatencyTracker,
+                                MeterRegistry meterRegistry,
+                                @Value("${slo.write.min-concurrency:1}") int minConcurrency,
+                                @Value("${slo.write.max-concurrency:64}") int maxConcurrency,
+                                @Value("${slo.write.decrease-factor:0.5}") double decreaseFactor,
+                                @Value("${slo.write.increase-step:1}") double increaseStep,
+                                @Value("${slo.write.queue-timeout-ms:200}") long queueTimeoutMillis,
+                                @Value("${slo.write.max-queue:100}") int maxQueue) {
+        this.routeLatencyTracker = routeLatencyTracker;
+        this.minConcurrency = minConcurrency;
+        this.maxConcurrency = maxConcurrency;
+        this.decreaseFactor = decreaseFactor;
+        this.increaseStep = increaseStep;
+        this.queueTimeoutMillis = queueTimeoutMillis;
+        this.maxQueue = maxQueue;
+        this.limit = maxConcurrency;
+        this.shed = meterRegistry.counter("slo.write.shed");
+        Gauge.builder("slo.write.limit", this, AdaptiveWriteLimiter::getLimit).register(meterRegistry);
+        Gauge.builder("slo.write.in-flight", this, AdaptiveWriteLimiter::getInFlight).register(meterRegistry);
+        Gauge.builder("slo.write.queued", this, AdaptiveWriteLimiter::getQueued).register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${slo.evaluate-interval-ms:1000}")
+    public void evaluate() {
+        boolean breached = routeLatencyTracker.checkTargets();
+        synchronized (this) {
+            double previous = limit;
+            if (breached) {
+                limit = Math.max(minConcurrency, limit * decreaseFactor);
+            } else {
+                limit = Math.min(maxConcurrency, limit + increaseStep);
+                notifyAll();
+            }
+            if (breached && previous > minConcurrency) {
+                log.warn("Read latency over target, write limit lowered from {} to {}", (int) previous, (int) limit);
+            }
+        }
+    }
+
+    /**
+     * Blocks until the write may proceed; every successful call must be paired with {@link #release()}.
+     *
+     * @throws WriteShedException if the queue is full or the write waited longer than the queue timeout
+     */
+    public synchronized void acquire() throws InterruptedException {
+        if (inFlight < (int) limit) {
+            inFlight++;
+            return;
+        }
+        if (queued >= maxQueue) {
+            throw reject();
+        }
+        queued++;
+        try {
+            long deadline = System.currentTimeMillis() + queueTimeoutMillis;
+            while (inFlight >= (int) limit) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    throw reject();
+                }
+                wait(remaining);
+            }
+            inFlight++;
+        } finally {
+            queued--;
+        }
+    }
+
+    public synchronized void release() {
+        inFlight--;
+        notify();
+    }
+
+    public synchronized double getLimit() {
+        return limit;
+    }
+
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    public synchronized int getQueued() {
+        return queued;
+    }
+
+    private WriteShedException reject() {
+        shed.increment();
+        return new WriteShedException("Writes are throttled while read latency is over target, retry later");
+    }
+}
@@ -0,0 +1,112 @@
+package ru.spring.mvc.slo;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of each route, such as {@code GET /users/{id}}, over a sliding window of {@code slo.window-seconds},
+ * published as {@code http.route.latency} with p50, p95 and p99. Routes listed in {@code slo.targets}
+ * are checked against their p99 target; breaches of {@code slo.critical-routes} drive write shedding.
+ */
+@Component
+public class RouteLatencyTracker {
+
+    private static final double P99 = 0.99;
+
+    private final MeterRegistry meterRegistry;
+    private final Duration window;
+    private final Map<String, Long> targetMillis;
+    private final Set<String> criticalRoutes;
+    private final Map<String, Timer> timers;
+
+    public RouteLatencyTracker(MeterRegistry meterRegistry,
+                               @Value("${slo.window-seconds:60}") long windowSeconds,
+                               @Value("${slo.targets:}") String targets,
+                               @Value("${slo.critical-routes:}") String criticalRoutes) {
+        this.meterRegistry = meterRegistry;
+        this.window = Duration.ofSeconds(windowSeconds);
+        this.targetMillis = parseTargets(targets);
+        this.criticalRoutes = new HashSet<>();
+        for (String route : criticalRoutes.split(",")) {
+            if (!route.isBlank()) {
+                this.criticalRoutes.add(route.trim());
+            }
+        }
+        this.timers = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Parses {@code GET /users/{id}=50,POST /users=200} into p99 targets in milliseconds.
+     */
+    static Map<String, Long> parseTargets(String targets) {
+        Map<String, Long> parsed = new LinkedHashMap<>();
+        for (String target : targets.split(",")) {
+            if (target.isBlank()) {
+                continue;
+            }
+            int separator = target.lastIndexOf('=');
+            if (separator < 0) {
+                throw new IllegalArgumentException("SLO target " + target + " is not in the form 'METHOD /path=millis'");
+            }
+            parsed.put(target.substring(0, separator).trim(), Long.parseLong(target.substring(separator + 1).trim()));
+        }
+        return parsed;
+    }
+
+    public void record(String route, long nanos) {
+        timer(route).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @return p99 of the route over the current window in milliseconds, 0 without samples
+     */
+    public double p99Millis(String route) {
+        Timer timer = timers.get(route);
+        if (timer == null) {
+            return 0;
+        }
+        for (ValueAtPercentile percentile : timer.takeSnapshot().percentileValues()) {
+            if (percentile.percentile() == P99) {
+                return percentile.value(TimeUnit.MILLISECONDS);
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Checks every route with a target, counts breaches in {@code slo.breaches}.
+     *
+     * @return whether a critical route is over its target
+     */
+    public boolean checkTargets() {
+        boolean criticalBreached = false;
+        for (Map.Entry<String, Long> target : targetMillis.entrySet()) {
+            if (p99Millis(target.getKey()) > target.getValue()) {
+                meterRegistry.counter("slo.breaches", "route", target.getKey()).increment();
+                criticalBreached |= criticalRoutes.contains(target.getKey());
+            }
+        }
+        return criticalBreached;
+    }
+
+    private Timer timer(String route) {
+        Timer timer = timers.get(route);
+        if (timer != null) {
+            return timer;
+        }
+        return timers.computeIfAbsent(route, key -> Timer.builder("http.route.latency")
+                .tag("route", key)
+                .publishPercentiles(0.5, 0.95, P99)
+                .distributionStatisticExpiry(window)
+                .distributionStatisticBufferLength(3)
+                .register(meterRegistry));
+    }
+}
@@ -0,0 +1,67 @@
+package ru.spring.mvc.slo;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+import ru.spring.mvc.idempotency.IdempotencyCache;
+import ru.spring.mvc.util.Requests;
+
+/**
+ * Times every request by route and admits writes through the {@link AdaptiveWriteLimiter}. Replays of
+ * cached idempotent writes change nothing and are not admitted as writes. A multi-get through
+ * {@code GET /users?ids=...} shares its mapping pattern with the plain listing, so it is timed as
+ * {@code GET /users?ids} to keep its latency out of the listing's percentiles.
+ */
+@Component
+public class SloInterceptor implements HandlerInterceptor {
+
+    private static final String START_ATTRIBUTE = SloInterceptor.class.getName() + ".start";
+    private static final String PERMIT_ATTRIBUTE = SloInterceptor.class.getName() + ".permit";
+    private static final String IDS_PARAMETER = "ids";
+
+    private final RouteLatencyTracker routeLatencyTracker;
+    private final AdaptiveWriteLimiter adaptiveWriteLimiter;
+    private final IdempotencyCache idempotencyCache;
+
+    public SloInterceptor(RouteLatencyTracker routeLatencyTracker,
+                          AdaptiveWriteLimiter adaptiveWriteLimiter,
+                          IdempotencyCache idempotencyCache) {
+        this.routeLatencyTracker = routeLatencyTracker;
+        this.adaptiveWriteLimiter = adaptiveWriteLimiter;
+        this.idempotencyCache = idempotencyCache;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler)
+            throws InterruptedException {
+        request.setAttribute(START_ATTRIBUTE, System.nanoTime());
+        if (!Requests.isRead(request) && !idempotencyCache.isReplay(request)) {
+            adaptiveWriteLimiter.acquire();
+            request.setAttribute(PERMIT_ATTRIBUTE, Boolean.TRUE);
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        if (request.getAttribute(PERMIT_ATTRIBUTE) != null) {
+            adaptiveWriteLimiter.release();
+        }
+        Object start = request.getAttribute(START_ATTRIBUTE);
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        if (start != null && pattern != null) {
+            routeLatencyTracker.record(route(request, pattern), System.nanoTime() - (long) start);
+        }
+    }
+
+    private static String route(HttpServletRequest request, Object pattern) {
+        String route = request.getMethod() + " " + pattern;
+        if (HttpMethod.GET.matches(request.getMethod()) && request.getParameter(IDS_PARAMETER) != null) {
+            return route + "?" + IDS_PARAMETER;
+        }
+        return route;
+    }
+}
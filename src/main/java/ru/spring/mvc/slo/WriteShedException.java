@@ -0,0 +1,12 @@
+package ru.spring.mvc.slo;
+
+/**
+ * A write was rejected before it changed anything because the server could not take it in time: the write limit
+ * stayed exhausted for the whole queue timeout, or the write-behind queue stayed full.
+ */
+public class WriteShedException extends RuntimeException {
+
+    public WriteShedException(String message) {
+        super(message, null, false, false);
+    }
+}
@@ -0,0 +1,42 @@
+package ru.spring.mvc.snapshot;
+
+/**
+ * Layout of a snapshot file. All numbers are big-endian.
+ * <pre>
+ * header     64 bytes   magic, version, user/pet/user-pet counts, string table length
+ * users      40 bytes   id, name, email, age, first index and count in the user-pets section; sorted by id
+ * pets       24 bytes   id, userId, name; sorted by id
+ * user-pets   4 bytes   index of a pet record, grouped by owner
+ * strings               UTF-8 bytes referenced as (offset, length); email offset -1 means null
+ * </pre>
+ * Sorted records double as the id index: lookups binary-search them in place.
+ */
+final class SnapshotFormat {
+
+    static final long MAGIC = 0x50455453534E4150L; // "PETSSNAP"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 64;
+
+    static final int USER_RECORD_SIZE = 40;
+    static final int USER_ID = 0;
+    static final int USER_NAME_OFFSET = 8;
+    static final int USER_NAME_LENGTH = 12;
+    static final int USER_EMAIL_OFFSET = 16;
+    static final int USER_EMAIL_LENGTH = 20;
+    static final int USER_AGE = 24;
+    static final int USER_PETS_START = 28;
+    static final int USER_PETS_COUNT = 32;
+
+    static final int PET_RECORD_SIZE = 24;
+    static final int PET_ID = 0;
+    static final int PET_USER_ID = 8;
+    static final int PET_NAME_OFFSET = 16;
+    static final int PET_NAME_LENGTH = 20;
+
+    static final int USER_PET_ENTRY_SIZE = 4;
+
+    static final int NULL_INT = Integer.MIN_VALUE;
+
+    private SnapshotFormat() {
+    }
+}
@@ -0,0 +1,43 @@
+package ru.spring.mvc.snapshot;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.spring.mvc.service.PetService;
+import ru.spring.mvc.service.UserService;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Writes the merged snapshot and in-memory state to {@code snapshot.file} on shutdown,
+ * so the next start maps it instead of rebuilding the maps.
+ */
+@Component
+@ConditionalOnProperty(name = "snapshot.write-on-shutdown", havingValue = "true")
+public class SnapshotShutdownWriter {
+
+    private static final Logger log = LoggerFactory.getLogger(SnapshotShutdownWriter.class);
+
+    private final UserService userService;
+    private final PetService petService;
+    private final Path file;
+
+    public SnapshotShutdownWriter(UserService userService,
+                                  PetService petService,
+                                  @Value("${snapshot.file}") String file) {
+        this.userService = userService;
+        this.petService = petService;
+        this.file = Path.of(file);
+    }
+
+    @PreDestroy
+    public void writeSnapshot() throws IOException {
+        long start = System.currentTimeMillis();
+        new SnapshotWriter().write(file, userService.getAllUsers(), petService.getAllPets());
+        log.info("Wrote snapshot {} in {} ms", file, System.currentTimeMillis() - start);
+    }
+}
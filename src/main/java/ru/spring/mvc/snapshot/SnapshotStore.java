@@ -0,0 +1,188 @@
+package ru.spring.mvc.snapshot;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.spring.mvc.model.Pet;
+import ru.spring.mvc.model.User;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static ru.spring.mvc.snapshot.SnapshotFormat.*;
+
+/**
+ * Read-only base layer of the user and pet stores, memory-mapped from {@code snapshot.file}.
+ * Nothing is loaded on startup: records are decoded from the page cache on each lookup,
+ * so boot time and heap usage do not depend on the snapshot size.
+ * Without a configured file the store is empty.
+ */
+@Component
+public class SnapshotStore {
+
+    private static final Logger log = LoggerFactory.getLogger(SnapshotStore.class);
+
+    private final FileChannel channel;
+    private final ByteBuffer users;
+    private final ByteBuffer pets;
+    private final ByteBuffer userPets;
+    private final ByteBuffer strings;
+    private final int userCount;
+    private final int petCount;
+
+    public SnapshotStore(@Value("${snapshot.file:}") String file) throws IOException {
+        if (file.isBlank() || !Files.exists(Path.of(file))) {
+            this.channel = null;
+            this.users = ByteBuffer.allocate(0);
+            this.pets = ByteBuffer.allocate(0);
+            this.userPets = ByteBuffer.allocate(0);
+            this.strings = ByteBuffer.allocate(0);
+            this.userCount = 0;
+            this.petCount = 0;
+            return;
+        }
+        this.channel = FileChannel.open(Path.of(file), StandardOpenOption.READ);
+        MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+        if (header.getLong(0) != MAGIC || header.getInt(8) != VERSION) {
+            throw new IllegalStateException("File " + file + " is not a snapshot of version " + VERSION);
+        }
+        this.userCount = Math.toIntExact(header.getLong(16));
+        this.petCount = Math.toIntExact(header.getLong(24));
+        long userPetCount = header.getLong(32);
+        long stringsLength = header.getLong(40);
+
+        long offset = HEADER_SIZE;
+        this.users = map(offset, (long) userCount * USER_RECORD_SIZE);
+        offset += (long) userCount * USER_RECORD_SIZE;
+        this.pets = map(offset, (long) petCount * PET_RECORD_SIZE);
+        offset += (long) petCount * PET_RECORD_SIZE;
+        this.userPets = map(offset, userPetCount * USER_PET_ENTRY_SIZE);
+        offset += userPetCount * USER_PET_ENTRY_SIZE;
+        this.strings = map(offset, stringsLength);
+
+        log.info("Mapped snapshot {} with {} users and {} pets", file, userCount, petCount);
+    }
+
+    private ByteBuffer map(long offset, long size) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_ONLY, offset, size);
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+        }
+    }
+
+    public boolean isEmpty() {
+        return userCount == 0 && petCount == 0;
+    }
+
+    public long getMaxUserId() {
+        return userCount == 0 ? 0 : users.getLong((userCount - 1) * USER_RECORD_SIZE + USER_ID);
+    }
+
+    public long getMaxPetId() {
+        return petCount == 0 ? 0 : pets.getLong((petCount - 1) * PET_RECORD_SIZE + PET_ID);
+    }
+
+    public boolean containsUser(long id) {
+        return indexOf(users, userCount, USER_RECORD_SIZE, id) >= 0;
+    }
+
+    public boolean containsPet(long id) {
+        return indexOf(pets, petCount, PET_RECORD_SIZE, id) >= 0;
+    }
+
+    /**
+     * @return a new heap copy of the user with its pets, or {@code null}
+     */
+    public User findUser(long id) {
+        int index = indexOf(users, userCount, USER_RECORD_SIZE, id);
+        return index < 0 ? null : readUser(index);
+    }
+
+    /**
+     * @return a new heap copy of the pet, or {@code null}
+     */
+    public Pet findPet(long id) {
+        int index = indexOf(pets, petCount, PET_RECORD_SIZE, id);
+        return index < 0 ? null : readPet(index);
+    }
+
+    public void forEachUser(Consumer<User> action) {
+        for (int i = 0; i < userCount; i++) {
+            action.accept(readUser(i));
+        }
+    }
+
+    public void forEachPet(Consumer<Pet> action) {
+        for (int i = 0; i < petCount; i++) {
+            action.accept(readPet(i));
+        }
+    }
+
+    private User readUser(int index) {
+        int record = index * USER_RECORD_SIZE;
+        int petsStart = users.getInt(record + USER_PETS_START);
+        int petsCount = users.getInt(record + USER_PETS_COUNT);
+        List<Pet> userPetList = new ArrayList<>(petsCount);
+        for (int i = 0; i < petsCount; i++) {
+            userPetList.add(readPet(userPets.getInt((petsStart + i) * USER_PET_ENTRY_SIZE)));
+        }
+        int age = users.getInt(record + USER_AGE);
+        return new User(
+                users.getLong(record + USER_ID),
+                readString(users.getInt(record + USER_NAME_OFFSET), users.getInt(record + USER_NAME_LENGTH)),
+                readString(users.getInt(record + USER_EMAIL_OFFSET), users.getInt(record + USER_EMAIL_LENGTH)),
+                age == NULL_INT ? null : age,
+                userPetList
+        );
+    }
+
+    private Pet readPet(int index) {
+        int record = index * PET_RECORD_SIZE;
+        return new Pet(
+                pets.getLong(record + PET_ID),
+                readString(pets.getInt(record + PET_NAME_OFFSET), pets.getInt(record + PET_NAME_LENGTH)),
+                pets.getLong(record + PET_USER_ID)
+        );
+    }
+
+    private String readString(int offset, int length) {
+        if (offset < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        strings.get(offset, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int indexOf(ByteBuffer records, int count, int recordSize, long id) {
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long midId = records.getLong(mid * recordSize);
+            if (midId < id) {
+                low = mid + 1;
+            } else if (midId > id) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+}
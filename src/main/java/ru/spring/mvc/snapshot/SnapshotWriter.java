@@ -0,0 +1,128 @@
+package ru.spring.mvc.snapshot;
+
+import ru.spring.mvc.model.Pet;
+import ru.spring.mvc.model.User;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+
+import static ru.spring.mvc.snapshot.SnapshotFormat.*;
+
+/**
+ * Writes users and pets into the format read by {@link SnapshotStore}.
+ * The file is written next to the target and moved into place, so readers never see a partial snapshot.
+ */
+public class SnapshotWriter {
+
+    private final Map<String, int[]> stringRefs = new HashMap<>();
+    private final List<byte[]> strings = new ArrayList<>();
+    private long stringsLength;
+
+    public void write(Path file, Collection<User> users, Collection<Pet> pets) throws IOException {
+        stringRefs.clear();
+        strings.clear();
+        stringsLength = 0;
+
+        List<User> sortedUsers = new ArrayList<>(users);
+        sortedUsers.sort(Comparator.comparing(User::getId));
+        List<Pet> sortedPets = new ArrayList<>(pets);
+        sortedPets.sort(Comparator.comparing(Pet::getId));
+
+        Map<Long, List<Integer>> petIndexesByUserId = new HashMap<>();
+        for (int i = 0; i < sortedPets.size(); i++) {
+            petIndexesByUserId.computeIfAbsent(sortedPets.get(i).getUserId(), userId -> new ArrayList<>()).add(i);
+        }
+
+        Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile), 1 << 16))) {
+            int[][] userStrings = new int[sortedUsers.size()][];
+            for (int i = 0; i < sortedUsers.size(); i++) {
+                User user = sortedUsers.get(i);
+                int[] name = ref(user.getName());
+                int[] email = ref(user.getEmail());
+                userStrings[i] = new int[]{name[0], name[1], email[0], email[1]};
+            }
+            int[][] petNames = new int[sortedPets.size()][];
+            for (int i = 0; i < sortedPets.size(); i++) {
+                petNames[i] = ref(sortedPets.get(i).getName());
+            }
+
+            long userPetCount = 0;
+            for (User user : sortedUsers) {
+                userPetCount += petIndexesByUserId.getOrDefault(user.getId(), List.of()).size();
+            }
+
+            out.writeLong(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(0);
+            out.writeLong(sortedUsers.size());
+            out.writeLong(sortedPets.size());
+            out.writeLong(userPetCount);
+            out.writeLong(stringsLength);
+            out.write(new byte[HEADER_SIZE - 48]);
+
+            int petsStart = 0;
+            for (int i = 0; i < sortedUsers.size(); i++) {
+                User user = sortedUsers.get(i);
+                int petsCount = petIndexesByUserId.getOrDefault(user.getId(), List.of()).size();
+                out.writeLong(user.getId());
+                out.writeInt(userStrings[i][0]);
+                out.writeInt(userStrings[i][1]);
+                out.writeInt(userStrings[i][2]);
+                out.writeInt(userStrings[i][3]);
+                out.writeInt(user.getAge() != null ? user.getAge() : NULL_INT);
+                out.writeInt(petsStart);
+                out.writeInt(petsCount);
+                out.writeInt(0);
+                petsStart += petsCount;
+            }
+
+            for (int i = 0; i < sortedPets.size(); i++) {
+                Pet pet = sortedPets.get(i);
+                out.writeLong(pet.getId());
+                out.writeLong(pet.getUserId());
+                out.writeInt(petNames[i][0]);
+                out.writeInt(petNames[i][1]);
+            }
+
+            for (User user : sortedUsers) {
+                for (int petIndex : petIndexesByUserId.getOrDefault(user.getId(), List.of())) {
+                    out.writeInt(petIndex);
+                }
+            }
+
+            for (byte[] string : strings) {
+                out.write(string);
+            }
+        }
+        Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Interns a string into the string table and returns its (offset, length).
+     */
+    private int[] ref(String value) {
+        if (value == null) {
+            return new int[]{-1, 0};
+        }
+        return stringRefs.computeIfAbsent(value, key -> {
+            byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+            if (stringsLength + bytes.length > Integer.MAX_VALUE) {
+                throw new IllegalStateException("Snapshot string table exceeds 2 GB");
+            }
+            int[] ref = new int[]{(int) stringsLength, bytes.length};
+            strings.add(bytes);
+            stringsLength += bytes.length;
+            return ref;
+        });
+    }
+}
@@ -0,0 +1,77 @@
+package ru.spring.mvc.tier;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Access counts of the users held in memory. Counts are halved on every {@link #decay()},
+ * so a user that was busy an hour ago does not outrank one that is busy now.
+ */
+@Component
+public class AccessTracker {
+
+    private final Map<Long, AtomicInteger> counts;
+    private final Counter hits;
+
+    public AccessTracker(MeterRegistry meterRegistry) {
+        this.counts = new ConcurrentHashMap<>();
+        this.hits = meterRegistry.counter("tier.hot.hits");
+    }
+
+    /**
+     * Records a read or write of an in-memory user.
+     */
+    public void record(long userId) {
+        AtomicInteger count = counts.get(userId);
+        if (count == null) {
+            count = counts.computeIfAbsent(userId, key -> new AtomicInteger());
+        }
+        count.incrementAndGet();
+        hits.increment();
+    }
+
+    public void forget(long userId) {
+        counts.remove(userId);
+    }
+
+    public void decay() {
+        for (AtomicInteger count : counts.values()) {
+            count.updateAndGet(value -> value >>> 1);
+        }
+    }
+
+    /**
+     * @return the given user ids, least accessed first
+     */
+    public List<Long> leastAccessedFirst(Collection<Long> userIds) {
+        // counts keep changing while sorting, so sort a copy of them
+        List<long[]> idsWithCounts = new ArrayList<>(userIds.size());
+        for (Long userId : userIds) {
+            idsWithCounts.add(new long[]{userId, countOf(userId)});
+        }
+        idsWithCounts.sort(Comparator.comparingLong(idWithCount -> idWithCount[1]));
+        List<Long> ordered = new ArrayList<>(idsWithCounts.size());
+        for (long[] idWithCount : idsWithCounts) {
+            ordered.add(idWithCount[0]);
+        }
+        return ordered;
+    }
+
+    public long getHitCount() {
+        return (long) hits.count();
+    }
+
+    private int countOf(long userId) {
+        AtomicInteger count = counts.get(userId);
+        return count == null ? 0 : count.get();
+    }
+}
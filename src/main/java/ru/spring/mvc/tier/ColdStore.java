@@ -0,0 +1,324 @@
+package ru.spring.mvc.tier;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.spring.mvc.model.Pet;
+import ru.spring.mvc.model.User;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * Cold tier of the user store: users demoted from memory are appended, together with their pets,
+ * to a log-structured file. Only the user-to-offset and pet-to-owner indexes stay on the heap, as
+ * primitive {@link LongLongMap}s. Removing a user leaves a dead record behind; the file is compacted
+ * once dead records outweigh live ones.
+ * <p>
+ * Reads and listings hold a read lock, so they run alongside each other; appends, removals and compaction
+ * hold the write lock. Index lookups take neither.
+ * <p>
+ * The file is scratch space for the running process and is recreated on every start.
+ * <pre>
+ * record   int length, long id, name, email, int age, int pet count, then per pet long id, name
+ * string   int length (-1 for null), UTF-8 bytes
+ * </pre>
+ */
+@Component
+public class ColdStore {
+
+    private static final Logger log = LoggerFactory.getLogger(ColdStore.class);
+
+    private static final int NULL_INT = Integer.MIN_VALUE;
+    private static final long MIN_COMPACTION_BYTES = 1 << 20;
+
+    private final Path file;
+    private final LongLongMap userOffsets;
+    private final LongLongMap petOwnerIds;
+    private final Timer loadTimer;
+    private final Counter compactions;
+    private final ReadWriteLock lock;
+
+    private FileChannel channel;
+    private volatile long fileSize;
+    private long liveBytes;
+
+    public ColdStore(@Value("${tier.cold.file:}") String file, MeterRegistry meterRegistry) throws IOException {
+        if (file.isBlank()) {
+            this.file = Files.createTempFile("cold-users", ".log");
+        } else {
+            this.file = Path.of(file);
+            if (this.file.getParent() != null) {
+                Files.createDirectories(this.file.getParent());
+            }
+        }
+        this.channel = open(this.file);
+        this.userOffsets = new LongLongMap();
+        this.petOwnerIds = new LongLongMap();
+        this.loadTimer = meterRegistry.timer("tier.cold.load");
+        this.compactions = meterRegistry.counter("tier.cold.compactions");
+        this.lock = new ReentrantReadWriteLock();
+        Gauge.builder("tier.cold.users", userOffsets, LongLongMap::size).register(meterRegistry);
+        Gauge.builder("tier.cold.file.bytes", this, ColdStore::getFileSize).register(meterRegistry);
+    }
+
+    private static FileChannel open(Path file) throws IOException {
+        return FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            channel.close();
+            Files.deleteIfExists(file);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean containsUser(long id) {
+        return userOffsets.containsKey(id);
+    }
+
+    public boolean containsPet(long id) {
+        return petOwnerIds.containsKey(id);
+    }
+
+    /**
+     * @return id of the cold user owning the pet, or {@code null} if the pet is not in the cold tier
+     */
+    public Long findPetOwnerId(long petId) {
+        long ownerId = petOwnerIds.get(petId);
+        return ownerId == LongLongMap.MISSING ? null : ownerId;
+    }
+
+    public int getUserCount() {
+        return userOffsets.size();
+    }
+
+    public long getFileSize() {
+        return fileSize;
+    }
+
+    /**
+     * Appends the user with its pets; the pets' {@code userId} is taken from the user.
+     */
+    public void putUser(User user) {
+        lock.writeLock().lock();
+        try {
+            byte[] record = encode(user);
+            long offset = fileSize;
+            writeFully(ByteBuffer.wrap(record), offset);
+            fileSize += record.length;
+            liveBytes += record.length;
+
+            long oldOffset = userOffsets.put(user.getId(), offset);
+            if (oldOffset != LongLongMap.MISSING) {
+                liveBytes -= recordLength(oldOffset);
+            }
+            for (Pet pet : user.getPets()) {
+                petOwnerIds.put(pet.getId(), user.getId());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Reads the user with its pets, leaving the record in place until {@link #discardUser} once the
+     * caller has published the loaded copy.
+     *
+     * @return the user with its pets, or {@code null}
+     */
+    public User findUser(long id) {
+        long start = System.nanoTime();
+        lock.readLock().lock();
+        try {
+            long offset = userOffsets.get(id);
+            if (offset == LongLongMap.MISSING) {
+                return null;
+            }
+            User user = read(offset);
+            loadTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return user;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Drops the user's record, after it was loaded or for a demotion that did not go through.
+     */
+    public void discardUser(long id) {
+        lock.writeLock().lock();
+        try {
+            long offset = userOffsets.get(id);
+            if (offset == LongLongMap.MISSING) {
+                return;
+            }
+            User user = read(offset);
+            userOffsets.remove(id);
+            for (Pet pet : user.getPets()) {
+                petOwnerIds.remove(pet.getId(), id);
+            }
+            liveBytes -= recordLength(offset);
+            compactIfNeeded();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void forEachUser(Consumer<User> action) {
+        lock.readLock().lock();
+        try {
+            for (long offset : userOffsets.values()) {
+                action.accept(read(offset));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long getLoadCount() {
+        return loadTimer.count();
+    }
+
+    private void compactIfNeeded() throws IOException {
+        long deadBytes = fileSize - liveBytes;
+        if (deadBytes < MIN_COMPACTION_BYTES || deadBytes < liveBytes) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        Path compactFile = file.resolveSibling(file.getFileName() + ".compact");
+        long compactSize = 0;
+        try (FileChannel target = open(compactFile)) {
+            for (long id : userOffsets.keys()) {
+                long offset = userOffsets.get(id);
+                int length = recordLength(offset);
+                ByteBuffer record = ByteBuffer.allocate(length);
+                readFully(record, offset);
+                record.flip();
+                while (record.hasRemaining()) {
+                    compactSize += target.write(record, compactSize);
+                }
+                userOffsets.put(id, compactSize - length);
+            }
+        }
+        channel.close();
+        Files.move(compactFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        log.info("Compacted cold store from {} to {} bytes in {} ms",
+                fileSize, compactSize, System.currentTimeMillis() - start);
+        fileSize = compactSize;
+        liveBytes = compactSize;
+        compactions.increment();
+    }
+
+    private int recordLength(long offset) throws IOException {
+        ByteBuffer length = ByteBuffer.allocate(Integer.BYTES);
+        readFully(length, offset);
+        return Integer.BYTES + length.getInt(0);
+    }
+
+    private User read(long offset) throws IOException {
+        ByteBuffer record = ByteBuffer.allocate(recordLength(offset));
+        readFully(record, offset);
+        record.flip().position(Integer.BYTES);
+
+        long id = record.getLong();
+        String name = readString(record);
+        String email = readString(record);
+        int age = record.getInt();
+        int petCount = record.getInt();
+        List<Pet> pets = new ArrayList<>(petCount);
+        for (int i = 0; i < petCount; i++) {
+            pets.add(new Pet(record.getLong(), readString(record), id));
+        }
+        return new User(id, name, email, age == NULL_INT ? null : age, pets);
+    }
+
+    private static byte[] encode(User user) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + user.getPets().size() * 24);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(0);
+        out.writeLong(user.getId());
+        writeString(out, user.getName());
+        writeString(out, user.getEmail());
+        out.writeInt(user.getAge() != null ? user.getAge() : NULL_INT);
+        out.writeInt(user.getPets().size());
+        for (Pet pet : user.getPets()) {
+            out.writeLong(pet.getId());
+            writeString(out, pet.getName());
+        }
+        byte[] record = bytes.toByteArray();
+        ByteBuffer.wrap(record).putInt(0, record.length - Integer.BYTES);
+        return record;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer record) {
+        int length = record.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        record.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private void writeFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new IOException("Unexpected end of cold store at " + position);
+            }
+            position += read;
+        }
+    }
+}
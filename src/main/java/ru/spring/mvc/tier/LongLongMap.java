@@ -0,0 +1,204 @@
+package ru.spring.mvc.tier;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Open-addressing hash map from non-negative {@code long} keys to non-negative {@code long} values, used for the
+ * cold tier's indexes. An entry takes two array slots instead of a map node with two boxed longs, so a cold user
+ * or pet costs the heap about 32 bytes at the default load factor. Methods hold an internal read-write lock only
+ * for the array access, never for I/O.
+ */
+final class LongLongMap {
+
+    /**
+     * Returned by lookups for a key that is not present.
+     */
+    static final long MISSING = -1L;
+
+    private static final long FREE = -1L;
+    private static final int MIN_CAPACITY = 16;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private long[] keys;
+    private long[] values;
+    private int size;
+
+    LongLongMap() {
+        allocate(MIN_CAPACITY);
+    }
+
+    long get(long key) {
+        lock.readLock().lock();
+        try {
+            int slot = find(key);
+            return slot < 0 ? MISSING : values[slot];
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    boolean containsKey(long key) {
+        return get(key) != MISSING;
+    }
+
+    /**
+     * @return previous value, or {@link #MISSING}
+     */
+    long put(long key, long value) {
+        if (key < 0 || value < 0) {
+            throw new IllegalArgumentException("Negative key " + key + " or value " + value);
+        }
+        lock.writeLock().lock();
+        try {
+            int slot = find(key);
+            if (slot >= 0) {
+                long previous = values[slot];
+                values[slot] = value;
+                return previous;
+            }
+            if ((size + 1) * 3L > keys.length * 2L) {
+                allocate(keys.length * 2);
+            }
+            insert(key, value);
+            size++;
+            return MISSING;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return removed value, or {@link #MISSING}
+     */
+    long remove(long key) {
+        lock.writeLock().lock();
+        try {
+            int slot = find(key);
+            if (slot < 0) {
+                return MISSING;
+            }
+            long previous = values[slot];
+            delete(slot);
+            return previous;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes the key only while it still maps to {@code value}.
+     */
+    boolean remove(long key, long value) {
+        lock.writeLock().lock();
+        try {
+            int slot = find(key);
+            if (slot < 0 || values[slot] != value) {
+                return false;
+            }
+            delete(slot);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return copy of the keys, in no particular order
+     */
+    long[] keys() {
+        return copy(keys);
+    }
+
+    /**
+     * @return copy of the values, in no particular order
+     */
+    long[] values() {
+        return copy(values);
+    }
+
+    private long[] copy(long[] source) {
+        lock.readLock().lock();
+        try {
+            long[] copy = new long[size];
+            int next = 0;
+            for (int slot = 0; slot < keys.length; slot++) {
+                if (keys[slot] != FREE) {
+                    copy[next++] = source[slot];
+                }
+            }
+            return copy;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private int find(long key) {
+        int mask = keys.length - 1;
+        for (int slot = home(key, mask); keys[slot] != FREE; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    private void insert(long key, long value) {
+        int mask = keys.length - 1;
+        int slot = home(key, mask);
+        while (keys[slot] != FREE) {
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+    }
+
+    /**
+     * Shifts the following entries of the probe run back, so lookups never need tombstones.
+     */
+    private void delete(int slot) {
+        int mask = keys.length - 1;
+        int gap = slot;
+        for (int next = (gap + 1) & mask; keys[next] != FREE; next = (next + 1) & mask) {
+            int home = home(keys[next], mask);
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                keys[gap] = keys[next];
+                values[gap] = values[next];
+                gap = next;
+            }
+        }
+        keys[gap] = FREE;
+        size--;
+    }
+
+    private void allocate(int capacity) {
+        long[] oldKeys = keys;
+        long[] oldValues = values;
+        keys = new long[capacity];
+        values = new long[capacity];
+        Arrays.fill(keys, FREE);
+        if (oldKeys != null) {
+            for (int slot = 0; slot < oldKeys.length; slot++) {
+                if (oldKeys[slot] != FREE) {
+                    insert(oldKeys[slot], oldValues[slot]);
+                }
+            }
+        }
+    }
+
+    private static int home(long key, int mask) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+}
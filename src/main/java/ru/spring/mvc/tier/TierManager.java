@@ -0,0 +1,97 @@
+package ru.spring.mvc.tier;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.spring.mvc.service.PetService;
+import ru.spring.mvc.service.UserService;
+
+/**
+ * Keeps the in-memory tier within {@code tier.hot.max-users} users and {@code tier.hot.max-pets} pets.
+ * Once either limit is exceeded, the least accessed users are moved with their pets to the
+ * {@link ColdStore} until both counts drop to {@code tier.hot.low-watermark} of their limit.
+ * Demoted users are loaded back on their next access.
+ */
+@Component
+public class TierManager {
+
+    private static final Logger log = LoggerFactory.getLogger(TierManager.class);
+
+    private final UserService userService;
+    private final PetService petService;
+    private final ColdStore coldStore;
+    private final AccessTracker accessTracker;
+    private final int maxHotUsers;
+    private final int maxHotPets;
+    private final double lowWatermark;
+    private final Counter demotions;
+
+    public TierManager(UserService userService,
+                       PetService petService,
+                       ColdStore coldStore,
+                       AccessTracker accessTracker,
+                       MeterRegistry meterRegistry,
+                       @Value("${tier.hot.max-users:100000}") int maxHotUsers,
+                       @Value("${tier.hot.max-pets:500000}") int maxHotPets,
+                       @Value("${tier.hot.low-watermark:0.9}") double lowWatermark) {
+        this.userService = userService;
+        this.petService = petService;
+        this.coldStore = coldStore;
+        this.accessTracker = accessTracker;
+        this.maxHotUsers = maxHotUsers;
+        this.maxHotPets = maxHotPets;
+        this.lowWatermark = lowWatermark;
+        this.demotions = meterRegistry.counter("tier.demotions");
+        Gauge.builder("tier.hot.users", userService, service -> service.getInMemoryUserIds().size())
+                .register(meterRegistry);
+        Gauge.builder("tier.hot.pets", petService, PetService::getInMemoryPetCount).register(meterRegistry);
+        Gauge.builder("tier.hot.hit-ratio", this, TierManager::getHitRatio).register(meterRegistry);
+    }
+
+    /**
+     * Share of user lookups served from memory rather than loaded from the cold tier.
+     */
+    public double getHitRatio() {
+        double hits = accessTracker.getHitCount();
+        double loads = coldStore.getLoadCount();
+        return hits + loads == 0 ? 1.0 : hits / (hits + loads);
+    }
+
+    /**
+     * @return number of users moved to the cold tier
+     */
+    @Scheduled(fixedDelayString = "${tier.demote-interval-ms:1000}")
+    public int demote() {
+        int demoted = 0;
+        if (overLimit(maxHotUsers, maxHotPets)) {
+            int targetUsers = (int) (maxHotUsers * lowWatermark);
+            int targetPets = (int) (maxHotPets * lowWatermark);
+            long start = System.currentTimeMillis();
+            for (Long userId : accessTracker.leastAccessedFirst(userService.getInMemoryUserIds())) {
+                if (!overLimit(targetUsers, targetPets)) {
+                    break;
+                }
+                if (userService.demoteUser(userId)) {
+                    demoted++;
+                }
+            }
+            demotions.increment(demoted);
+            log.info("Moved {} users to the cold tier in {} ms", demoted, System.currentTimeMillis() - start);
+        }
+        return demoted;
+    }
+
+    @Scheduled(fixedDelayString = "${tier.decay-interval-ms:60000}")
+    public void decay() {
+        accessTracker.decay();
+    }
+
+    private boolean overLimit(int users, int pets) {
+        return userService.getInMemoryUserIds().size() > users || petService.getInMemoryPetCount() > pets;
+    }
+}
@@ -0,0 +1,100 @@
+package ru.spring.mvc.util;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Function;
+
+/**
+ * Maps the entities of a full listing to DTOs, as in {@code GET /users} and {@code GET /pets}, on a dedicated
+ * {@link ForkJoinPool} kept apart from the common pool. The input is split into segments of
+ * {@code bulk.segment-size} elements that are mapped in parallel. Lists smaller than
+ * {@code bulk.parallel-threshold} are mapped on the calling thread, where forking costs more than it saves;
+ * see {@code BulkBenchmark} for the crossover.
+ */
+@Component
+public class BulkExecutor {
+
+    private final ForkJoinPool pool;
+    private final int parallelThreshold;
+    private final int segmentSize;
+
+    public BulkExecutor(@Value("${bulk.parallelism:0}") int parallelism,
+                        @Value("${bulk.parallel-threshold:20000}") int parallelThreshold,
+                        @Value("${bulk.segment-size:4096}") int segmentSize) {
+        this.pool = new ForkJoinPool(
+                parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors(),
+                forkJoinPool -> {
+                    ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(forkJoinPool);
+                    thread.setName("bulk-" + thread.getPoolIndex());
+                    return thread;
+                },
+                null,
+                false);
+        this.parallelThreshold = parallelThreshold;
+        this.segmentSize = segmentSize;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    /**
+     * Applies the mapper to every element; the result keeps the order of the source and is unmodifiable
+     * on both the sequential and the parallel path.
+     */
+    @SuppressWarnings("unchecked")
+    public <T, R> List<R> map(List<T> source, Function<? super T, ? extends R> mapper) {
+        if (source.size() < parallelThreshold) {
+            List<R> results = new ArrayList<>(source.size());
+            for (T element : source) {
+                results.add(mapper.apply(element));
+            }
+            return Collections.unmodifiableList(results);
+        }
+        Object[] results = new Object[source.size()];
+        pool.invoke(new SegmentTask(0, source.size(), (from, to) -> {
+            for (int i = from; i < to; i++) {
+                results[i] = mapper.apply(source.get(i));
+            }
+        }));
+        return Collections.unmodifiableList((List<R>) Arrays.asList(results));
+    }
+
+    @FunctionalInterface
+    private interface Segment {
+        void process(int from, int to);
+    }
+
+    private class SegmentTask extends RecursiveAction {
+
+        private final int from;
+        private final int to;
+        private final Segment segment;
+
+        SegmentTask(int from, int to, Segment segment) {
+            this.from = from;
+            this.to = to;
+            this.segment = segment;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= segmentSize) {
+                segment.process(from, to);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new SegmentTask(from, middle, segment), new SegmentTask(middle, to, segment));
+        }
+    }
+}
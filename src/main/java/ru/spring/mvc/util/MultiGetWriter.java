@@ -0,0 +1,87 @@
+package ru.spring.mvc.util;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Writes the result of a multi-get as {@code {"found": [...], "missing": [...]}} straight to the response
+ * with one JSON generator: found entities in the order their ids were requested, duplicates once,
+ * and the ids that do not exist. Each entity is converted as it is written, without an intermediate list.
+ */
+@Component
+public class MultiGetWriter {
+
+    private final ObjectMapper objectMapper;
+    private final int maxIds;
+
+    public MultiGetWriter(ObjectMapper objectMapper, @Value("${mget.max-ids:1000}") int maxIds) {
+        this.objectMapper = objectMapper;
+        this.maxIds = maxIds;
+    }
+
+    /**
+     * @throws IllegalArgumentException if more than {@code mget.max-ids} ids are requested
+     */
+    public void checkSize(List<Long> ids) {
+        if (ids.size() > maxIds) {
+            throw new IllegalArgumentException("At most " + maxIds + " ids can be requested at once, got " + ids.size());
+        }
+    }
+
+    public <T> void write(HttpServletResponse response,
+                          Map<Long, T> found,
+                          List<Long> requestedIds,
+                          Function<T, ?> converter) throws IOException {
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        try (JsonGenerator generator = objectMapper.createGenerator(response.getOutputStream())) {
+            generator.writeStartObject();
+            generator.writeArrayFieldStart("found");
+            for (T entity : found.values()) {
+                generator.writeObject(converter.apply(entity));
+            }
+            generator.writeEndArray();
+            generator.writeArrayFieldStart("missing");
+            for (Long id : missingIds(found, requestedIds)) {
+                generator.writeNumber(id);
+            }
+            generator.writeEndArray();
+            generator.writeEndObject();
+        }
+    }
+
+    /**
+     * The same document as an object, for the reactive controllers, which leave the encoding to WebFlux.
+     */
+    public <T> Map<String, List<?>> toDocument(Map<Long, T> found, List<Long> requestedIds, Function<T, ?> converter) {
+        List<Object> foundDtos = new ArrayList<>(found.size());
+        for (T entity : found.values()) {
+            foundDtos.add(converter.apply(entity));
+        }
+        Map<String, List<?>> document = new LinkedHashMap<>();
+        document.put("found", foundDtos);
+        document.put("missing", missingIds(found, requestedIds));
+        return document;
+    }
+
+    private static List<Long> missingIds(Map<Long, ?> found, List<Long> requestedIds) {
+        List<Long> missing = new ArrayList<>();
+        for (Long id : new LinkedHashSet<>(requestedIds)) {
+            if (!found.containsKey(id)) {
+                missing.add(id);
+            }
+        }
+        return missing;
+    }
+}
@@ -3,19 +3,28 @@ package ru.spring.mvc.util;
 import org.springframework.stereotype.Component;
 import ru.spring.mvc.dto.PetDto;
 import ru.spring.mvc.model.Pet;
+import ru.spring.mvc.profiling.ConversionEvent;
 
 @Component
 public class PetDtoConverter {
 
     public Pet convertToPet(PetDto petDto) {
-        return new Pet(petDto.getId(),
+        ConversionEvent event = new ConversionEvent();
+        event.begin();
+        Pet pet = new Pet(petDto.getId(),
                 petDto.getName(),
                 petDto.getUserId());
+        event.complete("PetDto->Pet", pet.getId(), 0);
+        return pet;
     }
 
     public PetDto convertToDto(Pet pet) {
-        return new PetDto(pet.getId(),
+        ConversionEvent event = new ConversionEvent();
+        event.begin();
+        PetDto petDto = new PetDto(pet.getId(),
                 pet.getName(),
                 pet.getUserId());
+        event.complete("Pet->PetDto", pet.getId(), 0);
+        return petDto;
     }
 }
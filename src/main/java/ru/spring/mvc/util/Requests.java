@@ -0,0 +1,28 @@
+package ru.spring.mvc.util;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+
+public final class Requests {
+
+    private static final String MULTI_GET_SUFFIX = "/_mget";
+
+    private Requests() {
+    }
+
+    /**
+     * GETs and multi-get POSTs, which carry their id list in the body but change nothing.
+     */
+    public static boolean isRead(HttpServletRequest request) {
+        return isRead(request.getMethod(), request.getRequestURI());
+    }
+
+    public static boolean isRead(ServerHttpRequest request) {
+        return isRead(request.getMethod().name(), request.getPath().value());
+    }
+
+    private static boolean isRead(String method, String path) {
+        return HttpMethod.GET.matches(method) || path.endsWith(MULTI_GET_SUFFIX);
+    }
+}
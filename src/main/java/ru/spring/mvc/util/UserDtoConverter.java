@@ -2,7 +2,12 @@ package ru.spring.mvc.util;
 
 import org.springframework.stereotype.Component;
 import ru.spring.mvc.dto.UserDto;
+import ru.spring.mvc.model.Pet;
 import ru.spring.mvc.model.User;
+import ru.spring.mvc.profiling.ConversionEvent;
+
+import java.util.ArrayList;
+import java.util.List;
 
 @Component
 public class UserDtoConverter {
@@ -14,18 +19,29 @@ public class UserDtoConverter {
     }
 
     public User convertToUser(UserDto userDto) {
-        return new User(userDto.getId(),
+        ConversionEvent event = new ConversionEvent();
+        event.begin();
+        List<Pet> pets = userDto.getPets() == null
+                ? new ArrayList<>()
+                : new ArrayList<>(userDto.getPets().stream().map(petDtoConverter::convertToPet).toList());
+        User user = new User(userDto.getId(),
                 userDto.getName(),
                 userDto.getEmail(),
                 userDto.getAge(),
-                userDto.getPets().stream().map(petDtoConverter::convertToPet).toList());
+                pets);
+        event.complete("UserDto->User", user.getId(), pets.size());
+        return user;
     }
 
     public UserDto convertToDto(User user) {
-        return new UserDto(user.getId(),
+        ConversionEvent event = new ConversionEvent();
+        event.begin();
+        UserDto userDto = new UserDto(user.getId(),
                 user.getName(),
                 user.getEmail(),
                 user.getAge(),
                 user.getPets().stream().map(petDtoConverter::convertToDto).toList());
+        event.complete("User->UserDto", user.getId(), userDto.getPets().size());
+        return userDto;
     }
 }
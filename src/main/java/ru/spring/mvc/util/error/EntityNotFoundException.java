@@ -0,0 +1,32 @@
+package ru.spring.mvc.util.error;
+
+import java.util.NoSuchElementException;
+
+/**
+ * Lookup miss for a domain entity. Misses are expected traffic (404s), so the exception
+ * skips stack trace capture and builds its message only when it is actually read.
+ */
+public class EntityNotFoundException extends NoSuchElementException {
+
+    private final String entityName;
+    private final long id;
+
+    public EntityNotFoundException(String entityName, long id) {
+        this.entityName = entityName;
+        this.id = id;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    @Override
+    public String getMessage() {
+        return entityName + " with id " + id + " not found";
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+}
@@ -2,22 +2,31 @@ package ru.spring.mvc.util.error;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
+import ru.spring.mvc.idempotency.IdempotencyKeyReusedException;
+import ru.spring.mvc.replication.ReplicaException;
+import ru.spring.mvc.slo.WriteShedException;
 
 import java.time.LocalDateTime;
 import java.util.NoSuchElementException;
+import java.util.concurrent.TimeUnit;
 
 @ControllerAdvice
 public class ErrorHandler {
 
     private static final Logger log = LoggerFactory.getLogger(ErrorHandler.class);
+    private static final RateLimitedLogger notFoundLog = new RateLimitedLogger(log, 1, TimeUnit.SECONDS);
+    private static final RateLimitedLogger badRequestLog = new RateLimitedLogger(log, 1, TimeUnit.SECONDS);
+    private static final RateLimitedLogger idempotencyLog = new RateLimitedLogger(log, 1, TimeUnit.SECONDS);
+    private static final RateLimitedLogger writeShedLog = new RateLimitedLogger(log, 1, TimeUnit.SECONDS);
 
     @ExceptionHandler(NoSuchElementException.class)
     private ResponseEntity<ServerErrorDto> handleNoSuchElementException(NoSuchElementException e) {
-        log.error(e.getMessage());
+        notFoundLog.info(e);
         ServerErrorDto errorMessage = new ServerErrorDto(
                 "Entity is not found",
                 e.getMessage(),
@@ -28,7 +37,7 @@ public class ErrorHandler {
 
     @ExceptionHandler(IllegalArgumentException.class)
     private ResponseEntity<ServerErrorDto> handleIllegalArgumentException(IllegalArgumentException e) {
-        log.error(e.getMessage());
+        badRequestLog.info(e);
         ServerErrorDto errorMessage = new ServerErrorDto(
                 "Wrong request parameters",
                 e.getMessage(),
@@ -37,6 +46,41 @@ public class ErrorHandler {
         return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(errorMessage);
     }
 
+    @ExceptionHandler(IdempotencyKeyReusedException.class)
+    private ResponseEntity<ServerErrorDto> handleIdempotencyKeyReusedException(IdempotencyKeyReusedException e) {
+        idempotencyLog.info(e);
+        ServerErrorDto errorMessage = new ServerErrorDto(
+                "Idempotency key is already used",
+                e.getMessage(),
+                LocalDateTime.now());
+
+        return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY).body(errorMessage);
+    }
+
+    @ExceptionHandler(ReplicaException.class)
+    private ResponseEntity<ServerErrorDto> handleReplicaException(ReplicaException e) {
+        log.warn(e.getMessage());
+        ServerErrorDto errorMessage = new ServerErrorDto(
+                "Replica cannot serve the request",
+                e.getMessage(),
+                LocalDateTime.now());
+
+        return ResponseEntity.status(e.getStatus()).body(errorMessage);
+    }
+
+    @ExceptionHandler(WriteShedException.class)
+    private ResponseEntity<ServerErrorDto> handleWriteShedException(WriteShedException e) {
+        writeShedLog.info(e);
+        ServerErrorDto errorMessage = new ServerErrorDto(
+                "Server is overloaded",
+                e.getMessage(),
+                LocalDateTime.now());
+
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(errorMessage);
+    }
+
     @ExceptionHandler(Exception.class)
     private ResponseEntity<ServerErrorDto> handleException(Exception e) {
         log.error(e.getMessage());
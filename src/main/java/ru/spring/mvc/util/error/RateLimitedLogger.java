@@ -0,0 +1,44 @@
+package ru.spring.mvc.util.error;
+
+import org.slf4j.Logger;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Logs at most one message per interval and reports how many were suppressed in between. Use one instance
+ * per kind of message, so a flood of one kind does not hide the others.
+ */
+class RateLimitedLogger {
+
+    private final Logger log;
+    private final long intervalNanos;
+    private final AtomicLong nextAllowedNanos;
+    private final LongAdder suppressed;
+
+    RateLimitedLogger(Logger log, long interval, TimeUnit unit) {
+        this.log = log;
+        this.intervalNanos = unit.toNanos(interval);
+        this.nextAllowedNanos = new AtomicLong(System.nanoTime());
+        this.suppressed = new LongAdder();
+    }
+
+    void info(Throwable e) {
+        if (!log.isInfoEnabled()) {
+            return;
+        }
+        long now = System.nanoTime();
+        long nextAllowed = nextAllowedNanos.get();
+        if (now - nextAllowed < 0 || !nextAllowedNanos.compareAndSet(nextAllowed, now + intervalNanos)) {
+            suppressed.increment();
+            return;
+        }
+        long suppressedCount = suppressed.sumThenReset();
+        if (suppressedCount > 0) {
+            log.info("{} ({} similar messages suppressed)", e.getMessage(), suppressedCount);
+        } else {
+            log.info(e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package ru.spring.mvc.util.error;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+
+/**
+ * Writes a {@link ServerErrorDto} response from a WebFlux filter. {@link ErrorHandler} does not see exceptions
+ * raised by filters, so those that reject a request answer with the same body through this writer.
+ */
+@Component
+public class ReactiveErrorWriter {
+
+    private final ObjectMapper objectMapper;
+
+    public ReactiveErrorWriter(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    public Mono<Void> write(ServerHttpResponse response, HttpStatus status, String message, String detailMessage) {
+        byte[] body;
+        try {
+            body = objectMapper.writeValueAsBytes(new ServerErrorDto(message, detailMessage, LocalDateTime.now()));
+        } catch (JsonProcessingException e) {
+            return Mono.error(e);
+        }
+        response.setStatusCode(status);
+        response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(body)));
+    }
+}
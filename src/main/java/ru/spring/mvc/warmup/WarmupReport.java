@@ -0,0 +1,14 @@
+package ru.spring.mvc.warmup;
+
+import java.util.Map;
+
+/**
+ * Outcome of a warm-up run.
+ *
+ * @param iterations        completed exchanges
+ * @param durationMillis    wall time of the run
+ * @param compileTimeMillis total JIT compilation time of the process when the run ended, or -1 if not monitored
+ * @param codeHeapBytes     used bytes per code heap when the run ended; compiled code is counted here
+ */
+public record WarmupReport(int iterations, long durationMillis, long compileTimeMillis, Map<String, Long> codeHeapBytes) {
+}
@@ -0,0 +1,118 @@
+package ru.spring.mvc.warmup;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import ru.spring.mvc.profiling.ProfiledJacksonHttpMessageConverter;
+
+import java.io.IOException;
+import java.lang.management.CompilationMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drives {@code warmup.iterations} synthetic create/read/update/delete exchanges through the user and pet
+ * controllers of a {@link WarmupSandbox} at startup, so the first real requests after a restart run
+ * compiled code instead of the interpreter. The run stops early after {@code warmup.max-duration-ms}.
+ * <p>
+ * Runners finish before the application reports {@code ReadinessState.ACCEPTING_TRAFFIC}, so
+ * {@code /actuator/health/readiness} stays down until the warm-up is over. A failed warm-up is logged
+ * and does not stop the application.
+ */
+@Component
+@Profile("!reactive")
+@ConditionalOnProperty(name = "warmup.enabled", havingValue = "true")
+public class WarmupRunner implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(WarmupRunner.class);
+
+    private final ObjectMapper objectMapper;
+    private final ProfiledJacksonHttpMessageConverter jsonConverter;
+    private final Validator validator;
+    private final int iterations;
+    private final long maxDurationMillis;
+
+    private volatile WarmupReport report;
+
+    public WarmupRunner(ObjectMapper objectMapper,
+                        ProfiledJacksonHttpMessageConverter jsonConverter,
+                        Validator validator,
+                        MeterRegistry meterRegistry,
+                        @Value("${warmup.iterations:10000}") int iterations,
+                        @Value("${warmup.max-duration-ms:30000}") long maxDurationMillis) {
+        this.objectMapper = objectMapper;
+        this.jsonConverter = jsonConverter;
+        this.validator = validator;
+        this.iterations = iterations;
+        this.maxDurationMillis = maxDurationMillis;
+        Gauge.builder("warmup.duration.ms", this, runner -> runner.report == null ? 0 : runner.report.durationMillis())
+                .register(meterRegistry);
+        Gauge.builder("warmup.iterations", this, runner -> runner.report == null ? 0 : runner.report.iterations())
+                .register(meterRegistry);
+        Gauge.builder("warmup.compile-time.ms", this,
+                        runner -> runner.report == null ? 0 : runner.report.compileTimeMillis())
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        warmUp();
+    }
+
+    public WarmupReport warmUp() {
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(maxDurationMillis);
+        int completed = 0;
+        try (WarmupSandbox sandbox = new WarmupSandbox(objectMapper, jsonConverter, validator)) {
+            while (completed < iterations && System.nanoTime() < deadline) {
+                sandbox.exchange(completed);
+                completed++;
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("Warm-up stopped after {} iterations: {}", completed, e.getMessage());
+        }
+        report = new WarmupReport(completed, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start),
+                compileTimeMillis(), codeHeapBytes());
+        log.info("Warmed up with {} iterations in {} ms; JIT compile time {} ms, code heaps {}",
+                report.iterations(), report.durationMillis(), report.compileTimeMillis(), report.codeHeapBytes());
+        return report;
+    }
+
+    /**
+     * @return the last run, or {@code null} before the first one
+     */
+    public WarmupReport getReport() {
+        return report;
+    }
+
+    private static long compileTimeMillis() {
+        CompilationMXBean compilation = ManagementFactory.getCompilationMXBean();
+        return compilation != null && compilation.isCompilationTimeMonitoringSupported()
+                ? compilation.getTotalCompilationTime()
+                : -1;
+    }
+
+    private static Map<String, Long> codeHeapBytes() {
+        Map<String, Long> codeHeaps = new LinkedHashMap<>();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.NON_HEAP
+                    && (pool.getName().startsWith("CodeHeap") || pool.getName().equals("Code Cache"))) {
+                codeHeaps.put(pool.getName(), pool.getUsage().getUsed());
+            }
+        }
+        return codeHeaps;
+    }
+}
@@ -0,0 +1,153 @@
+package ru.spring.mvc.warmup;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import jakarta.validation.groups.Default;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.GenericHttpMessageConverter;
+import ru.spring.mvc.controller.PetController;
+import ru.spring.mvc.controller.UserController;
+import ru.spring.mvc.dto.PetDto;
+import ru.spring.mvc.dto.UserDto;
+import ru.spring.mvc.dto.Views;
+import ru.spring.mvc.id.IdGenerator;
+import ru.spring.mvc.id.SequenceIdGenerator;
+import ru.spring.mvc.idempotency.IdempotencyCache;
+import ru.spring.mvc.mvcc.VersionManager;
+import ru.spring.mvc.replication.MutationLog;
+import ru.spring.mvc.service.PetService;
+import ru.spring.mvc.service.UserService;
+import ru.spring.mvc.snapshot.SnapshotStore;
+import ru.spring.mvc.tier.AccessTracker;
+import ru.spring.mvc.tier.ColdStore;
+import ru.spring.mvc.util.BulkExecutor;
+import ru.spring.mvc.util.FailFastValidation;
+import ru.spring.mvc.util.MultiGetWriter;
+import ru.spring.mvc.util.PetDtoConverter;
+import ru.spring.mvc.util.UserDtoConverter;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Controllers and services of users and pets wired in a context of their own, with their own mutation log,
+ * stores and meter registry, so warm-up traffic never reaches real data, replication or write-behind.
+ * Payloads go through the application's JSON converter and validator, as they would in a request.
+ */
+class WarmupSandbox implements AutoCloseable {
+
+    private final AnnotationConfigApplicationContext context;
+    private final UserController userController;
+    private final PetController petController;
+    private final GenericHttpMessageConverter<Object> jsonConverter;
+    private final Validator validator;
+    private final ByteArrayOutputStream buffer;
+
+    WarmupSandbox(ObjectMapper objectMapper, GenericHttpMessageConverter<Object> jsonConverter, Validator validator) {
+        this.context = new AnnotationConfigApplicationContext();
+        // pinned rather than inherited from the environment: the cold tier truncates its file on start
+        context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("warmup", Map.of(
+                "snapshot.file", "",
+                "tier.cold.file", "",
+                "replication.log.capacity", "1024",
+                "bulk.parallelism", "1")));
+        context.registerBean(SimpleMeterRegistry.class);
+        context.registerBean(ObjectMapper.class, () -> objectMapper);
+        context.registerBean("userIdGenerator", IdGenerator.class, SequenceIdGenerator::new);
+        context.registerBean("petIdGenerator", IdGenerator.class, SequenceIdGenerator::new);
+        context.register(MutationLog.class, SnapshotStore.class, ColdStore.class, AccessTracker.class,
+                BulkExecutor.class, FailFastValidation.class, VersionManager.class, IdempotencyCache.class, MultiGetWriter.class,
+                PetDtoConverter.class, UserDtoConverter.class, PetService.class, UserService.class,
+                UserController.class, PetController.class);
+        context.refresh();
+        this.userController = context.getBean(UserController.class);
+        this.petController = context.getBean(PetController.class);
+        this.jsonConverter = jsonConverter;
+        this.validator = validator;
+        this.buffer = new ByteArrayOutputStream(1024);
+    }
+
+    /**
+     * Creates, reads, updates and deletes one user with one pet, leaving the sandbox as it was.
+     */
+    void exchange(int iteration) throws IOException {
+        UserDto user = read(write(new UserDto(null, "warmup" + iteration, "warmup" + iteration + "@mail.ru",
+                1 + iteration % 100, null)), UserDto.class);
+        validate(user);
+        UserDto createdUser = userController.createUser(null, user).getBody();
+        write(createdUser);
+        write(userController.getUser(createdUser.getId(), null));
+
+        PetDto pet = read(write(new PetDto(null, "pet" + iteration, createdUser.getId())), PetDto.class);
+        validate(pet);
+        PetDto createdPet = petController.createPet(null, pet).getBody();
+        write(createdPet);
+        write(petController.getPetById(createdPet.getId(), null));
+
+        UserDto update = read(write(new UserDto(null, "renamed" + iteration, createdUser.getEmail(),
+                createdUser.getAge(), List.of(createdPet))), UserDto.class);
+        validate(update, Default.class, Views.Update.class);
+        write(userController.updateUser(createdUser.getId(), update).getBody());
+
+        petController.deletePet(createdPet.getId());
+        userController.deleteUser(createdUser.getId());
+    }
+
+    @Override
+    public void close() {
+        context.close();
+    }
+
+    private byte[] write(Object body) throws IOException {
+        buffer.reset();
+        HttpHeaders headers = new HttpHeaders();
+        jsonConverter.write(body, body.getClass(), MediaType.APPLICATION_JSON, new HttpOutputMessage() {
+            @Override
+            public OutputStream getBody() {
+                return buffer;
+            }
+
+            @Override
+            public HttpHeaders getHeaders() {
+                return headers;
+            }
+        });
+        return buffer.toByteArray();
+    }
+
+    private <T> T read(byte[] body, Class<T> type) throws IOException {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        return type.cast(jsonConverter.read(type, null, new HttpInputMessage() {
+            @Override
+            public InputStream getBody() {
+                return new ByteArrayInputStream(body);
+            }
+
+            @Override
+            public HttpHeaders getHeaders() {
+                return headers;
+            }
+        }));
+    }
+
+    private <T> void validate(T dto, Class<?>... groups) {
+        Set<ConstraintViolation<T>> violations = validator.validate(dto, groups);
+        if (!violations.isEmpty()) {
+            throw new IllegalStateException("Warm-up payload is invalid: " + violations);
+        }
+    }
+}
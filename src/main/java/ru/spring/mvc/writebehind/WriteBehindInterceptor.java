@@ -0,0 +1,35 @@
+package ru.spring.mvc.writebehind;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+import ru.spring.mvc.idempotency.IdempotencyCache;
+import ru.spring.mvc.util.Requests;
+
+/**
+ * Holds writes back while the {@link WriteBehindStore} queue is full, before they change anything.
+ * Replays of cached idempotent writes pass, as they change nothing.
+ */
+@Component
+@ConditionalOnProperty(name = "writebehind.enabled", havingValue = "true")
+public class WriteBehindInterceptor implements HandlerInterceptor {
+
+    private final WriteBehindStore writeBehindStore;
+    private final IdempotencyCache idempotencyCache;
+
+    public WriteBehindInterceptor(WriteBehindStore writeBehindStore, IdempotencyCache idempotencyCache) {
+        this.writeBehindStore = writeBehindStore;
+        this.idempotencyCache = idempotencyCache;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler)
+            throws InterruptedException {
+        if (!Requests.isRead(request) && !idempotencyCache.isReplay(request)) {
+            writeBehindStore.awaitCapacity();
+        }
+        return true;
+    }
+}
@@ -0,0 +1,316 @@
+package ru.spring.mvc.writebehind;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.spring.mvc.model.Pet;
+import ru.spring.mvc.model.User;
+import ru.spring.mvc.replication.MutationEntry;
+import ru.spring.mvc.replication.MutationLog;
+import ru.spring.mvc.service.PetService;
+import ru.spring.mvc.service.UserService;
+import ru.spring.mvc.slo.WriteShedException;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Mirrors users and pets into a relational database for reporting, off the request path. Every entry appended
+ * to the {@link MutationLog} is queued by entity id, so repeated changes of one entity before a flush collapse
+ * into one row write. Every {@code writebehind.flush-interval-ms} the queue is written with JDBC batches of
+ * {@code writebehind.batch-size} statements, one transaction per batch. On failure the batch is queued again
+ * unless the entity changed since. The first flush replaces the tables' content with the current state.
+ * <p>
+ * Writes wait in {@link #awaitCapacity()} while {@code writebehind.max-pending} entities are queued.
+ */
+@Component
+@ConditionalOnProperty(name = "writebehind.enabled", havingValue = "true")
+public class WriteBehindStore {
+
+    private static final Logger log = LoggerFactory.getLogger(WriteBehindStore.class);
+
+    private static final String[] SCHEMA = {
+            "CREATE TABLE IF NOT EXISTS users (id BIGINT PRIMARY KEY, name VARCHAR(255), email VARCHAR(255), age INT)",
+            "CREATE TABLE IF NOT EXISTS pets (id BIGINT PRIMARY KEY, name VARCHAR(255), user_id BIGINT)",
+            "CREATE INDEX IF NOT EXISTS pets_user_id ON pets (user_id)"
+    };
+    private static final String UPSERT_USER = "MERGE INTO users (id, name, email, age) KEY (id) VALUES (?, ?, ?, ?)";
+    private static final String DELETE_USER = "DELETE FROM users WHERE id = ?";
+    private static final String UPSERT_PET = "MERGE INTO pets (id, name, user_id) KEY (id) VALUES (?, ?, ?)";
+    private static final String DELETE_PET = "DELETE FROM pets WHERE id = ?";
+
+    private final UserService userService;
+    private final PetService petService;
+    private final MutationLog mutationLog;
+    private final Connection connection;
+    private final int batchSize;
+    private final int maxPending;
+    private final long backpressureTimeoutMillis;
+    private final Map<Long, MutationEntry> pendingUsers;
+    private final Map<Long, MutationEntry> pendingPets;
+    private final AtomicLong oldestPendingMillis;
+    private final Object capacityLock;
+    private final Timer flushTimer;
+    private final Counter flushedRows;
+    private final Counter coalesced;
+    private final Counter failures;
+    private final Counter throttled;
+
+    private volatile int inFlight;
+    private volatile long flushedSequence;
+    private boolean synced;
+
+    public WriteBehindStore(UserService userService,
+                            PetService petService,
+                            MutationLog mutationLog,
+                            MeterRegistry meterRegistry,
+                            @Value("${writebehind.url:jdbc:h2:file:./data/petstore}") String url,
+                            @Value("${writebehind.batch-size:500}") int batchSize,
+                            @Value("${writebehind.max-pending:100000}") int maxPending,
+                            @Value("${writebehind.backpressure-timeout-ms:500}") long backpressureTimeoutMillis)
+            throws SQLException {
+        this.userService = userService;
+        this.petService = petService;
+        this.mutationLog = mutationLog;
+        this.batchSize = batchSize;
+        this.maxPending = maxPending;
+        this.backpressureTimeoutMillis = backpressureTimeoutMillis;
+        this.pendingUsers = new ConcurrentHashMap<>();
+        this.pendingPets = new ConcurrentHashMap<>();
+        this.oldestPendingMillis = new AtomicLong();
+        this.capacityLock = new Object();
+        this.flushTimer = meterRegistry.timer("writebehind.flush");
+        this.flushedRows = meterRegistry.counter("writebehind.flushed.rows");
+        this.coalesced = meterRegistry.counter("writebehind.coalesced");
+        this.failures = meterRegistry.counter("writebehind.flush.failures");
+        this.throttled = meterRegistry.counter("writebehind.throttled");
+        Gauge.builder("writebehind.pending", this, WriteBehindStore::getPendingCount).register(meterRegistry);
+        Gauge.builder("writebehind.lag.millis", this, WriteBehindStore::getLagMillis).register(meterRegistry);
+        Gauge.builder("writebehind.lag.entries", this,
+                        store -> Math.max(0, store.mutationLog.getAppliedSequence() - store.flushedSequence))
+                .register(meterRegistry);
+
+        this.connection = DriverManager.getConnection(url);
+        try (Statement statement = connection.createStatement()) {
+            for (String ddl : SCHEMA) {
+                statement.execute(ddl);
+            }
+        }
+        connection.setAutoCommit(false);
+        mutationLog.addListener(this::enqueue);
+    }
+
+    @PreDestroy
+    public void close() throws SQLException {
+        flush();
+        synchronized (this) {
+            connection.close();
+        }
+    }
+
+    private void enqueue(MutationEntry entry) {
+        Map<Long, MutationEntry> pending = switch (entry.type()) {
+            case USER_UPSERT, USER_DELETE -> pendingUsers;
+            case PET_UPSERT, PET_DELETE -> pendingPets;
+        };
+        if (pending.put(entry.id(), entry) != null) {
+            coalesced.increment();
+        }
+        oldestPendingMillis.compareAndSet(0, entry.timestampMillis());
+    }
+
+    /**
+     * Waits while the queue is full.
+     *
+     * @throws WriteShedException if it stayed full for {@code writebehind.backpressure-timeout-ms}
+     */
+    public void awaitCapacity() throws InterruptedException {
+        if (getPendingCount() < maxPending) {
+            return;
+        }
+        long deadline = System.currentTimeMillis() + backpressureTimeoutMillis;
+        synchronized (capacityLock) {
+            while (getPendingCount() >= maxPending) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    throttled.increment();
+                    throw new WriteShedException("Write-behind queue is full");
+                }
+                capacityLock.wait(remaining);
+            }
+        }
+    }
+
+    public int getPendingCount() {
+        return pendingUsers.size() + pendingPets.size() + inFlight;
+    }
+
+    /**
+     * Age of the oldest change not yet written to the database.
+     */
+    public long getLagMillis() {
+        long oldest = oldestPendingMillis.get();
+        return oldest == 0 ? 0 : System.currentTimeMillis() - oldest;
+    }
+
+    /**
+     * @return number of rows written or deleted
+     */
+    @Scheduled(fixedDelayString = "${writebehind.flush-interval-ms:500}")
+    public synchronized int flush() {
+        long start = System.nanoTime();
+        // everything up to this sequence has been queued, so it is in the database once the drained entries are
+        long sequence = mutationLog.getAppliedSequence();
+        long oldest = oldestPendingMillis.getAndSet(0);
+        List<MutationEntry> users = drain(pendingUsers);
+        List<MutationEntry> pets = drain(pendingPets);
+        inFlight = users.size() + pets.size();
+        try {
+            if (!synced) {
+                synchronize();
+                synced = true;
+            }
+            int rows = write(users, UPSERT_USER, DELETE_USER) + write(pets, UPSERT_PET, DELETE_PET);
+            flushedRows.increment(rows);
+            flushedSequence = sequence;
+            return rows;
+        } catch (SQLException e) {
+            rollback();
+            requeue(users, pendingUsers);
+            requeue(pets, pendingPets);
+            if (oldest != 0) {
+                oldestPendingMillis.accumulateAndGet(oldest, (current, restored) ->
+                        current == 0 ? restored : Math.min(current, restored));
+            }
+            failures.increment();
+            log.warn("Write-behind flush of {} entries failed, will retry: {}", inFlight, e.getMessage());
+            return 0;
+        } finally {
+            inFlight = 0;
+            flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            synchronized (capacityLock) {
+                capacityLock.notifyAll();
+            }
+        }
+    }
+
+    private static List<MutationEntry> drain(Map<Long, MutationEntry> pending) {
+        List<MutationEntry> drained = new ArrayList<>(pending.size());
+        for (Long id : pending.keySet()) {
+            MutationEntry entry = pending.remove(id);
+            if (entry != null) {
+                drained.add(entry);
+            }
+        }
+        return drained;
+    }
+
+    private static void requeue(List<MutationEntry> entries, Map<Long, MutationEntry> pending) {
+        for (MutationEntry entry : entries) {
+            pending.putIfAbsent(entry.id(), entry);
+        }
+    }
+
+    private int write(List<MutationEntry> entries, String upsertSql, String deleteSql) throws SQLException {
+        int rows = 0;
+        try (PreparedStatement upsert = connection.prepareStatement(upsertSql);
+             PreparedStatement delete = connection.prepareStatement(deleteSql)) {
+            int inBatch = 0;
+            for (MutationEntry entry : entries) {
+                switch (entry.type()) {
+                    case USER_UPSERT -> bindUser(upsert, entry.id(), entry.name(), entry.email(), entry.age());
+                    case PET_UPSERT -> bindPet(upsert, entry.id(), entry.name(), entry.userId());
+                    case USER_DELETE, PET_DELETE -> {
+                        delete.setLong(1, entry.id());
+                        delete.addBatch();
+                    }
+                }
+                rows++;
+                if (++inBatch == batchSize) {
+                    executeBatch(upsert, delete);
+                    inBatch = 0;
+                }
+            }
+            if (inBatch > 0) {
+                executeBatch(upsert, delete);
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Replaces the tables' content with the current users and pets, which the database may have missed
+     * while the application was down.
+     */
+    private void synchronize() throws SQLException {
+        long start = System.currentTimeMillis();
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DELETE FROM pets");
+            statement.execute("DELETE FROM users");
+        }
+        int users = 0;
+        int pets = 0;
+        try (PreparedStatement upsertUser = connection.prepareStatement(UPSERT_USER);
+             PreparedStatement upsertPet = connection.prepareStatement(UPSERT_PET)) {
+            for (User user : userService.getAllUsers()) {
+                bindUser(upsertUser, user.getId(), user.getName(), user.getEmail(), user.getAge());
+                if (++users % batchSize == 0) {
+                    executeBatch(upsertUser);
+                }
+            }
+            for (Pet pet : petService.getAllPets()) {
+                bindPet(upsertPet, pet.getId(), pet.getName(), pet.getUserId());
+                if (++pets % batchSize == 0) {
+                    executeBatch(upsertPet);
+                }
+            }
+            executeBatch(upsertUser, upsertPet);
+        }
+        log.info("Copied {} users and {} pets to the reporting database in {} ms",
+                users, pets, System.currentTimeMillis() - start);
+    }
+
+    private static void bindUser(PreparedStatement upsert, long id, String name, String email, Integer age)
+            throws SQLException {
+        upsert.setLong(1, id);
+        upsert.setString(2, name);
+        upsert.setString(3, email);
+        upsert.setObject(4, age, Types.INTEGER);
+        upsert.addBatch();
+    }
+
+    private static void bindPet(PreparedStatement upsert, long id, String name, Long userId) throws SQLException {
+        upsert.setLong(1, id);
+        upsert.setString(2, name);
+        upsert.setObject(3, userId, Types.BIGINT);
+        upsert.addBatch();
+    }
+
+    private void executeBatch(PreparedStatement... statements) throws SQLException {
+        for (PreparedStatement statement : statements) {
+            statement.executeBatch();
+        }
+        connection.commit();
+    }
+
+    private void rollback() {
+        try {
+            connection.rollback();
+        } catch (SQLException e) {
+            log.warn("Write-behind rollback failed: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package ru.spring.mvc.accesslog;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AccessLogWriterTest {
+
+    private static final int MAX_FILE_SIZE = 4096;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void truncatesSingleFileAtSizeLimit() throws Exception {
+        Path file = directory.resolve("access.log");
+        AccessLogWriter writer = new AccessLogWriter(1024, "block", 1, file.toString(), MAX_FILE_SIZE, 1,
+                new SimpleMeterRegistry());
+        writer.start();
+        for (int i = 0; i < 500; i++) {
+            // non-ASCII path: the size limit is in bytes, not chars
+            writer.offer(new AccessLogRecord(i, "GET", "/пользователи/" + i, 200, 1000, null));
+        }
+        writer.stop();
+
+        try (var files = Files.list(directory)) {
+            assertEquals(1, files.count());
+        }
+        assertTrue(Files.size(file) < MAX_FILE_SIZE);
+        assertTrue(Files.readString(file, StandardCharsets.UTF_8).endsWith("}\n"));
+    }
+
+    @Test
+    void keepsRolledFiles() throws Exception {
+        Path file = directory.resolve("access.log");
+        AccessLogWriter writer = new AccessLogWriter(1024, "block", 1, file.toString(), MAX_FILE_SIZE, 3,
+                new SimpleMeterRegistry());
+        writer.start();
+        for (int i = 0; i < 500; i++) {
+            writer.offer(new AccessLogRecord(i, "GET", "/users/" + i, 200, 1000, null));
+        }
+        writer.stop();
+
+        assertTrue(Files.exists(directory.resolve("access.log.1")));
+        assertTrue(Files.exists(directory.resolve("access.log.2")));
+        assertFalse(Files.exists(directory.resolve("access.log.3")));
+    }
+}
@@ -0,0 +1,57 @@
+package ru.spring.mvc.benchmark;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import ru.spring.mvc.accesslog.AccessLogRecord;
+import ru.spring.mvc.accesslog.AccessLogWriter;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency the access log adds to a request thread: building the record and handing it to the queue.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class AccessLogBenchmark {
+
+    private AccessLogWriter accessLogWriter;
+    private Path directory;
+
+    @Setup
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("access-log-benchmark");
+        accessLogWriter = new AccessLogWriter(65536, "drop", 512,
+                directory.resolve("access.log").toString(), 10_485_760, 2, new SimpleMeterRegistry());
+        accessLogWriter.start();
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        accessLogWriter.stop();
+    }
+
+    @Benchmark
+    public boolean offer() {
+        return accessLogWriter.offer(new AccessLogRecord(
+                System.currentTimeMillis(), "GET", "/users/42", 200, 12_345, "42"));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(AccessLogBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
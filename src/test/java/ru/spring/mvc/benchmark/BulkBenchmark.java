@@ -0,0 +1,80 @@
+package ru.spring.mvc.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import ru.spring.mvc.dto.UserDto;
+import ru.spring.mvc.model.Pet;
+import ru.spring.mvc.model.User;
+import ru.spring.mvc.util.BulkExecutor;
+import ru.spring.mvc.util.PetDtoConverter;
+import ru.spring.mvc.util.UserDtoConverter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Converting the whole user list to DTOs, as GET /users does, on the calling thread against the
+ * segmented fork-join path. The size at which {@code parallel} overtakes {@code sequential}
+ * is a good value for {@code bulk.parallel-threshold} on the target machine.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BulkBenchmark {
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    private int userCount;
+
+    @Param({"4096"})
+    private int segmentSize;
+
+    private List<User> users;
+    private UserDtoConverter userDtoConverter;
+    private BulkExecutor sequentialExecutor;
+    private BulkExecutor parallelExecutor;
+
+    @Setup
+    public void setUp() {
+        users = new ArrayList<>(userCount);
+        for (long id = 1; id <= userCount; id++) {
+            List<Pet> pets = new ArrayList<>();
+            for (long petId = 0; petId < id % 4; petId++) {
+                pets.add(new Pet(id * 4 + petId, "pet" + petId, id));
+            }
+            users.add(new User(id, "user" + id, "user" + id + "@mail.ru", (int) (id % 90), pets));
+        }
+        userDtoConverter = new UserDtoConverter(new PetDtoConverter());
+        sequentialExecutor = new BulkExecutor(0, Integer.MAX_VALUE, segmentSize);
+        parallelExecutor = new BulkExecutor(0, 0, segmentSize);
+    }
+
+    @TearDown
+    public void tearDown() {
+        sequentialExecutor.shutdown();
+        parallelExecutor.shutdown();
+    }
+
+    @Benchmark
+    public List<UserDto> sequential() {
+        return sequentialExecutor.map(users, userDtoConverter::convertToDto);
+    }
+
+    @Benchmark
+    public List<UserDto> parallel() {
+        return parallelExecutor.map(users, userDtoConverter::convertToDto);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(BulkBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,82 @@
+package ru.spring.mvc.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import ru.spring.mvc.id.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Id allocation throughput with eight threads allocating at once: the previous synchronized counter,
+ * the shared atomic sequence and the thread-local block generators over both block sources.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(8)
+@Fork(1)
+public class IdGeneratorBenchmark {
+
+    @Param({"100", "1000"})
+    private int blockSize;
+
+    private long counter;
+    private IdGenerator sequence;
+    private IdGenerator snowflake;
+    private IdGenerator file;
+    private FileIdBlockSource fileSource;
+    private Path directory;
+
+    @Setup
+    public void setUp() throws IOException {
+        sequence = new SequenceIdGenerator();
+        snowflake = new BlockLeasingIdGenerator(new SnowflakeIdBlockSource(1), blockSize);
+        directory = Files.createTempDirectory("ids");
+        fileSource = new FileIdBlockSource(directory.resolve("users.hwm"));
+        file = new BlockLeasingIdGenerator(fileSource, blockSize);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        fileSource.close();
+        Files.deleteIfExists(directory.resolve("users.hwm"));
+        Files.deleteIfExists(directory);
+    }
+
+    @Benchmark
+    public long synchronizedCounter() {
+        synchronized (this) {
+            return ++counter;
+        }
+    }
+
+    @Benchmark
+    public long sequence() {
+        return sequence.nextId();
+    }
+
+    @Benchmark
+    public long snowflakeBlocks() {
+        return snowflake.nextId();
+    }
+
+    @Benchmark
+    public long fileBlocks() {
+        return file.nextId();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(IdGeneratorBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
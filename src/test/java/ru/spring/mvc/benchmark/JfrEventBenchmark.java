@@ -0,0 +1,101 @@
+package ru.spring.mvc.benchmark;
+
+import jdk.jfr.Recording;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import ru.spring.mvc.dto.PetDto;
+import ru.spring.mvc.dto.UserDto;
+import ru.spring.mvc.model.Pet;
+import ru.spring.mvc.model.User;
+import ru.spring.mvc.profiling.ConversionEvent;
+import ru.spring.mvc.util.PetDtoConverter;
+import ru.spring.mvc.util.UserDtoConverter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the JFR events in the DTO converters: the instrumented converters against the same conversion
+ * without events, with no recording running and with one recording the events. With no recording
+ * the instrumented and plain variants should be within noise of each other.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JfrEventBenchmark {
+
+    @Param({"false", "true"})
+    private boolean recording;
+
+    private PetDtoConverter petDtoConverter;
+    private UserDtoConverter userDtoConverter;
+    private Pet pet;
+    private User user;
+    private Recording jfrRecording;
+
+    @Setup
+    public void setUp() {
+        petDtoConverter = new PetDtoConverter();
+        userDtoConverter = new UserDtoConverter(petDtoConverter);
+        pet = new Pet(1L, "pet", 1L);
+        List<Pet> pets = new ArrayList<>();
+        for (long i = 0; i < 10; i++) {
+            pets.add(new Pet(i, "pet" + i, 1L));
+        }
+        user = new User(1L, "user", "user@mail.ru", 30, pets);
+        if (recording) {
+            jfrRecording = new Recording();
+            jfrRecording.setToDisk(false);
+            jfrRecording.setMaxSize(16 << 20);
+            jfrRecording.enable(ConversionEvent.class);
+            jfrRecording.start();
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (jfrRecording != null) {
+            jfrRecording.close();
+        }
+    }
+
+    @Benchmark
+    public PetDto petPlain() {
+        return new PetDto(pet.getId(), pet.getName(), pet.getUserId());
+    }
+
+    @Benchmark
+    public PetDto petInstrumented() {
+        return petDtoConverter.convertToDto(pet);
+    }
+
+    @Benchmark
+    public UserDto userPlain() {
+        return new UserDto(user.getId(),
+                user.getName(),
+                user.getEmail(),
+                user.getAge(),
+                user.getPets().stream()
+                        .map(userPet -> new PetDto(userPet.getId(), userPet.getName(), userPet.getUserId()))
+                        .toList());
+    }
+
+    @Benchmark
+    public UserDto userInstrumented() {
+        return userDtoConverter.convertToDto(user);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(JfrEventBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
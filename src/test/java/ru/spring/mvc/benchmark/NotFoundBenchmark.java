@@ -0,0 +1,86 @@
+package ru.spring.mvc.benchmark;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import ru.spring.mvc.id.SequenceIdGenerator;
+import ru.spring.mvc.model.User;
+import ru.spring.mvc.mvcc.VersionManager;
+import ru.spring.mvc.replication.MutationLog;
+import ru.spring.mvc.service.PetService;
+import ru.spring.mvc.service.UserService;
+import ru.spring.mvc.snapshot.SnapshotStore;
+import ru.spring.mvc.tier.AccessTracker;
+import ru.spring.mvc.tier.ColdStore;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 404 throughput of a user lookup through the current {@link UserService} with {@code EntityNotFoundException}.
+ * The baseline is synthetic: a plain map with the containsKey + stack-capturing exception pattern the service
+ * used before, not the previous service itself, so it shows the cost of the exception rather than of the
+ * service's other lookup work.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NotFoundBenchmark {
+
+    private Map<Long, User> baselineUsers;
+    private UserService userService;
+    private long missingId;
+
+    @Setup
+    public void setUp() throws IOException {
+        baselineUsers = new HashMap<>();
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        MutationLog mutationLog = new MutationLog(1024, meterRegistry);
+        SnapshotStore snapshotStore = new SnapshotStore("");
+        ColdStore coldStore = new ColdStore("", meterRegistry);
+        AccessTracker accessTracker = new AccessTracker(meterRegistry);
+        VersionManager versionManager = new VersionManager(mutationLog, meterRegistry);
+        PetService petService = new PetService(null, mutationLog, snapshotStore, coldStore, accessTracker,
+                new SequenceIdGenerator(), versionManager);
+        userService = new UserService(petService, mutationLog, snapshotStore, coldStore, accessTracker,
+                new SequenceIdGenerator(), versionManager, 1000);
+        missingId = Long.MAX_VALUE;
+    }
+
+    @Benchmark
+    public Object syntheticBaselineMiss() {
+        try {
+            if (!baselineUsers.containsKey(missingId)) {
+                throw new NoSuchElementException("User with id " + missingId + " not found");
+            }
+            return baselineUsers.get(missingId);
+        } catch (NoSuchElementException e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    public Object currentMiss() {
+        try {
+            return userService.getUserById(missingId);
+        } catch (NoSuchElementException e) {
+            return e;
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(NotFoundBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
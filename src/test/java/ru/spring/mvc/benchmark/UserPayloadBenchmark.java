@@ -0,0 +1,88 @@
+package ru.spring.mvc.benchmark;
+
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import jakarta.validation.groups.Default;
+import org.hibernate.validator.HibernateValidatorConfiguration;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import ru.spring.mvc.dto.PetDto;
+import ru.spring.mvc.dto.UserDto;
+import ru.spring.mvc.dto.Views;
+import ru.spring.mvc.model.User;
+import ru.spring.mvc.util.PetDtoConverter;
+import ru.spring.mvc.util.UserDtoConverter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of reading, validating and converting a POST /users body as the number of embedded pets grows:
+ * the full pipeline against the create view, which skips the pet list while parsing.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserPayloadBenchmark {
+
+    @Param({"0", "10", "100", "1000", "10000"})
+    private int petCount;
+
+    private byte[] body;
+    private ObjectReader fullReader;
+    private ObjectReader createReader;
+    private Validator validator;
+    private UserDtoConverter userDtoConverter;
+
+    @Setup
+    public void setUp() throws Exception {
+        ObjectMapper objectMapper = JsonMapper.builder()
+                .disable(MapperFeature.DEFAULT_VIEW_INCLUSION)
+                .build();
+        List<PetDto> pets = new ArrayList<>();
+        for (int i = 0; i < petCount; i++) {
+            pets.add(new PetDto((long) i, "pet" + i, 1L));
+        }
+        body = objectMapper.writeValueAsBytes(new UserDto(null, "test", "test@mail.ru", 30, pets));
+        fullReader = objectMapper.readerFor(UserDto.class);
+        createReader = objectMapper.readerFor(UserDto.class).withView(Views.Create.class);
+        validator = Validation.byDefaultProvider()
+                .configure()
+                .addProperty(HibernateValidatorConfiguration.FAIL_FAST, "true")
+                .buildValidatorFactory()
+                .getValidator();
+        userDtoConverter = new UserDtoConverter(new PetDtoConverter());
+    }
+
+    @Benchmark
+    public User fullPipeline() throws Exception {
+        UserDto userDto = fullReader.readValue(body);
+        validator.validate(userDto, Default.class, Views.Update.class);
+        return userDtoConverter.convertToUser(userDto);
+    }
+
+    @Benchmark
+    public User createView() throws Exception {
+        UserDto userDto = createReader.readValue(body);
+        validator.validate(userDto);
+        return userDtoConverter.convertToUser(userDto);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(UserPayloadBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
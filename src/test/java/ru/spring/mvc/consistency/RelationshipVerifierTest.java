@@ -0,0 +1,47 @@
+package ru.spring.mvc.consistency;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import ru.spring.mvc.model.Pet;
+import ru.spring.mvc.model.User;
+import ru.spring.mvc.service.PetService;
+import ru.spring.mvc.service.UserService;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = "consistency.repair=true")
+class RelationshipVerifierTest {
+
+    @Autowired
+    private RelationshipVerifier relationshipVerifier;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private PetService petService;
+
+    @Test
+    void repairsDriftedPetList() {
+        User user = userService.createUser(new User(
+                null,
+                "test",
+                "test@mail.ru",
+                99,
+                List.of()
+        ));
+        Pet pet = petService.createPet(new Pet(null, "test", user.getId()));
+
+        userService.replacePets(user.getId(), List.of());
+
+        assertTrue(relationshipVerifier.verify() >= 1);
+        assertEquals(List.of(pet.getId()),
+                userService.getUserById(user.getId()).getPets().stream().map(Pet::getId).toList());
+        assertEquals(0, relationshipVerifier.verify());
+
+        userService.deleteUser(user.getId());
+    }
+}
@@ -0,0 +1,132 @@
+package ru.spring.mvc.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.spring.mvc.export.ExportFile;
+import ru.spring.mvc.export.ExportService;
+import ru.spring.mvc.model.Pet;
+import ru.spring.mvc.model.User;
+import ru.spring.mvc.replication.MutationLog;
+import ru.spring.mvc.service.PetService;
+import ru.spring.mvc.service.UserService;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class ExportControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private ExportService exportService;
+
+    @Autowired
+    private PetService petService;
+
+    @Autowired
+    private MutationLog mutationLog;
+
+    @Test
+    void servesLatestExport() throws Exception {
+        User user = userService.createUser(new User(null, "exported", "exported@mail.ru", 40, List.of()));
+        exportService.export();
+        ExportFile export = exportService.getLatest();
+
+        byte[] body = mockMvc.perform(get("/export"))
+                .andExpect(status().is(200))
+                .andExpect(header().string(HttpHeaders.CONTENT_LENGTH, String.valueOf(export.size())))
+                .andReturn()
+                .getResponse()
+                .getContentAsByteArray();
+        String ndjson = new String(new GZIPInputStream(new ByteArrayInputStream(body)).readAllBytes(),
+                StandardCharsets.UTF_8);
+        assertTrue(ndjson.contains("\"name\":\"exported\""));
+
+        userService.deleteUser(user.getId());
+    }
+
+    @Test
+    void exportIsSnapshotAtOneSequence() throws Exception {
+        User user = userService.createUser(new User(null, "owner", "owner@mail.ru", 40, List.of()));
+        petService.createPet(new Pet(null, "exported-pet", user.getId()));
+        long sequence = mutationLog.getAppliedSequence();
+
+        exportService.export();
+        ExportFile export = exportService.getLatest();
+
+        assertEquals(sequence, export.sequence());
+        mockMvc.perform(get("/export"))
+                .andExpect(status().is(200))
+                .andExpect(header().string(HttpHeaders.ETAG, "\"" + sequence + "\""));
+        String ndjson = new String(new GZIPInputStream(Files.newInputStream(export.path())).readAllBytes(),
+                StandardCharsets.UTF_8);
+        assertTrue(ndjson.contains("\"name\":\"exported-pet\""));
+
+        userService.deleteUser(user.getId());
+    }
+
+    @Test
+    void servesRanges() throws Exception {
+        exportService.export();
+        ExportFile export = exportService.getLatest();
+        byte[] file = Files.readAllBytes(export.path());
+
+        byte[] part = mockMvc.perform(get("/export").header(HttpHeaders.RANGE, "bytes=2-9"))
+                .andExpect(status().is(206))
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 2-9/" + export.size()))
+                .andReturn()
+                .getResponse()
+                .getContentAsByteArray();
+        assertArrayEquals(Arrays.copyOfRange(file, 2, 10), part);
+
+        byte[] suffix = mockMvc.perform(get("/export").header(HttpHeaders.RANGE, "bytes=-4"))
+                .andExpect(status().is(206))
+                .andReturn()
+                .getResponse()
+                .getContentAsByteArray();
+        assertArrayEquals(Arrays.copyOfRange(file, file.length - 4, file.length), suffix);
+
+        mockMvc.perform(get("/export").header(HttpHeaders.RANGE, "bytes=" + export.size() + "-"))
+                .andExpect(status().is(416))
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes */" + export.size()));
+    }
+
+    @Test
+    void notModifiedSinceLastExport() throws Exception {
+        exportService.export();
+        ExportFile export = exportService.getLatest();
+
+        mockMvc.perform(get("/export").header(HttpHeaders.IF_MODIFIED_SINCE,
+                        httpDate(export.createdMillis())))
+                .andExpect(status().is(304));
+        mockMvc.perform(get("/export").header(HttpHeaders.IF_MODIFIED_SINCE,
+                        httpDate(export.createdMillis() - 60_000)))
+                .andExpect(status().is(200));
+    }
+
+    private static String httpDate(long millis) {
+        return DateTimeFormatter.RFC_1123_DATE_TIME.format(Instant.ofEpochMilli(millis).atZone(ZoneOffset.UTC));
+    }
+}
@@ -1,5 +1,6 @@
 package ru.spring.mvc.controller;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
@@ -8,6 +9,7 @@ import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMock
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import ru.spring.mvc.dto.IdsDto;
 import ru.spring.mvc.dto.PetDto;
 import ru.spring.mvc.model.Pet;
 import ru.spring.mvc.model.User;
@@ -267,4 +269,27 @@ public class PetControllerTest {
         mockMvc.perform(get("/pets/{id}", Integer.MAX_VALUE))
                 .andExpect(status().is(404));
     }
+
+    @Test
+    void multiGetPets() throws Exception {
+        User user = userService.createUser(new User(null, "test", "test@mail.ru", 99, List.of()));
+        Pet pet = petService.createPet(new Pet(null, "cat", user.getId()));
+
+        String json = mockMvc.perform(post("/pets/_mget")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new IdsDto(List.of(Long.MAX_VALUE, pet.getId())))))
+                .andExpect(status().is(200))
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+
+        JsonNode result = objectMapper.readTree(json);
+        Assertions.assertEquals("cat", result.get("found").get(0).get("name").asText());
+        Assertions.assertEquals(Long.MAX_VALUE, result.get("missing").get(0).asLong());
+
+        mockMvc.perform(get("/pets").param("ids", String.valueOf(pet.getId())))
+                .andExpect(status().is(200));
+
+        userService.deleteUser(user.getId());
+    }
 }
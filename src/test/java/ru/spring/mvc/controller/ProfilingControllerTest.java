@@ -0,0 +1,78 @@
+package ru.spring.mvc.controller;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.spring.mvc.admin.AdminTokenInterceptor;
+import ru.spring.mvc.model.User;
+import ru.spring.mvc.service.UserService;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "admin.token=secret")
+@AutoConfigureMockMvc
+class ProfilingControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserService userService;
+
+    @Test
+    void rejectsMissingOrWrongToken() throws Exception {
+        mockMvc.perform(get("/admin/profiling"))
+                .andExpect(status().is(401));
+        mockMvc.perform(post("/admin/profiling/start").header(AdminTokenInterceptor.TOKEN_HEADER, "guess"))
+                .andExpect(status().is(401));
+    }
+
+    @Test
+    void recordsServiceOperationEvents() throws Exception {
+        mockMvc.perform(post("/admin/profiling/start").param("durationSeconds", "60")
+                        .header(AdminTokenInterceptor.TOKEN_HEADER, "secret"))
+                .andExpect(status().is(200))
+                .andExpect(jsonPath("$.state").value("RUNNING"));
+        mockMvc.perform(post("/admin/profiling/start").header(AdminTokenInterceptor.TOKEN_HEADER, "secret"))
+                .andExpect(status().is(409));
+
+        User user = userService.createUser(new User(null, "profiled", "profiled@mail.ru", 30, List.of()));
+        mockMvc.perform(get("/users/{id}", user.getId()))
+                .andExpect(status().is(200));
+
+        byte[] recording = mockMvc.perform(post("/admin/profiling/stop")
+                        .header(AdminTokenInterceptor.TOKEN_HEADER, "secret"))
+                .andExpect(status().is(200))
+                .andReturn()
+                .getResponse()
+                .getContentAsByteArray();
+        Path file = Files.createTempFile("profiling-test", ".jfr");
+        try {
+            Files.write(file, recording);
+            List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+            assertTrue(events.stream().anyMatch(event -> event.getEventType().getName().equals("ru.spring.mvc.ServiceOperation")
+                    && event.getString("operation").equals("getUserById")
+                    && event.getLong("entityId") == user.getId()));
+            assertTrue(events.stream().anyMatch(event -> event.getEventType().getName().equals("ru.spring.mvc.Conversion")));
+            assertTrue(events.stream().anyMatch(event -> event.getEventType().getName().equals("ru.spring.mvc.JsonSerialization")));
+        } finally {
+            Files.deleteIfExists(file);
+            userService.deleteUser(user.getId());
+        }
+
+        mockMvc.perform(post("/admin/profiling/stop").header(AdminTokenInterceptor.TOKEN_HEADER, "secret"))
+                .andExpect(status().is(404));
+    }
+}
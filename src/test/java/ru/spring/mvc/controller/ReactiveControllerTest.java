@@ -0,0 +1,165 @@
+package ru.spring.mvc.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import ru.spring.mvc.dto.IdsDto;
+import ru.spring.mvc.dto.PetDto;
+import ru.spring.mvc.dto.UserDto;
+import ru.spring.mvc.idempotency.IdempotencyCache;
+import ru.spring.mvc.model.Pet;
+import ru.spring.mvc.model.User;
+import ru.spring.mvc.mvcc.AsOfInterceptor;
+import ru.spring.mvc.replication.MutationLog;
+import ru.spring.mvc.service.PetService;
+import ru.spring.mvc.service.UserService;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("reactive")
+class ReactiveControllerTest {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private PetService petService;
+
+    @Autowired
+    private MutationLog mutationLog;
+
+    @Test
+    void streamsUsersAsNdjson() {
+        User first = userService.createUser(new User(null, "first", "first@mail.ru", 20, List.of()));
+        User second = userService.createUser(new User(null, "second", "second@mail.ru", 30, List.of()));
+
+        List<UserDto> users = webTestClient.get()
+                .uri("/users")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .returnResult(UserDto.class)
+                .getResponseBody()
+                .collectList()
+                .block();
+
+        assertNotNull(users);
+        List<Long> ids = users.stream().map(UserDto::getId).toList();
+        assertTrue(ids.contains(first.getId()));
+        assertTrue(ids.contains(second.getId()));
+        userService.deleteUser(first.getId());
+        userService.deleteUser(second.getId());
+    }
+
+    @Test
+    void createsAndReadsPet() {
+        User user = userService.createUser(new User(null, "owner", "owner@mail.ru", 40, List.of()));
+
+        PetDto created = webTestClient.post()
+                .uri("/pets")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(new PetDto(null, "cat", user.getId()))
+                .exchange()
+                .expectStatus().isCreated()
+                .expectHeader().exists(MutationLog.SEQUENCE_HEADER)
+                .expectBody(PetDto.class)
+                .returnResult()
+                .getResponseBody();
+
+        assertNotNull(created);
+        Pet pet = petService.getPetById(created.getId());
+        assertEquals("cat", pet.getName());
+
+        webTestClient.get()
+                .uri("/pets/{id}", created.getId())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.name").isEqualTo("cat")
+                .jsonPath("$.userId").isEqualTo(user.getId());
+        userService.deleteUser(user.getId());
+    }
+
+    @Test
+    void missingUserIsNotFound() {
+        webTestClient.get()
+                .uri("/users/{id}", Long.MAX_VALUE)
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    void invalidUserIsRejected() {
+        webTestClient.post()
+                .uri("/users")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(new UserDto(null, "test", "test", 99, List.of()))
+                .exchange()
+                .expectStatus().isEqualTo(500);
+        assertTrue(userService.getAllUsers().stream().noneMatch(user -> "test".equals(user.getEmail())));
+    }
+
+    @Test
+    void multiGetReadsAtPinnedSequence() {
+        User user = userService.createUser(new User(null, "before", "before@mail.ru", 20, List.of()));
+        long asOf = mutationLog.getAppliedSequence();
+        userService.updateUser(user.getId(), new User(null, "after", "after@mail.ru", 21, List.of()));
+
+        webTestClient.post()
+                .uri("/users/_mget?asOf={asOf}", asOf)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(new IdsDto(List.of(user.getId(), Long.MAX_VALUE)))
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(AsOfInterceptor.AS_OF_HEADER, String.valueOf(asOf))
+                .expectBody()
+                .jsonPath("$.found[0].name").isEqualTo("before")
+                .jsonPath("$.missing[0]").isEqualTo(Long.MAX_VALUE);
+        webTestClient.get()
+                .uri("/users?ids={ids}", user.getId())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.found[0].name").isEqualTo("after");
+        webTestClient.get()
+                .uri("/users/{id}?asOf={asOf}", user.getId(), mutationLog.getAppliedSequence() + 1000)
+                .exchange()
+                .expectStatus().isBadRequest();
+        userService.deleteUser(user.getId());
+    }
+
+    @Test
+    void idempotencyKeyReplaysCreate() {
+        User user = userService.createUser(new User(null, "owner", "owner@mail.ru", 40, List.of()));
+        PetDto first = createPet(user.getId(), "reactive-key");
+        PetDto second = createPet(user.getId(), "reactive-key");
+
+        assertNotNull(first);
+        assertEquals(first.getId(), second.getId());
+        assertEquals(1, petService.getPetIdsByUserId(user.getId()).size());
+        userService.deleteUser(user.getId());
+    }
+
+    private PetDto createPet(long userId, String idempotencyKey) {
+        return webTestClient.post()
+                .uri("/pets")
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(IdempotencyCache.IDEMPOTENCY_KEY_HEADER, idempotencyKey)
+                .bodyValue(new PetDto(null, "cat", userId))
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody(PetDto.class)
+                .returnResult()
+                .getResponseBody();
+    }
+}
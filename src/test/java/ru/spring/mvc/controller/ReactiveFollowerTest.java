@@ -0,0 +1,60 @@
+package ru.spring.mvc.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import ru.spring.mvc.dto.PetDto;
+import ru.spring.mvc.replication.MutationLog;
+import ru.spring.mvc.service.PetService;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "replication.role=follower",
+        "replication.primary-url=http://localhost:1",
+        "replication.poll-interval-ms=3600000",
+        "replication.read-your-writes-timeout-ms=50"
+})
+@ActiveProfiles("reactive")
+class ReactiveFollowerTest {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    private PetService petService;
+
+    @Autowired
+    private MutationLog mutationLog;
+
+    @Test
+    void rejectsWrites() {
+        webTestClient.post()
+                .uri("/pets")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(new PetDto(null, "cat", 1L))
+                .exchange()
+                .expectStatus().isEqualTo(405)
+                .expectBody()
+                .jsonPath("$.message").isEqualTo("Replica cannot serve the request");
+        assertTrue(petService.getAllPets().isEmpty());
+    }
+
+    @Test
+    void readWaitsForMinimumSequence() {
+        webTestClient.get()
+                .uri("/pets")
+                .header(MutationLog.MIN_SEQUENCE_HEADER, String.valueOf(mutationLog.getAppliedSequence() + 1))
+                .exchange()
+                .expectStatus().isEqualTo(503);
+        webTestClient.get()
+                .uri("/pets")
+                .header(MutationLog.MIN_SEQUENCE_HEADER, String.valueOf(mutationLog.getAppliedSequence()))
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().exists(MutationLog.SEQUENCE_HEADER);
+    }
+}
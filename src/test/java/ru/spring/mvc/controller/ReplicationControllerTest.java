@@ -0,0 +1,169 @@
+package ru.spring.mvc.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.spring.mvc.dto.UserDto;
+import ru.spring.mvc.model.Pet;
+import ru.spring.mvc.model.User;
+import ru.spring.mvc.replication.MutationEntry;
+import ru.spring.mvc.replication.MutationLog;
+import ru.spring.mvc.replication.MutationType;
+import ru.spring.mvc.replication.ReplicationBatch;
+import ru.spring.mvc.service.PetService;
+import ru.spring.mvc.service.UserService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "cascade.chunk-size=2")
+@AutoConfigureMockMvc
+class ReplicationControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private PetService petService;
+
+    @Autowired
+    private MutationLog mutationLog;
+
+    private ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void logContainsUserMutations() throws Exception {
+        long before = mutationLog.getAppliedSequence();
+
+        User user = userService.createUser(new User(
+                null,
+                "test",
+                "test@mail.ru",
+                99,
+                List.of()
+        ));
+        userService.deleteUser(user.getId());
+
+        String batchJson = mockMvc.perform(get("/replication/log").param("after", String.valueOf(before)))
+                .andExpect(status().is(200))
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+
+        ReplicationBatch batch = objectMapper.readValue(batchJson, ReplicationBatch.class);
+
+        List<MutationEntry> userEntries = batch.entries().stream()
+                .filter(entry -> entry.id() == user.getId())
+                .filter(entry -> entry.type() == MutationType.USER_UPSERT || entry.type() == MutationType.USER_DELETE)
+                .toList();
+        assertEquals(2, userEntries.size());
+        assertEquals(MutationType.USER_UPSERT, userEntries.get(0).type());
+        assertEquals("test", userEntries.get(0).name());
+        assertEquals(MutationType.USER_DELETE, userEntries.get(1).type());
+        assertTrue(batch.headSequence() >= userEntries.get(1).sequence());
+    }
+
+    @Test
+    void userDeleteIsLoggedAfterItsPetDeletes() throws Exception {
+        User user = userService.createUser(new User(null, "test", "test@mail.ru", 99, List.of()));
+        Pet firstPet = petService.createPet(new Pet(null, "cat", user.getId()));
+        Pet secondPet = petService.createPet(new Pet(null, "dog", user.getId()));
+        long before = mutationLog.getAppliedSequence();
+
+        userService.deleteUser(user.getId());
+
+        assertTrue(petService.findPetById(firstPet.getId()).isEmpty());
+        assertTrue(petService.findPetById(secondPet.getId()).isEmpty());
+        String batchJson = mockMvc.perform(get("/replication/log").param("after", String.valueOf(before)))
+                .andExpect(status().is(200))
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+        List<MutationEntry> entries = objectMapper.readValue(batchJson, ReplicationBatch.class).entries().stream()
+                .filter(entry -> entry.type() == MutationType.PET_DELETE
+                        ? entry.id() == firstPet.getId() || entry.id() == secondPet.getId()
+                        : entry.type() == MutationType.USER_DELETE && entry.id() == user.getId())
+                .toList();
+        assertEquals(List.of(MutationType.PET_DELETE, MutationType.PET_DELETE, MutationType.USER_DELETE),
+                entries.stream().map(MutationEntry::type).toList());
+    }
+
+    @Test
+    void userWithManyPetsIsDeletedInChunks() throws Exception {
+        User user = userService.createUser(new User(null, "test", "test@mail.ru", 99, List.of()));
+        List<Long> petIds = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            petIds.add(petService.createPet(new Pet(null, "pet" + i, user.getId())).getId());
+        }
+        long before = mutationLog.getAppliedSequence();
+
+        userService.deleteUser(user.getId());
+
+        assertTrue(userService.findUserById(user.getId()).isEmpty());
+        assertTrue(petService.findPetsByIds(petIds).isEmpty());
+        assertTrue(petService.getPetIdsByUserId(user.getId()).isEmpty());
+        String batchJson = mockMvc.perform(get("/replication/log").param("after", String.valueOf(before)))
+                .andExpect(status().is(200))
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+        List<MutationEntry> entries = objectMapper.readValue(batchJson, ReplicationBatch.class).entries().stream()
+                .filter(entry -> entry.type() == MutationType.PET_DELETE
+                        ? petIds.contains(entry.id())
+                        : entry.type() == MutationType.USER_DELETE && entry.id() == user.getId())
+                .toList();
+        assertEquals(6, entries.size());
+        assertEquals(MutationType.USER_DELETE, entries.get(5).type());
+        assertEquals(Set.copyOf(petIds),
+                entries.subList(0, 5).stream().map(MutationEntry::id).collect(Collectors.toSet()));
+    }
+
+    @Test
+    void rejectsSequenceAheadOfLog() throws Exception {
+        mockMvc.perform(get("/replication/log").param("after", String.valueOf(mutationLog.getAppliedSequence() + 100)))
+                .andExpect(status().is(400));
+    }
+
+    @Test
+    void writeReturnsSequenceHeader() throws Exception {
+        UserDto userDto = new UserDto(
+                null,
+                "test",
+                "test@mail.ru",
+                99,
+                List.of());
+
+        String createdUserJson = mockMvc.perform(post("/users")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(userDto)))
+                .andExpect(status().is(201))
+                .andExpect(header().exists(MutationLog.SEQUENCE_HEADER))
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+
+        userService.deleteUser(objectMapper.readValue(createdUserJson, UserDto.class).getId());
+    }
+
+    @Test
+    void readWaitsForUnappliedSequence() throws Exception {
+        mockMvc.perform(get("/users")
+                        .header(MutationLog.MIN_SEQUENCE_HEADER, Long.MAX_VALUE))
+                .andExpect(status().is(503));
+    }
+}
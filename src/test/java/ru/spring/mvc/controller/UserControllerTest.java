@@ -1,22 +1,36 @@
 package ru.spring.mvc.controller;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import ru.spring.mvc.dto.IdsDto;
 import ru.spring.mvc.dto.UserDto;
+import ru.spring.mvc.idempotency.IdempotencyCache;
+import ru.spring.mvc.model.Pet;
 import ru.spring.mvc.model.User;
+import ru.spring.mvc.mvcc.AsOfInterceptor;
+import ru.spring.mvc.mvcc.VersionManager;
+import ru.spring.mvc.replication.MutationLog;
+import ru.spring.mvc.service.PetService;
 import ru.spring.mvc.service.UserService;
 import ru.spring.mvc.util.UserDtoConverter;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.UUID;
+import java.util.stream.LongStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @SpringBootTest
@@ -29,11 +43,23 @@ class UserControllerTest {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private PetService petService;
+
     private ObjectMapper objectMapper = new ObjectMapper();
 
     @Autowired
     private UserDtoConverter userDtoConverter;
 
+    @Autowired
+    private MutationLog mutationLog;
+
+    @Autowired
+    private VersionManager versionManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     @Test
     void successCreateUser() throws Exception {
         UserDto userDto = new UserDto(
@@ -61,6 +87,86 @@ class UserControllerTest {
         assertEquals(userDto.getPets(), userResponse.getPets());
     }
 
+    @Test
+    void createUserWithIdempotencyKeyIsNotDuplicated() throws Exception {
+        UserDto userDto = new UserDto(
+                null,
+                "test",
+                "test@mail.ru",
+                99,
+                List.of());
+
+        String userJson = objectMapper.writeValueAsString(userDto);
+        String idempotencyKey = UUID.randomUUID().toString();
+
+        String firstJson = mockMvc.perform(post("/users")
+                        .header(IdempotencyCache.IDEMPOTENCY_KEY_HEADER, idempotencyKey)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(userJson))
+                .andExpect(status().is(201))
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+
+        String retryJson = mockMvc.perform(post("/users")
+                        .header(IdempotencyCache.IDEMPOTENCY_KEY_HEADER, idempotencyKey)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(userJson))
+                .andExpect(status().is(201))
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+
+        UserDto first = objectMapper.readValue(firstJson, UserDto.class);
+        UserDto retry = objectMapper.readValue(retryJson, UserDto.class);
+
+        assertEquals(first.getId(), retry.getId());
+        userService.deleteUser(first.getId());
+    }
+
+    @Test
+    void reusingIdempotencyKeyWithDifferentBodyIsRejected() throws Exception {
+        String idempotencyKey = UUID.randomUUID().toString();
+
+        String firstJson = mockMvc.perform(post("/users")
+                        .header(IdempotencyCache.IDEMPOTENCY_KEY_HEADER, idempotencyKey)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new UserDto(null, "test", "test@mail.ru", 99, List.of()))))
+                .andExpect(status().is(201))
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+
+        mockMvc.perform(post("/users")
+                        .header(IdempotencyCache.IDEMPOTENCY_KEY_HEADER, idempotencyKey)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new UserDto(null, "other", "test@mail.ru", 99, List.of()))))
+                .andExpect(status().is(422));
+
+        userService.deleteUser(objectMapper.readValue(firstJson, UserDto.class).getId());
+    }
+
+    @Test
+    void createUserIgnoresEmbeddedPets() throws Exception {
+        String userJson = """
+                {"name": "test", "email": "test@mail.ru", "age": 99,
+                 "pets": [{"id": 1, "name": null, "userId": null}]}
+                """;
+
+        String createdUserJson = mockMvc.perform(post("/users")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(userJson))
+                .andExpect(status().is(201))
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+
+        UserDto userResponse = objectMapper.readValue(createdUserJson, UserDto.class);
+
+        assertEquals(List.of(), userResponse.getPets());
+        userService.deleteUser(userResponse.getId());
+    }
+
     @Test
     void failureCreateUser() throws Exception {
         UserDto userDto = new UserDto(
@@ -96,6 +202,26 @@ class UserControllerTest {
         assertThrows(NoSuchElementException.class, () -> userService.getUserById(user.getId()));
     }
 
+    @Test
+    void successDeleteUserWithPets() throws Exception {
+        UserDto userDto = new UserDto(
+                null,
+                "test",
+                "test@mail.ru",
+                99,
+                List.of());
+
+        User user = userService.createUser(userDtoConverter.convertToUser(userDto));
+        Pet firstPet = petService.createPet(new Pet(null, "first", user.getId()));
+        Pet secondPet = petService.createPet(new Pet(null, "second", user.getId()));
+
+        mockMvc.perform(delete("/users/{id}", user.getId()))
+                .andExpect(status().is(200));
+
+        assertThrows(NoSuchElementException.class, () -> petService.getPetById(firstPet.getId()));
+        assertThrows(NoSuchElementException.class, () -> petService.getPetById(secondPet.getId()));
+    }
+
     @Test
     void failureDeleteUser() throws Exception {
         mockMvc.perform(delete("/users/{id}", Integer.MAX_VALUE))
@@ -141,6 +267,21 @@ class UserControllerTest {
         assertEquals("updated@mail.ru", updatedUserResponse.getEmail());
     }
 
+    @Test
+    void petCanBeAddedAfterUpdateReplacedPetList() throws Exception {
+        User user = userService.createUser(new User(null, "test", "test@mail.ru", 99, List.of()));
+
+        mockMvc.perform(put("/users/{id}", user.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(
+                                new UserDto(null, "updated", "updated@mail.ru", 11, List.of()))))
+                .andExpect(status().is(200));
+
+        Pet pet = petService.createPet(new Pet(null, "cat", user.getId()));
+        assertEquals(List.of(pet), userService.getUserById(user.getId()).getPets());
+        userService.deleteUser(user.getId());
+    }
+
     @Test
     void failureUpdateUserBecauseOfNotFound() throws Exception {
         UserDto userDto = new UserDto(
@@ -231,4 +372,151 @@ class UserControllerTest {
         mockMvc.perform(get("/users/{id}", Long.MAX_VALUE))
                 .andExpect(status().is(404));
     }
-}
\ No newline at end of file
+
+    @Test
+    void multiGetUsersReportsMissingIdsInline() throws Exception {
+        User first = userService.createUser(new User(null, "first", "first@mail.ru", 20, List.of()));
+        User second = userService.createUser(new User(null, "second", "second@mail.ru", 30, List.of()));
+        String ids = second.getId() + "," + Long.MAX_VALUE + "," + first.getId() + "," + second.getId();
+
+        String json = mockMvc.perform(get("/users").param("ids", ids))
+                .andExpect(status().is(200))
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+        JsonNode result = objectMapper.readTree(json);
+
+        assertEquals(2, result.get("found").size());
+        assertEquals("second", result.get("found").get(0).get("name").asText());
+        assertEquals("first", result.get("found").get(1).get("name").asText());
+        assertEquals(1, result.get("missing").size());
+        assertEquals(Long.MAX_VALUE, result.get("missing").get(0).asLong());
+
+        String mgetJson = mockMvc.perform(post("/users/_mget")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new IdsDto(List.of(first.getId(), Long.MAX_VALUE)))))
+                .andExpect(status().is(200))
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+        JsonNode mgetResult = objectMapper.readTree(mgetJson);
+        assertEquals(first.getId(), mgetResult.get("found").get(0).get("id").asLong());
+        assertEquals(Long.MAX_VALUE, mgetResult.get("missing").get(0).asLong());
+
+        userService.deleteUser(first.getId());
+        userService.deleteUser(second.getId());
+    }
+
+    @Test
+    void multiGetIsTimedApartFromListing() throws Exception {
+        User user = userService.createUser(new User(null, "timed", "timed@mail.ru", 20, List.of()));
+        long listings = routeCount("GET /users");
+        long multiGets = routeCount("GET /users?ids");
+
+        mockMvc.perform(get("/users").param("ids", String.valueOf(user.getId())))
+                .andExpect(status().is(200));
+
+        assertEquals(listings, routeCount("GET /users"));
+        assertEquals(multiGets + 1, routeCount("GET /users?ids"));
+        userService.deleteUser(user.getId());
+    }
+
+    private long routeCount(String route) {
+        Timer timer = meterRegistry.find("http.route.latency").tag("route", route).timer();
+        return timer == null ? 0 : timer.count();
+    }
+
+    @Test
+    void multiGetUsersRejectsTooManyIds() throws Exception {
+        List<Long> ids = LongStream.rangeClosed(1, 1001).boxed().toList();
+        mockMvc.perform(post("/users/_mget")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new IdsDto(ids))))
+                .andExpect(status().is(400));
+    }
+
+    @Test
+    void readsUserAsOfPinnedSequence() throws Exception {
+        User user = userService.createUser(new User(null, "before", "before@mail.ru", 20, List.of()));
+        Pet pet = petService.createPet(new Pet(null, "rex", user.getId()));
+        long asOf = versionManager.pin(mutationLog.getAppliedSequence());
+        try {
+            userService.updateUser(user.getId(), new User(null, "after", "after@mail.ru", 21,
+                    userService.getUserById(user.getId()).getPets()));
+            petService.updatePet(pet.getId(), new Pet(null, "max", user.getId()));
+
+            JsonNode current = objectMapper.readTree(mockMvc.perform(get("/users/{id}", user.getId()))
+                    .andExpect(status().is(200))
+                    .andReturn()
+                    .getResponse()
+                    .getContentAsString());
+            assertEquals("after", current.get("name").asText());
+            assertEquals("max", current.get("pets").get(0).get("name").asText());
+
+            userService.deleteUser(user.getId());
+
+            JsonNode past = objectMapper.readTree(mockMvc.perform(get("/users/{id}", user.getId())
+                            .param("asOf", String.valueOf(asOf)))
+                    .andExpect(status().is(200))
+                    .andExpect(header().string(AsOfInterceptor.AS_OF_HEADER, String.valueOf(asOf)))
+                    .andReturn()
+                    .getResponse()
+                    .getContentAsString());
+            assertEquals("before", past.get("name").asText());
+            assertEquals(1, past.get("pets").size());
+            assertEquals("rex", past.get("pets").get(0).get("name").asText());
+
+            JsonNode pastList = objectMapper.readTree(mockMvc.perform(get("/users")
+                            .param("asOf", String.valueOf(asOf)))
+                    .andExpect(status().is(200))
+                    .andReturn()
+                    .getResponse()
+                    .getContentAsString());
+            boolean listed = false;
+            for (JsonNode listedUser : pastList) {
+                listed |= listedUser.get("id").asLong() == user.getId() && listedUser.get("name").asText().equals("before");
+            }
+            assertTrue(listed);
+            mockMvc.perform(get("/users/{id}", user.getId()))
+                    .andExpect(status().is(404));
+        } finally {
+            versionManager.unpin(asOf);
+        }
+    }
+
+    @Test
+    void multiGetUsersReadsAsOfPinnedSequence() throws Exception {
+        User user = userService.createUser(new User(null, "before", "before@mail.ru", 20, List.of()));
+        long asOf = versionManager.pin(mutationLog.getAppliedSequence());
+        try {
+            userService.updateUser(user.getId(), new User(null, "after", "after@mail.ru", 21, new ArrayList<>()));
+
+            JsonNode result = objectMapper.readTree(mockMvc.perform(post("/users/_mget")
+                            .param("asOf", String.valueOf(asOf))
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(new IdsDto(List.of(user.getId())))))
+                    .andExpect(status().is(200))
+                    .andExpect(header().string(AsOfInterceptor.AS_OF_HEADER, String.valueOf(asOf)))
+                    .andReturn()
+                    .getResponse()
+                    .getContentAsString());
+            assertEquals("before", result.get("found").get(0).get("name").asText());
+        } finally {
+            versionManager.unpin(asOf);
+            userService.deleteUser(user.getId());
+        }
+    }
+
+    @Test
+    void plainListingIsNotPinned() throws Exception {
+        mockMvc.perform(get("/users"))
+                .andExpect(status().is(200))
+                .andExpect(header().doesNotExist(AsOfInterceptor.AS_OF_HEADER));
+    }
+
+    @Test
+    void rejectsAsOfSequenceNotAppliedYet() throws Exception {
+        mockMvc.perform(get("/users").param("asOf", String.valueOf(mutationLog.getAppliedSequence() + 1000)))
+                .andExpect(status().is(400));
+    }
+}
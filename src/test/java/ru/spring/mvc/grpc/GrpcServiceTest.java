@@ -0,0 +1,188 @@
+package ru.spring.mvc.grpc;
+
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.ClientCallStreamObserver;
+import io.grpc.stub.ClientResponseObserver;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import ru.spring.mvc.grpc.proto.IdRequest;
+import ru.spring.mvc.grpc.proto.ListRequest;
+import ru.spring.mvc.grpc.proto.PetApiGrpc;
+import ru.spring.mvc.grpc.proto.PetMessage;
+import ru.spring.mvc.grpc.proto.UserApiGrpc;
+import ru.spring.mvc.grpc.proto.UserMessage;
+import ru.spring.mvc.replication.MutationLog;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "grpc.enabled=true",
+        "grpc.port=0"
+})
+class GrpcServiceTest {
+
+    @Autowired
+    private UserGrpcService userGrpcService;
+
+    @Autowired
+    private PetGrpcService petGrpcService;
+
+    @Autowired
+    private MutationLog mutationLog;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Server server;
+    private ManagedChannel channel;
+    private UserApiGrpc.UserApiBlockingStub users;
+    private PetApiGrpc.PetApiBlockingStub pets;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        String name = InProcessServerBuilder.generateName();
+        server = InProcessServerBuilder.forName(name)
+                .addService(userGrpcService)
+                .addService(petGrpcService)
+                .build()
+                .start();
+        channel = InProcessChannelBuilder.forName(name).build();
+        users = UserApiGrpc.newBlockingStub(channel);
+        pets = PetApiGrpc.newBlockingStub(channel);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        channel.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+        server.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void createsAndReadsUser() {
+        UserMessage created = users.createUser(UserMessage.newBuilder()
+                .setName("grpc")
+                .setEmail("grpc@mail.ru")
+                .setAge(30)
+                .build());
+
+        UserMessage read = users.getUser(IdRequest.newBuilder().setId(created.getId()).build());
+        assertEquals("grpc", read.getName());
+        assertEquals(30, read.getAge());
+
+        users.deleteUser(IdRequest.newBuilder().setId(created.getId()).build());
+    }
+
+    @Test
+    void streamsPets() {
+        UserMessage owner = users.createUser(UserMessage.newBuilder()
+                .setName("owner")
+                .setEmail("owner@mail.ru")
+                .setAge(30)
+                .build());
+        PetMessage pet = pets.createPet(PetMessage.newBuilder().setName("streamed").setUserId(owner.getId()).build());
+
+        List<Long> streamedIds = new ArrayList<>();
+        pets.listPets(ListRequest.getDefaultInstance()).forEachRemaining(message -> streamedIds.add(message.getId()));
+        assertTrue(streamedIds.contains(pet.getId()));
+
+        Iterator<PetMessage> pinned = pets.listPets(
+                ListRequest.newBuilder().setAsOf(mutationLog.getAppliedSequence()).build());
+        boolean found = false;
+        while (pinned.hasNext()) {
+            found |= pinned.next().getId() == pet.getId();
+        }
+        assertTrue(found);
+
+        users.deleteUser(IdRequest.newBuilder().setId(owner.getId()).build());
+    }
+
+    @Test
+    void mapsErrorsToStatusCodes() {
+        StatusRuntimeException notFound = assertThrows(StatusRuntimeException.class,
+                () -> users.getUser(IdRequest.newBuilder().setId(Long.MAX_VALUE).build()));
+        assertEquals(Status.Code.NOT_FOUND, notFound.getStatus().getCode());
+
+        StatusRuntimeException withoutAge = assertThrows(StatusRuntimeException.class,
+                () -> users.createUser(UserMessage.newBuilder().setName("grpc").build()));
+        assertEquals(Status.Code.INVALID_ARGUMENT, withoutAge.getStatus().getCode());
+
+        Iterator<UserMessage> ahead = users.listUsers(
+                ListRequest.newBuilder().setAsOf(mutationLog.getAppliedSequence() + 1000).build());
+        StatusRuntimeException invalid = assertThrows(StatusRuntimeException.class, ahead::hasNext);
+        assertEquals(Status.Code.INVALID_ARGUMENT, invalid.getStatus().getCode());
+    }
+
+    @Test
+    void cancelledStreamUnpinsItsSequence() throws Exception {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            ids.add(users.createUser(UserMessage.newBuilder()
+                    .setName("user" + i)
+                    .setEmail(i + "@mail.ru")
+                    .setAge(30)
+                    .build()).getId());
+        }
+        double pinsBefore = pinCount();
+        CountDownLatch firstMessage = new CountDownLatch(1);
+        AtomicBoolean pinnedWhileStreaming = new AtomicBoolean();
+
+        ListRequest request = ListRequest.newBuilder().setAsOf(mutationLog.getAppliedSequence()).build();
+        UserApiGrpc.newStub(channel).listUsers(request, new ClientResponseObserver<ListRequest, UserMessage>() {
+
+            private ClientCallStreamObserver<ListRequest> call;
+
+            @Override
+            public void beforeStart(ClientCallStreamObserver<ListRequest> requestStream) {
+                call = requestStream;
+                requestStream.disableAutoRequestWithInitial(1);
+            }
+
+            @Override
+            public void onNext(UserMessage value) {
+                pinnedWhileStreaming.set(pinCount() > pinsBefore);
+                call.cancel("enough", null);
+                firstMessage.countDown();
+            }
+
+            @Override
+            public void onError(Throwable t) {
+            }
+
+            @Override
+            public void onCompleted() {
+            }
+        });
+
+        assertTrue(firstMessage.await(5, TimeUnit.SECONDS));
+        assertTrue(pinnedWhileStreaming.get());
+        long deadline = System.currentTimeMillis() + 5000;
+        while (pinCount() > pinsBefore && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(pinsBefore, pinCount());
+
+        for (Long id : ids) {
+            users.deleteUser(IdRequest.newBuilder().setId(id).build());
+        }
+    }
+
+    private double pinCount() {
+        return meterRegistry.get("mvcc.pins").gauge().value();
+    }
+}
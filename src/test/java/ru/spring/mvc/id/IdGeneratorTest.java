@@ -0,0 +1,89 @@
+package ru.spring.mvc.id;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdGeneratorTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void snowflakeIdsAreUniqueAcrossThreads() throws Exception {
+        IdGenerator idGenerator = new BlockLeasingIdGenerator(new SnowflakeIdBlockSource(5), 1000);
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int thread = 0; thread < 8; thread++) {
+            executor.execute(() -> {
+                for (int i = 0; i < 50_000; i++) {
+                    ids.add(idGenerator.nextId());
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        assertEquals(400_000, ids.size());
+        long nodeId = (ids.iterator().next() >>> SnowflakeIdBlockSource.SEQUENCE_BITS) & SnowflakeIdBlockSource.MAX_NODE_ID;
+        assertEquals(5, nodeId);
+    }
+
+    @Test
+    void snowflakeWaitsForClockWhenMillisecondIsUsedUp() throws Exception {
+        AtomicLong clock = new AtomicLong(SnowflakeIdBlockSource.EPOCH + 1_000);
+        SnowflakeIdBlockSource source = new SnowflakeIdBlockSource(5, clock::get);
+        long last = 0;
+        for (int block = 0; block < 4; block++) {
+            last = source.lease(1024) + 1023;
+        }
+
+        CompletableFuture<Long> next = CompletableFuture.supplyAsync(() -> source.lease(1024));
+        Thread.sleep(100);
+        assertFalse(next.isDone());
+        clock.incrementAndGet();
+        assertTrue(assertTimeoutPreemptively(Duration.ofSeconds(5), () -> next.get()) > last);
+
+        long restarted = new SnowflakeIdBlockSource(5, clock::incrementAndGet).lease(1);
+        assertTrue(restarted > next.get() + 1023);
+    }
+
+    @Test
+    void closingGeneratorReleasesFile() throws Exception {
+        FileIdBlockSource source = new FileIdBlockSource(directory.resolve("pets.hwm"));
+        IdGenerator idGenerator = new BlockLeasingIdGenerator(source, 10);
+        assertEquals(1, idGenerator.nextId());
+
+        idGenerator.close();
+
+        assertThrows(UncheckedIOException.class, () -> source.lease(10));
+    }
+
+    @Test
+    void fileSourceContinuesAfterRestart() throws Exception {
+        Path file = directory.resolve("users.hwm");
+        FileIdBlockSource source = new FileIdBlockSource(file);
+        IdGenerator idGenerator = new BlockLeasingIdGenerator(source, 10);
+        idGenerator.advancePast(100);
+        assertEquals(101, idGenerator.nextId());
+        assertEquals(102, idGenerator.nextId());
+        source.close();
+
+        FileIdBlockSource restartedSource = new FileIdBlockSource(file);
+        assertEquals(111, new BlockLeasingIdGenerator(restartedSource, 10).nextId());
+        restartedSource.close();
+    }
+}
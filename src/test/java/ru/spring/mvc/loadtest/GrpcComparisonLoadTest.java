@@ -0,0 +1,145 @@
+package ru.spring.mvc.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.grpc.Grpc;
+import io.grpc.InsecureChannelCredentials;
+import io.grpc.ManagedChannel;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import ru.spring.mvc.dto.UserDto;
+import ru.spring.mvc.grpc.GrpcServer;
+import ru.spring.mvc.grpc.proto.IdRequest;
+import ru.spring.mvc.grpc.proto.UserApiGrpc;
+import ru.spring.mvc.grpc.proto.UserMessage;
+
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongPredicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Request rate and process CPU time per request of {@code GET /users/{id}} over REST against
+ * {@code UserApi.GetUser} over gRPC, each driven closed-loop by the same number of clients for
+ * the same time. Client and server share the process, so the CPU figures include both sides.
+ * <p>
+ * Run with {@code mvn test -Ploadtest}; {@code loadtest.duration-seconds} sets the run length of each protocol.
+ */
+@Tag("loadtest")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {
+                "grpc.enabled=true",
+                "grpc.port=0"
+        })
+class GrpcComparisonLoadTest {
+
+    private static final int CLIENTS = 16;
+    private static final int USERS = 1000;
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private GrpcServer grpcServer;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+    private final int durationSeconds = Integer.getInteger("loadtest.duration-seconds", 10);
+
+    @Test
+    void comparesRestAndGrpcReads() throws Exception {
+        ManagedChannel channel = Grpc.newChannelBuilderForAddress("localhost", grpcServer.getPort(),
+                InsecureChannelCredentials.create()).build();
+        try {
+            UserApiGrpc.UserApiBlockingStub stub = UserApiGrpc.newBlockingStub(channel);
+            long[] userIds = new long[USERS];
+            for (int i = 0; i < USERS; i++) {
+                userIds[i] = stub.createUser(UserMessage.newBuilder()
+                        .setName("user" + i)
+                        .setEmail("user" + i + "@mail.ru")
+                        .setAge(30)
+                        .build()).getId();
+            }
+
+            LongPredicate rest = userId -> {
+                try {
+                    HttpResponse<byte[]> response = httpClient.send(
+                            HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/users/" + userId)).GET().build(),
+                            HttpResponse.BodyHandlers.ofByteArray());
+                    return response.statusCode() == 200
+                            && objectMapper.readValue(response.body(), UserDto.class).getId() == userId;
+                } catch (Exception e) {
+                    return false;
+                }
+            };
+            LongPredicate grpc = userId -> {
+                try {
+                    return stub.getUser(IdRequest.newBuilder().setId(userId).build()).getId() == userId;
+                } catch (RuntimeException e) {
+                    return false;
+                }
+            };
+
+            // one untimed round each, so neither protocol runs on a colder JIT than the other
+            run(rest, userIds);
+            run(grpc, userIds);
+            Result restResult = run(rest, userIds);
+            Result grpcResult = run(grpc, userIds);
+
+            System.out.printf("rest: %s%ngrpc: %s%n", restResult, grpcResult);
+            assertEquals(0, restResult.failures());
+            assertEquals(0, grpcResult.failures());
+            assertTrue(restResult.requests() > 0 && grpcResult.requests() > 0);
+        } finally {
+            channel.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+        }
+    }
+
+    private Result run(LongPredicate call, long[] userIds) throws InterruptedException {
+        LongAdder requests = new LongAdder();
+        LongAdder failures = new LongAdder();
+        long cpuStart = processCpuNanos();
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.SECONDS.toNanos(durationSeconds);
+        ExecutorService executor = Executors.newFixedThreadPool(CLIENTS);
+        for (int i = 0; i < CLIENTS; i++) {
+            executor.execute(() -> {
+                while (System.nanoTime() < deadline) {
+                    if (!call.test(userIds[ThreadLocalRandom.current().nextInt(userIds.length)])) {
+                        failures.increment();
+                    }
+                    requests.increment();
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(durationSeconds + 30L, TimeUnit.SECONDS));
+        long elapsed = System.nanoTime() - start;
+        return new Result(requests.sum(), failures.sum(), elapsed, processCpuNanos() - cpuStart);
+    }
+
+    private static long processCpuNanos() {
+        return ((com.sun.management.OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean())
+                .getProcessCpuTime();
+    }
+
+    private record Result(long requests, long failures, long elapsedNanos, long cpuNanos) {
+
+        @Override
+        public String toString() {
+            return String.format("requests=%d failures=%d rate=%.0f/s cpu=%.1f us/request",
+                    requests, failures, requests * 1e9 / elapsedNanos, cpuNanos / 1e3 / Math.max(requests, 1));
+        }
+    }
+}
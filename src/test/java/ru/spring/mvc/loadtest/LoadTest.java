@@ -0,0 +1,315 @@
+package ru.spring.mvc.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.core.env.Environment;
+import ru.spring.mvc.dto.PetDto;
+import ru.spring.mvc.dto.UserDto;
+import ru.spring.mvc.model.Pet;
+import ru.spring.mvc.model.User;
+import ru.spring.mvc.service.PetService;
+import ru.spring.mvc.service.UserService;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Open-loop load test of the running application. Requests are issued on a fixed schedule
+ * and latency is measured from the intended send time, so a slow server cannot hide its
+ * queueing delay by slowing the generator down (coordinated omission).
+ * <p>
+ * Run with {@code mvn test -Ploadtest}. Tunables are system properties prefixed with {@code loadtest.}:
+ * {@code rate} (requests per second), {@code duration-seconds}, {@code mix}, {@code users},
+ * {@code pets-per-user}, {@code heavy-users}, {@code heavy-user-pets}, {@code max-p99-ms},
+ * {@code max-error-rate}, {@code http-version} ({@code HTTP_1_1} or {@code HTTP_2}, the latter as h2c),
+ * {@code max-in-flight} and {@code report-file} (defaults to {@code target/loadtest/report.json}).
+ * <p>
+ * To compare the servlet and reactive stacks, run it once as is and once with
+ * {@code -Dspring.profiles.active=reactive} at a rate high enough to hold many connections open.
+ * To compare HTTP/1.1 with HTTP/2 at a fixed connection budget, cap HTTP/1.1 with {@code max-in-flight}
+ * equal to the budget (one request per connection) and run HTTP/2, which multiplexes over one connection.
+ */
+@Tag("loadtest")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "accesslog.overflow-policy=drop")
+class LoadTest {
+
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(1);
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private PetService petService;
+
+    @Autowired
+    private Environment environment;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpClient.Version httpVersion =
+            HttpClient.Version.valueOf(System.getProperty("loadtest.http-version", "HTTP_1_1"));
+    private final HttpClient httpClient = HttpClient.newBuilder().version(httpVersion).build();
+    private final int maxInFlight = Integer.getInteger("loadtest.max-in-flight", 0);
+    private final Semaphore inFlightLimit = maxInFlight > 0 ? new Semaphore(maxInFlight) : null;
+    private final Queue<PendingRequest> pending = new ConcurrentLinkedQueue<>();
+
+    private final int rate = Integer.getInteger("loadtest.rate", 500);
+    private final int durationSeconds = Integer.getInteger("loadtest.duration-seconds", 30);
+    private final Map<Operation, Integer> mix = Operation.parseMix(System.getProperty("loadtest.mix"));
+    private final int userCount = Integer.getInteger("loadtest.users", 1_000);
+    private final int petsPerUser = Integer.getInteger("loadtest.pets-per-user", 5);
+    private final int heavyUserCount = Integer.getInteger("loadtest.heavy-users", 200);
+    private final int heavyUserPets = Integer.getInteger("loadtest.heavy-user-pets", 500);
+    private final long maxP99Millis = Long.getLong("loadtest.max-p99-ms", 100);
+    private final double maxErrorRate = Double.parseDouble(System.getProperty("loadtest.max-error-rate", "0.001"));
+    private final Path reportFile = Path.of(System.getProperty("loadtest.report-file", "target/loadtest/report.json"));
+
+    private long[] ownerIds;
+    private long[] plainUserIds;
+    private long[] petIds;
+    private long[] petOwnerIds;
+    private final Queue<Long> deletablePetIds = new ConcurrentLinkedQueue<>();
+    private final Queue<Long> heavyUserIds = new ConcurrentLinkedQueue<>();
+
+    private final Map<Operation, Histogram> histograms = new EnumMap<>(Operation.class);
+    private final Map<Operation, LongAdder> errors = new EnumMap<>(Operation.class);
+
+    @Test
+    void mixedWorkload() throws Exception {
+        seed();
+        for (Operation operation : Operation.values()) {
+            histograms.put(operation, new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, 3));
+            errors.put(operation, new LongAdder());
+        }
+        Operation[] schedule = buildSchedule();
+
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / rate;
+        long totalRequests = (long) rate * durationSeconds;
+        List<CompletableFuture<?>> inFlight = new ArrayList<>((int) totalRequests);
+        long start = System.nanoTime();
+        for (long i = 0; i < totalRequests; i++) {
+            long intendedStart = start + i * intervalNanos;
+            long delay;
+            while ((delay = intendedStart - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(delay);
+            }
+            Operation operation = schedule[ThreadLocalRandom.current().nextInt(schedule.length)];
+            inFlight.add(send(operation, intendedStart));
+        }
+        CompletableFuture.allOf(inFlight.toArray(CompletableFuture[]::new)).join();
+
+        Map<String, Object> report = writeReport();
+        @SuppressWarnings("unchecked")
+        Map<String, Object> overall = (Map<String, Object>) report.get("overall");
+        long p99Micros = (long) overall.get("p99Micros");
+        double errorRate = (double) overall.get("errorRate");
+
+        assertTrue(p99Micros <= TimeUnit.MILLISECONDS.toMicros(maxP99Millis),
+                "p99 " + p99Micros + "us exceeds " + maxP99Millis + "ms");
+        assertTrue(errorRate <= maxErrorRate, "error rate " + errorRate + " exceeds " + maxErrorRate);
+    }
+
+    private void seed() {
+        ownerIds = new long[userCount];
+        plainUserIds = new long[userCount];
+        petIds = new long[userCount * petsPerUser];
+        petOwnerIds = new long[petIds.length];
+        for (int i = 0; i < userCount; i++) {
+            ownerIds[i] = userService.createUser(newUser("owner" + i)).getId();
+            plainUserIds[i] = userService.createUser(newUser("plain" + i)).getId();
+            for (int j = 0; j < petsPerUser; j++) {
+                int index = i * petsPerUser + j;
+                petIds[index] = petService.createPet(new Pet(null, "pet" + index, ownerIds[i])).getId();
+                petOwnerIds[index] = ownerIds[i];
+                deletablePetIds.add(petService.createPet(new Pet(null, "spare" + index, ownerIds[i])).getId());
+            }
+        }
+        for (int i = 0; i < heavyUserCount; i++) {
+            long heavyUserId = userService.createUser(newUser("heavy" + i)).getId();
+            for (int j = 0; j < heavyUserPets; j++) {
+                petService.createPet(new Pet(null, "heavy" + j, heavyUserId));
+            }
+            heavyUserIds.add(heavyUserId);
+        }
+    }
+
+    private static User newUser(String name) {
+        return new User(null, name, name + "@mail.ru", 30, List.of());
+    }
+
+    private Operation[] buildSchedule() {
+        List<Operation> schedule = new ArrayList<>();
+        mix.forEach((operation, weight) -> {
+            for (int i = 0; i < weight; i++) {
+                schedule.add(operation);
+            }
+        });
+        return schedule.toArray(Operation[]::new);
+    }
+
+    private CompletableFuture<?> send(Operation operation, long intendedStart) throws Exception {
+        PendingRequest request = new PendingRequest(operation, buildRequest(operation), intendedStart,
+                new CompletableFuture<>());
+        if (inFlightLimit == null || inFlightLimit.tryAcquire()) {
+            dispatch(request);
+        } else {
+            pending.add(request);
+            drainPending();
+        }
+        return request.done();
+    }
+
+    private void dispatch(PendingRequest request) {
+        httpClient.sendAsync(request.httpRequest(), HttpResponse.BodyHandlers.discarding())
+                .whenComplete((response, failure) -> {
+                    long latencyMicros = (System.nanoTime() - request.intendedStart()) / 1_000;
+                    histograms.get(request.operation()).recordValue(Math.min(latencyMicros, HIGHEST_TRACKABLE_MICROS));
+                    if (failure != null || response.statusCode() >= 400) {
+                        errors.get(request.operation()).increment();
+                    }
+                    request.done().complete(null);
+                    if (inFlightLimit != null) {
+                        inFlightLimit.release();
+                        drainPending();
+                    }
+                });
+    }
+
+    /**
+     * Requests over the in-flight limit wait here; their latency still counts from the intended start.
+     */
+    private void drainPending() {
+        while (!pending.isEmpty() && inFlightLimit.tryAcquire()) {
+            PendingRequest request = pending.poll();
+            if (request == null) {
+                inFlightLimit.release();
+                return;
+            }
+            dispatch(request);
+        }
+    }
+
+    private HttpRequest buildRequest(Operation operation) throws Exception {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int petIndex = random.nextInt(petIds.length);
+        switch (operation) {
+            case GET_USER:
+                return get("/users/" + ownerIds[random.nextInt(ownerIds.length)]);
+            case GET_PET:
+                return get("/pets/" + petIds[petIndex]);
+            case CREATE_USER:
+                return json("POST", "/users", new UserDto(null, "created", "created@mail.ru", 30, List.of()));
+            case UPDATE_USER:
+                return json("PUT", "/users/" + plainUserIds[random.nextInt(plainUserIds.length)],
+                        new UserDto(null, "updated", "updated@mail.ru", 31, List.of()));
+            case CREATE_PET:
+                return json("POST", "/pets", new PetDto(null, "created", ownerIds[random.nextInt(ownerIds.length)]));
+            case UPDATE_PET:
+                return json("PUT", "/pets/" + petIds[petIndex], new PetDto(null, "updated", petOwnerIds[petIndex]));
+            case DELETE_PET:
+                Long deletablePetId = deletablePetIds.poll();
+                return deletablePetId != null ? delete("/pets/" + deletablePetId) : get("/pets/" + petIds[petIndex]);
+            case LIST_USERS:
+                return get("/users");
+            case LIST_PETS:
+                return get("/pets");
+            case CASCADE_DELETE_USER:
+                Long heavyUserId = heavyUserIds.poll();
+                return heavyUserId != null ? delete("/users/" + heavyUserId) : get("/users");
+            default:
+                throw new IllegalArgumentException("Unknown operation " + operation);
+        }
+    }
+
+    private HttpRequest get(String path) {
+        return HttpRequest.newBuilder(uri(path)).GET().build();
+    }
+
+    private HttpRequest delete(String path) {
+        return HttpRequest.newBuilder(uri(path)).DELETE().build();
+    }
+
+    private HttpRequest json(String method, String path, Object body) throws Exception {
+        return HttpRequest.newBuilder(uri(path))
+                .header("Content-Type", "application/json")
+                .method(method, HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(body)))
+                .build();
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + port + path);
+    }
+
+    private Map<String, Object> writeReport() throws Exception {
+        Histogram overallHistogram = new Histogram(HIGHEST_TRACKABLE_MICROS, 3);
+        long overallErrors = 0;
+        Map<String, Object> operations = new LinkedHashMap<>();
+        for (Operation operation : Operation.values()) {
+            Histogram histogram = histograms.get(operation);
+            long operationErrors = errors.get(operation).sum();
+            overallHistogram.add(histogram);
+            overallErrors += operationErrors;
+            operations.put(operation.name(), summary(histogram, operationErrors));
+        }
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("profiles", environment.getActiveProfiles());
+        report.put("httpVersion", httpVersion);
+        report.put("maxInFlight", maxInFlight);
+        report.put("rate", rate);
+        report.put("durationSeconds", durationSeconds);
+        report.put("mix", mix);
+        report.put("overall", summary(overallHistogram, overallErrors));
+        report.put("operations", operations);
+
+        Files.createDirectories(reportFile.getParent());
+        objectMapper.writer(SerializationFeature.INDENT_OUTPUT).writeValue(reportFile.toFile(), report);
+        return report;
+    }
+
+    private static Map<String, Object> summary(Histogram histogram, long errorCount) {
+        long count = histogram.getTotalCount();
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("count", count);
+        summary.put("errors", errorCount);
+        summary.put("errorRate", count == 0 ? 0.0 : (double) errorCount / count);
+        summary.put("p50Micros", histogram.getValueAtPercentile(50));
+        summary.put("p90Micros", histogram.getValueAtPercentile(90));
+        summary.put("p99Micros", histogram.getValueAtPercentile(99));
+        summary.put("p999Micros", histogram.getValueAtPercentile(99.9));
+        summary.put("maxMicros", histogram.getMaxValue());
+        return summary;
+    }
+
+    private record PendingRequest(
+            Operation operation,
+            HttpRequest httpRequest,
+            long intendedStart,
+            CompletableFuture<Void> done
+    ) {
+    }
+}
@@ -0,0 +1,40 @@
+package ru.spring.mvc.loadtest;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+enum Operation {
+    GET_USER(30),
+    GET_PET(25),
+    CREATE_USER(8),
+    UPDATE_USER(5),
+    CREATE_PET(8),
+    UPDATE_PET(5),
+    DELETE_PET(4),
+    LIST_USERS(2),
+    LIST_PETS(2),
+    CASCADE_DELETE_USER(1);
+
+    private final int defaultWeight;
+
+    Operation(int defaultWeight) {
+        this.defaultWeight = defaultWeight;
+    }
+
+    /**
+     * Parses a mix like {@code GET_USER:50,LIST_USERS:5}; operations that are not listed keep their default weight.
+     */
+    static Map<Operation, Integer> parseMix(String mix) {
+        Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+        for (Operation operation : values()) {
+            weights.put(operation, operation.defaultWeight);
+        }
+        if (mix != null && !mix.isBlank()) {
+            for (String part : mix.split(",")) {
+                String[] nameAndWeight = part.trim().split(":");
+                weights.put(Operation.valueOf(nameAndWeight[0].trim()), Integer.parseInt(nameAndWeight[1].trim()));
+            }
+        }
+        return weights;
+    }
+}
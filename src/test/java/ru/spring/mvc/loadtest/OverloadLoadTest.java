@@ -0,0 +1,139 @@
+package ru.spring.mvc.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import ru.spring.mvc.dto.PetDto;
+import ru.spring.mvc.model.User;
+import ru.spring.mvc.service.UserService;
+import ru.spring.mvc.slo.AdaptiveWriteLimiter;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Overload behaviour of the write limiter: with a read target no request can meet, a closed-loop
+ * mix of readers and many more writers must drive the write limit down to its minimum and shed writes
+ * with 503, while every read is still served.
+ * <p>
+ * Run with {@code mvn test -Ploadtest}; {@code loadtest.duration-seconds} sets the run length.
+ */
+@Tag("loadtest")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {
+                "slo.targets=GET /users/{id}=0",
+                "slo.critical-routes=GET /users/{id}",
+                "slo.window-seconds=5",
+                "slo.evaluate-interval-ms=100",
+                "slo.write.max-concurrency=16",
+                "slo.write.queue-timeout-ms=50",
+                "slo.write.max-queue=8"
+        })
+class OverloadLoadTest {
+
+    private static final int READERS = 8;
+    private static final int WRITERS = 32;
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private AdaptiveWriteLimiter adaptiveWriteLimiter;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+    private final int durationSeconds = Integer.getInteger("loadtest.duration-seconds", 10);
+
+    private final LongAdder reads = new LongAdder();
+    private final LongAdder failedReads = new LongAdder();
+    private final LongAdder writes = new LongAdder();
+    private final LongAdder shedWrites = new LongAdder();
+
+    @Test
+    void shedsWritesWhileReadsAreOverTarget() throws Exception {
+        long[] userIds = new long[100];
+        for (int i = 0; i < userIds.length; i++) {
+            userIds[i] = userService.createUser(new User(null, "user" + i, "user" + i + "@mail.ru", 30, List.of())).getId();
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(durationSeconds);
+        ExecutorService executor = Executors.newFixedThreadPool(READERS + WRITERS);
+        for (int i = 0; i < READERS; i++) {
+            executor.execute(() -> {
+                while (System.nanoTime() < deadline) {
+                    long userId = userIds[ThreadLocalRandom.current().nextInt(userIds.length)];
+                    int status = send(HttpRequest.newBuilder(uri("/users/" + userId)).GET().build());
+                    reads.increment();
+                    if (status != 200) {
+                        failedReads.increment();
+                    }
+                }
+            });
+        }
+        for (int i = 0; i < WRITERS; i++) {
+            executor.execute(() -> {
+                while (System.nanoTime() < deadline) {
+                    long userId = userIds[ThreadLocalRandom.current().nextInt(userIds.length)];
+                    int status = send(createPet(userId));
+                    writes.increment();
+                    if (status == 503) {
+                        shedWrites.increment();
+                    }
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(durationSeconds + 30L, TimeUnit.SECONDS));
+
+        System.out.printf("reads=%d failedReads=%d writes=%d shedWrites=%d writeLimit=%.1f%n",
+                reads.sum(), failedReads.sum(), writes.sum(), shedWrites.sum(), adaptiveWriteLimiter.getLimit());
+        assertEquals(0, failedReads.sum());
+        assertTrue(shedWrites.sum() > 0, "no write was shed");
+        assertEquals(shedWrites.sum(), meterRegistry.counter("slo.write.shed").count());
+        assertEquals(1.0, adaptiveWriteLimiter.getLimit());
+    }
+
+    private HttpRequest createPet(long userId) {
+        try {
+            return HttpRequest.newBuilder(uri("/pets"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(
+                            objectMapper.writeValueAsBytes(new PetDto(null, "pet", userId))))
+                    .build();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private int send(HttpRequest request) {
+        try {
+            return httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+        } catch (Exception e) {
+            return -1;
+        }
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + port + path);
+    }
+}
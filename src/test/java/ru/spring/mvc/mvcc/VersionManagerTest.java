@@ -0,0 +1,150 @@
+package ru.spring.mvc.mvcc;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.spring.mvc.model.Pet;
+import ru.spring.mvc.replication.MutationLog;
+import ru.spring.mvc.replication.MutationType;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VersionManagerTest {
+
+    private MutationLog mutationLog;
+    private VersionManager versionManager;
+    private VersionedStore<Pet> store;
+
+    @BeforeEach
+    void setUp() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        mutationLog = new MutationLog(1024, meterRegistry);
+        versionManager = new VersionManager(mutationLog, meterRegistry);
+        store = versionManager.createStore("pets", Pet::getUserId);
+    }
+
+    @Test
+    void readerSeesValueAtPinnedSequence() {
+        Pet cat = new Pet(1L, "cat", 10L);
+        update(1L, null, cat);
+        long asOf = versionManager.pin(null);
+
+        Pet tiger = new Pet(1L, "tiger", 10L);
+        update(1L, cat, tiger);
+        update(1L, tiger, null);
+        Pet dog = new Pet(2L, "dog", 10L);
+        update(2L, null, dog);
+
+        assertEquals("cat", store.resolve(1L, asOf, null).getName());
+        assertNull(store.resolve(2L, asOf, dog));
+        assertEquals("dog", store.resolve(2L, mutationLog.getAppliedSequence(), dog).getName());
+        assertNull(store.resolve(1L, mutationLog.getAppliedSequence(), null));
+
+        Map<Long, Pet> versioned = new HashMap<>();
+        store.forEachVersioned(asOf, versioned::put);
+        assertEquals("cat", versioned.get(1L).getName());
+        assertNull(versioned.get(2L));
+        versionManager.unpin(asOf);
+    }
+
+    @Test
+    void pendingVersionIsInvisible() {
+        Pet cat = new Pet(1L, "cat", 10L);
+        Version<Pet> version = store.stage(1L, null, cat);
+
+        assertNull(store.resolve(1L, Long.MAX_VALUE - 1, null));
+        store.abort(1L, version);
+        assertFalse(store.isVersioned(1L));
+    }
+
+    @Test
+    void collectsVersionsNoReaderCanSee() {
+        Pet cat = new Pet(1L, "cat", 10L);
+        update(1L, null, cat);
+        long asOf = versionManager.pin(null);
+        Pet tiger = new Pet(1L, "tiger", 10L);
+        update(1L, cat, tiger);
+
+        versionManager.collect();
+        assertEquals("cat", store.resolve(1L, asOf, tiger).getName());
+        assertEquals(2, store.getVersionCount());
+
+        versionManager.unpin(asOf);
+        assertEquals(2, versionManager.collect());
+        assertFalse(store.isVersioned(1L));
+        assertEquals(0, store.getVersionCount());
+        assertThrows(IllegalArgumentException.class, () -> versionManager.pin(asOf));
+    }
+
+    @Test
+    void walksOnlyChainsOfGroup() {
+        Pet cat = new Pet(1L, "cat", 10L);
+        update(1L, null, cat);
+        update(2L, null, new Pet(2L, "dog", 20L));
+        long asOf = versionManager.pin(null);
+        Pet movedCat = new Pet(1L, "cat", 20L);
+        update(1L, cat, movedCat);
+
+        Map<Long, Pet> formerOwnerChains = new HashMap<>();
+        store.forEachVersionedInGroup(10L, asOf, formerOwnerChains::put);
+        assertEquals(Map.of(1L, cat), formerOwnerChains);
+        Map<Long, Pet> newOwnerChains = new HashMap<>();
+        store.forEachVersionedInGroup(20L, mutationLog.getAppliedSequence(), newOwnerChains::put);
+        assertEquals(Set.of(1L, 2L), newOwnerChains.keySet());
+
+        versionManager.unpin(asOf);
+        versionManager.collect();
+        Map<Long, Pet> collected = new HashMap<>();
+        store.forEachVersionedInGroup(10L, mutationLog.getAppliedSequence(), collected::put);
+        store.forEachVersionedInGroup(20L, mutationLog.getAppliedSequence(), collected::put);
+        assertTrue(collected.isEmpty());
+    }
+
+    @Test
+    void rejectsSequenceNotAppliedYet() {
+        assertThrows(IllegalArgumentException.class, () -> versionManager.pin(mutationLog.getAppliedSequence() + 1));
+    }
+
+    @Test
+    void pinDoesNotWaitForWriteInProgress() throws Exception {
+        update(1L, null, new Pet(1L, "cat", 10L));
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread writer = new Thread(() -> mutationLog.atomically(() -> {
+            writing.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return null;
+        }));
+        writer.start();
+        try {
+            assertTrue(writing.await(5, TimeUnit.SECONDS));
+            long asOf = assertTimeoutPreemptively(Duration.ofSeconds(5), () -> versionManager.pin(null));
+            assertEquals(1L, asOf);
+            assertTrue(mutationLog.awaitApplied(1L, 0));
+            versionManager.unpin(asOf);
+        } finally {
+            release.countDown();
+            writer.join();
+        }
+    }
+
+    private void update(long id, Pet previous, Pet value) {
+        Version<Pet> version = store.stage(id, previous, value);
+        if (value == null) {
+            mutationLog.appendDelete(MutationType.PET_DELETE, id, version::commit);
+        } else {
+            mutationLog.appendPetUpsert(value, version::commit);
+        }
+    }
+}
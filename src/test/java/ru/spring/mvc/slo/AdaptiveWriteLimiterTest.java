@@ -0,0 +1,43 @@
+package ru.spring.mvc.slo;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdaptiveWriteLimiterTest {
+
+    @Test
+    void halvesOnBreachAndGrowsBackByStep() throws Exception {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        RouteLatencyTracker routeLatencyTracker = new RouteLatencyTracker(meterRegistry, 60,
+                "GET /users/{id}=10", "GET /users/{id}");
+        AdaptiveWriteLimiter limiter = new AdaptiveWriteLimiter(routeLatencyTracker, meterRegistry,
+                1, 8, 0.5, 1, 0, 0);
+
+        routeLatencyTracker.record("GET /users/{id}", TimeUnit.MILLISECONDS.toNanos(5));
+        limiter.evaluate();
+        assertEquals(8.0, limiter.getLimit());
+
+        routeLatencyTracker.record("GET /users/{id}", TimeUnit.MILLISECONDS.toNanos(500));
+        limiter.evaluate();
+        assertEquals(4.0, limiter.getLimit());
+        assertEquals(1, meterRegistry.counter("slo.breaches", "route", "GET /users/{id}").count());
+
+        for (int i = 0; i < 4; i++) {
+            limiter.acquire();
+        }
+        assertThrows(WriteShedException.class, limiter::acquire);
+        assertEquals(1, meterRegistry.counter("slo.write.shed").count());
+        limiter.release();
+        limiter.acquire();
+    }
+
+    @Test
+    void parsesTargets() {
+        assertEquals(Long.valueOf(50), RouteLatencyTracker.parseTargets(" GET /pets/{id}=50, POST /pets=200").get("GET /pets/{id}"));
+        assertThrows(IllegalArgumentException.class, () -> RouteLatencyTracker.parseTargets("GET /pets"));
+    }
+}
@@ -0,0 +1,61 @@
+package ru.spring.mvc.snapshot;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.spring.mvc.model.Pet;
+import ru.spring.mvc.model.User;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SnapshotStoreTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void readsWrittenSnapshot() throws Exception {
+        Path file = directory.resolve("data.snapshot");
+        List<User> users = List.of(
+                new User(3L, "third", null, null, new ArrayList<>()),
+                new User(1L, "first", "first@mail.ru", 20, new ArrayList<>()));
+        List<Pet> pets = List.of(
+                new Pet(10L, "cat", 1L),
+                new Pet(11L, "dog", 1L),
+                new Pet(12L, "cat", 3L));
+
+        new SnapshotWriter().write(file, users, pets);
+        SnapshotStore snapshotStore = new SnapshotStore(file.toString());
+
+        User first = snapshotStore.findUser(1L);
+        assertEquals("first", first.getName());
+        assertEquals("first@mail.ru", first.getEmail());
+        assertEquals(20, first.getAge());
+        assertEquals(List.of(10L, 11L), first.getPets().stream().map(Pet::getId).toList());
+
+        User third = snapshotStore.findUser(3L);
+        assertNull(third.getEmail());
+        assertNull(third.getAge());
+        assertEquals("cat", third.getPets().get(0).getName());
+
+        assertNull(snapshotStore.findUser(2L));
+        assertEquals(3L, snapshotStore.findPet(12L).getUserId());
+        assertNull(snapshotStore.findPet(13L));
+        assertEquals(3L, snapshotStore.getMaxUserId());
+        assertEquals(12L, snapshotStore.getMaxPetId());
+
+        snapshotStore.close();
+    }
+
+    @Test
+    void emptyWithoutFile() throws Exception {
+        SnapshotStore snapshotStore = new SnapshotStore("");
+
+        assertTrue(snapshotStore.isEmpty());
+        assertNull(snapshotStore.findUser(1L));
+        assertEquals(0L, snapshotStore.getMaxPetId());
+    }
+}
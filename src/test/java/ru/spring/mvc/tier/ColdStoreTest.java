@@ -0,0 +1,83 @@
+package ru.spring.mvc.tier;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.spring.mvc.model.Pet;
+import ru.spring.mvc.model.User;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ColdStoreTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void loadsStoredUserUntilDiscarded() throws Exception {
+        ColdStore coldStore = new ColdStore(directory.resolve("cold.log").toString(), new SimpleMeterRegistry());
+        coldStore.putUser(new User(1L, "first", null, 20, new ArrayList<>(List.of(
+                new Pet(10L, "cat", 1L),
+                new Pet(11L, null, 1L)))));
+        coldStore.putUser(new User(2L, "second", "second@mail.ru", null, new ArrayList<>()));
+
+        assertTrue(coldStore.containsUser(1L));
+        assertEquals(1L, coldStore.findPetOwnerId(11L));
+
+        User first = coldStore.findUser(1L);
+        assertEquals("first", first.getName());
+        assertNull(first.getEmail());
+        assertEquals(20, first.getAge());
+        assertEquals(List.of(10L, 11L), first.getPets().stream().map(Pet::getId).toList());
+        assertNull(first.getPets().get(1).getName());
+        assertEquals(1L, first.getPets().get(0).getUserId());
+
+        assertTrue(coldStore.containsUser(1L));
+        coldStore.discardUser(1L);
+        assertNull(coldStore.findUser(1L));
+        assertNull(coldStore.findPetOwnerId(10L));
+        assertEquals(1, coldStore.getUserCount());
+        assertEquals(1, coldStore.getLoadCount());
+
+        coldStore.close();
+    }
+
+    @Test
+    void discardedUserIsNotCountedAsLoad() throws Exception {
+        ColdStore coldStore = new ColdStore(directory.resolve("cold.log").toString(), new SimpleMeterRegistry());
+        coldStore.putUser(new User(1L, "first", null, 20, new ArrayList<>(List.of(new Pet(10L, "cat", 1L)))));
+
+        coldStore.discardUser(1L);
+
+        assertFalse(coldStore.containsUser(1L));
+        assertNull(coldStore.findPetOwnerId(10L));
+        assertEquals(0, coldStore.getLoadCount());
+
+        coldStore.close();
+    }
+
+    @Test
+    void compactsDeadRecords() throws Exception {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        ColdStore coldStore = new ColdStore(directory.resolve("cold.log").toString(), meterRegistry);
+        String name = "x".repeat(1024);
+        for (long id = 1; id <= 2048; id++) {
+            coldStore.putUser(new User(id, name, null, null, new ArrayList<>()));
+        }
+        long fullSize = coldStore.getFileSize();
+        for (long id = 1; id <= 2000; id++) {
+            coldStore.discardUser(id);
+        }
+
+        assertEquals(1, meterRegistry.counter("tier.cold.compactions").count());
+        assertTrue(coldStore.getFileSize() < fullSize);
+        assertEquals(name, coldStore.findUser(2048L).getName());
+        assertEquals(2001L, coldStore.findUser(2001L).getId());
+
+        coldStore.close();
+    }
+}
@@ -0,0 +1,51 @@
+package ru.spring.mvc.tier;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LongLongMapTest {
+
+    @Test
+    void matchesHashMapUnderRandomUpdates() {
+        LongLongMap map = new LongLongMap();
+        Map<Long, Long> expected = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 200_000; i++) {
+            long key = random.nextInt(5_000);
+            long value = random.nextInt(1_000_000);
+            switch (random.nextInt(4)) {
+                case 0 -> {
+                    Long removed = expected.remove(key);
+                    assertEquals(removed != null ? removed : LongLongMap.MISSING, map.remove(key));
+                }
+                case 1 -> assertEquals(expected.remove(key, value), map.remove(key, value));
+                default -> {
+                    Long previous = expected.put(key, value);
+                    assertEquals(previous != null ? previous : LongLongMap.MISSING, map.put(key, value));
+                }
+            }
+        }
+
+        assertEquals(expected.size(), map.size());
+        for (long key = 0; key < 5_000; key++) {
+            assertEquals(expected.getOrDefault(key, LongLongMap.MISSING), map.get(key));
+        }
+        long[] keys = map.keys();
+        Arrays.sort(keys);
+        assertArrayEquals(expected.keySet().stream().mapToLong(Long::longValue).sorted().toArray(), keys);
+    }
+
+    @Test
+    void rejectsNegativeEntries() {
+        LongLongMap map = new LongLongMap();
+        assertThrows(IllegalArgumentException.class, () -> map.put(-1L, 1L));
+        assertThrows(IllegalArgumentException.class, () -> map.put(1L, -1L));
+        assertFalse(map.containsKey(-1L));
+    }
+}
@@ -0,0 +1,60 @@
+package ru.spring.mvc.tier;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import ru.spring.mvc.model.Pet;
+import ru.spring.mvc.model.User;
+import ru.spring.mvc.service.PetService;
+import ru.spring.mvc.service.UserService;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "tier.hot.max-users=2",
+        "tier.hot.low-watermark=0.5",
+        "tier.demote-interval-ms=3600000"
+})
+class TierManagerTest {
+
+    @Autowired
+    private TierManager tierManager;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private PetService petService;
+
+    @Test
+    void demotesLeastAccessedUsersAndLoadsThemBack() {
+        User busy = createUser("busy");
+        User idle = createUser("idle");
+        User other = createUser("other");
+        Pet idlePet = petService.createPet(new Pet(null, "cat", idle.getId()));
+        Pet otherPet = petService.createPet(new Pet(null, "dog", other.getId()));
+        for (int i = 0; i < 10; i++) {
+            userService.getUserById(busy.getId());
+        }
+
+        assertEquals(2, tierManager.demote());
+        assertEquals(Set.of(busy.getId()), userService.getInMemoryUserIds());
+        assertEquals(3, userService.getAllUsers().size());
+
+        assertEquals(List.of(idlePet.getId()),
+                userService.getUserById(idle.getId()).getPets().stream().map(Pet::getId).toList());
+        assertEquals("dog", petService.getPetById(otherPet.getId()).getName());
+        assertEquals(Set.of(busy.getId(), idle.getId(), other.getId()), userService.getInMemoryUserIds());
+
+        userService.deleteUser(busy.getId());
+        userService.deleteUser(idle.getId());
+        userService.deleteUser(other.getId());
+    }
+
+    private User createUser(String name) {
+        return userService.createUser(new User(null, name, name + "@mail.ru", 30, List.of()));
+    }
+}
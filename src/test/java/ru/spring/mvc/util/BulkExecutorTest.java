@@ -0,0 +1,37 @@
+package ru.spring.mvc.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BulkExecutorTest {
+
+    @Test
+    void parallelMapKeepsOrder() {
+        BulkExecutor bulkExecutor = new BulkExecutor(4, 0, 100);
+        List<Integer> source = IntStream.range(0, 10_000).boxed().toList();
+
+        List<String> results = bulkExecutor.map(source, String::valueOf);
+
+        assertEquals(source.stream().map(String::valueOf).toList(), results);
+        bulkExecutor.shutdown();
+    }
+
+    @Test
+    void sequentialAndParallelMapReturnSameKindOfList() {
+        BulkExecutor sequentialExecutor = new BulkExecutor(4, Integer.MAX_VALUE, 100);
+        BulkExecutor parallelExecutor = new BulkExecutor(4, 0, 100);
+        List<Integer> source = List.of(1, 2, 3);
+
+        List<String> sequentialResults = sequentialExecutor.map(source, String::valueOf);
+        List<String> parallelResults = parallelExecutor.map(source, String::valueOf);
+
+        assertThrows(UnsupportedOperationException.class, () -> sequentialResults.add("4"));
+        assertThrows(UnsupportedOperationException.class, () -> parallelResults.add("4"));
+        sequentialExecutor.shutdown();
+        parallelExecutor.shutdown();
+    }
+}
@@ -0,0 +1,91 @@
+package ru.spring.mvc.warmup;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.availability.ApplicationAvailability;
+import org.springframework.boot.availability.AvailabilityChangeEvent;
+import org.springframework.boot.availability.AvailabilityState;
+import org.springframework.boot.availability.LivenessState;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.event.EventListener;
+import ru.spring.mvc.replication.MutationLog;
+import ru.spring.mvc.service.PetService;
+import ru.spring.mvc.service.UserService;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "warmup.enabled=true",
+        "warmup.iterations=200"
+})
+class WarmupRunnerTest {
+
+    @Autowired
+    private WarmupRunner warmupRunner;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private PetService petService;
+
+    @Autowired
+    private MutationLog mutationLog;
+
+    @Autowired
+    private ApplicationAvailability applicationAvailability;
+
+    @Autowired
+    private AvailabilityEvents availabilityEvents;
+
+    @Test
+    void warmsUpBeforeReadinessWithoutTouchingRealData() {
+        WarmupReport report = warmupRunner.getReport();
+        assertNotNull(report);
+        assertEquals(200, report.iterations());
+        assertEquals(ReadinessState.ACCEPTING_TRAFFIC, applicationAvailability.getReadinessState());
+
+        assertTrue(userService.getAllUsers().isEmpty());
+        assertTrue(petService.getAllPets().isEmpty());
+        assertEquals(0, mutationLog.getAppliedSequence());
+    }
+
+    @Test
+    void acceptsTrafficOnlyAfterReport() {
+        List<AvailabilityState> states = availabilityEvents.events.stream().map(AvailabilityEvent::state).toList();
+        int live = states.indexOf(LivenessState.CORRECT);
+        int ready = states.indexOf(ReadinessState.ACCEPTING_TRAFFIC);
+        assertTrue(live >= 0 && ready > live, "availability events: " + states);
+
+        assertFalse(availabilityEvents.events.get(live).reported());
+        assertTrue(availabilityEvents.events.get(ready).reported());
+    }
+
+    record AvailabilityEvent(AvailabilityState state, boolean reported) {
+    }
+
+    /**
+     * Records each availability change with whether the warm-up had reported by then.
+     */
+    @TestConfiguration
+    static class AvailabilityEvents {
+
+        private final ObjectProvider<WarmupRunner> warmupRunner;
+        private final List<AvailabilityEvent> events = new CopyOnWriteArrayList<>();
+
+        AvailabilityEvents(ObjectProvider<WarmupRunner> warmupRunner) {
+            this.warmupRunner = warmupRunner;
+        }
+
+        @EventListener
+        void onAvailabilityChange(AvailabilityChangeEvent<?> event) {
+            events.add(new AvailabilityEvent(event.getState(), warmupRunner.getObject().getReport() != null));
+        }
+    }
+}
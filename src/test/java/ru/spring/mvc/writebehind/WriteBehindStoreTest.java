@@ -0,0 +1,70 @@
+package ru.spring.mvc.writebehind;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import ru.spring.mvc.model.Pet;
+import ru.spring.mvc.model.User;
+import ru.spring.mvc.service.PetService;
+import ru.spring.mvc.service.UserService;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "writebehind.enabled=true",
+        "writebehind.url=" + WriteBehindStoreTest.URL,
+        "writebehind.flush-interval-ms=3600000"
+})
+class WriteBehindStoreTest {
+
+    static final String URL = "jdbc:h2:mem:writebehind;DB_CLOSE_DELAY=-1";
+
+    @Autowired
+    private WriteBehindStore writeBehindStore;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private PetService petService;
+
+    @Test
+    void coalescesChangesOfOneEntityIntoOneRowWrite() throws Exception {
+        writeBehindStore.flush();
+        User user = userService.createUser(new User(null, "v1", "v1@mail.ru", 1, List.of()));
+        userService.updateUser(user.getId(), new User(null, "v2", "v2@mail.ru", 2, List.of()));
+        userService.updateUser(user.getId(), new User(null, "v3", "v3@mail.ru", 3, List.of()));
+        Pet pet = petService.createPet(new Pet(null, "rex", user.getId()));
+
+        assertEquals(2, writeBehindStore.getPendingCount());
+        assertEquals(2, writeBehindStore.flush());
+        assertEquals(0, writeBehindStore.getPendingCount());
+        assertEquals(0, writeBehindStore.getLagMillis());
+
+        try (Connection connection = DriverManager.getConnection(URL)) {
+            assertEquals("v3", queryString(connection, "SELECT name FROM users WHERE id = ?", user.getId()));
+            assertEquals(String.valueOf(user.getId()),
+                    queryString(connection, "SELECT user_id FROM pets WHERE id = ?", pet.getId()));
+
+            userService.deleteUser(user.getId());
+            writeBehindStore.flush();
+            assertNull(queryString(connection, "SELECT name FROM users WHERE id = ?", user.getId()));
+            assertNull(queryString(connection, "SELECT name FROM pets WHERE id = ?", pet.getId()));
+        }
+    }
+
+    private static String queryString(Connection connection, String sql, long id) throws Exception {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setLong(1, id);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() ? resultSet.getString(1) : null;
+            }
+        }
+    }
+}